@@ -0,0 +1,149 @@
+package com.covid19.analysis.benchmarks;
+
+import com.covid19.analysis.AggregateSnapshot;
+import com.covid19.analysis.AggregationEngine;
+import com.covid19.analysis.CSVReader;
+import com.covid19.analysis.DailyStatsTable;
+import com.covid19.analysis.ForecastEngine;
+import com.covid19.analysis.GrowthForecast;
+import com.covid19.analysis.MovingAverageEngine;
+import com.covid19.analysis.MovingAverageSeries;
+import com.covid19.analysis.PeakEngine;
+import com.covid19.analysis.RangeStats;
+import com.covid19.analysis.RegionMetric;
+import com.covid19.analysis.RegionPeaks;
+import com.covid19.analysis.TimeIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The analyses behind the dashboard buttons and the statistics tab, each run over a
+ * table loaded once per trial. The report benchmarks include the per-region
+ * formatting the GUI does, since that dominates once there are thousands of regions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class AnalysisBenchmark {
+
+    @Param({"100000", "10000000", "30000000"})
+    public int rows;
+
+    @Param({"3", "1000", "5000"})
+    public int regions;
+
+    @Param({"7"})
+    public int window;
+
+    private DailyStatsTable table;
+    private AggregateSnapshot snapshot;
+    private TimeIndex timeIndex;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        String file = DatasetGenerator.dataset(rows, regions).toString();
+        table = new CSVReader().readCSV(file);
+        snapshot = AggregationEngine.aggregate(table);
+        timeIndex = TimeIndex.build(table);
+    }
+
+    /**
+     * What calculateStatistics and the statistics tab compute
+     */
+    @Benchmark
+    public AggregateSnapshot statistics() {
+        return AggregationEngine.aggregate(table);
+    }
+
+    @Benchmark
+    public MovingAverageSeries[] movingAverages() {
+        return MovingAverageEngine.compute(table, window, false);
+    }
+
+    @Benchmark
+    public MovingAverageSeries[] movingAveragesCentered() {
+        return MovingAverageEngine.compute(table, window, true);
+    }
+
+    /**
+     * Peak case day per region as shown by the Total Cases view, from the raw table
+     */
+    @Benchmark
+    public void peakDays(Blackhole blackhole) {
+        AggregateSnapshot peaks = AggregationEngine.aggregate(table);
+        for (int region : peaks.regionsSortedBy(RegionMetric.PEAK_CASES, true)) {
+            blackhole.consume(String.format("%s: %d cases on %s", peaks.getRegionName(region),
+                peaks.getPeakCases(region), peaks.getPeakDateLabel(region)));
+        }
+    }
+
+    /**
+     * Top-3 days and prominent raw and 7-day-smoothed peaks per region, in one pass over the raw table
+     */
+    @Benchmark
+    public RegionPeaks[] peakEngine() {
+        return PeakEngine.compute(table, 3, 100, 14, 7);
+    }
+
+    /**
+     * Three-week growth fits and one-week projections for every region, fitted in parallel
+     */
+    @Benchmark
+    public GrowthForecast[] forecasts() {
+        return ForecastEngine.compute(table, 21, 7);
+    }
+
+    /**
+     * The Regional Comparison report over an existing snapshot
+     */
+    @Benchmark
+    public String regionalComparison() {
+        StringBuilder result = new StringBuilder();
+        for (int region : snapshot.regionsSortedBy(RegionMetric.CASES, true)) {
+            result.append("=== ").append(snapshot.getRegionName(region).toUpperCase()).append(" ===\n");
+            result.append(String.format("Total Cases:     %,10d\n", snapshot.getRegionCases(region)));
+            result.append(String.format("Total Recoveries:%,10d\n", snapshot.getRegionRecoveries(region)));
+            result.append(String.format("Total Deaths:   %,10d\n", snapshot.getRegionDeaths(region)));
+            result.append(String.format("Recovery Rate:  %10.1f%%\n", snapshot.getRegionRecoveryRate(region)));
+            result.append(String.format("Fatality Rate:  %10.1f%%\n", snapshot.getRegionFatalityRate(region)));
+        }
+        return result.toString();
+    }
+
+    @Benchmark
+    public TimeIndex timeIndexBuild() {
+        return TimeIndex.build(table);
+    }
+
+    /**
+     * One date-range query per region over the middle half of the data
+     */
+    @Benchmark
+    public void rangeQueries(Blackhole blackhole) {
+        int first = snapshot.getFirstDate();
+        int span = snapshot.getLastDate() - first;
+        int from = first + span / 4;
+        int to = first + span * 3 / 4;
+        for (int region = 0; region < timeIndex.getRegionCount(); region++) {
+            RangeStats range = timeIndex.range(region, from, to);
+            blackhole.consume(range);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.covid19.analysis.benchmarks;
+
+import com.covid19.analysis.DateCodec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * Writes synthetic daily_stats files in the same tab-separated layout as data/daily_stats.csv.
+ * Rows cycle through the regions one day at a time, and the numbers follow a noisy
+ * wave per region so peaks and moving averages have something to find. Files are
+ * cached under target/datasets and reused across benchmark runs.
+ */
+public final class DatasetGenerator {
+    private static final Path DATASET_DIR = Paths.get(System.getProperty("benchmark.datasets", "target/datasets"));
+    private static final int FIRST_DAY = DateCodec.toEpochDay(2020, 3, 1);
+
+    private DatasetGenerator() {}
+
+    /**
+     * Returns a file with the given number of rows spread over the given number of regions,
+     * generating it on first use
+     */
+    public static Path dataset(int rows, int regions) throws IOException {
+        Path file = DATASET_DIR.resolve("daily_stats_" + rows + "_" + regions + ".tsv");
+        if (!Files.exists(file)) {
+            Files.createDirectories(DATASET_DIR);
+            Path partial = DATASET_DIR.resolve(file.getFileName() + ".tmp");
+            write(partial, rows, regions);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    public static void write(Path file, int rows, int regions) throws IOException {
+        Random random = new Random(rows * 31L + regions);
+        double[] phase = new double[regions];
+        int[] scale = new int[regions];
+        for (int region = 0; region < regions; region++) {
+            phase[region] = random.nextDouble() * Math.PI * 2;
+            scale[region] = 50 + random.nextInt(950);
+        }
+
+        System.out.printf("Generating %,d rows over %,d regions into %s%n", rows, regions, file);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("daily_id\tregion\tdate\tnew_cases\trecoveries\tdeaths\n");
+            StringBuilder line = new StringBuilder(64);
+            for (int row = 0; row < rows; row++) {
+                int region = row % regions;
+                int day = row / regions;
+                double wave = 1 + Math.sin(day / 30.0 + phase[region]);
+                int cases = (int) (scale[region] * wave) + random.nextInt(20);
+                int recoveries = (int) (cases * (0.6 + random.nextDouble() * 0.3));
+                int deaths = (int) (cases * random.nextDouble() * 0.03);
+
+                line.setLength(0);
+                line.append('D').append(row + 1).append('\t')
+                    .append("Region").append(region + 1).append('\t')
+                    .append(DateCodec.format(FIRST_DAY + day)).append('\t')
+                    .append(cases).append('\t')
+                    .append(recoveries).append('\t')
+                    .append(deaths).append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    /**
+     * Generates a dataset from the command line: DatasetGenerator rows regions
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int regions = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        System.out.println("Dataset ready: " + dataset(rows, regions));
+    }
+}
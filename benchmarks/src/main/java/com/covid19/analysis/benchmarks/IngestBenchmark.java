@@ -0,0 +1,69 @@
+package com.covid19.analysis.benchmarks;
+
+import com.covid19.analysis.CSVReader;
+import com.covid19.analysis.DailyStatsTable;
+import com.covid19.analysis.SnapshotCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link CSVReader#readCSV} over generated files, sequentially and in parallel chunks,
+ * against loading the same rows from a {@link SnapshotCache}. The forks turn the cache off for readCSV.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", "-Dcovid19.snapshotCache=false"})
+public class IngestBenchmark {
+
+    @Param({"100000", "10000000", "30000000"})
+    public int rows;
+
+    @Param({"3", "1000", "5000"})
+    public int regions;
+
+    private String file;
+    private CSVReader reader;
+    private SnapshotCache snapshot;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        file = DatasetGenerator.dataset(rows, regions).toString();
+        reader = new CSVReader();
+        snapshot = new SnapshotCache(file);
+        if (snapshot.load() == null) {
+            // Generated files always have the 6-column header and no rejected rows
+            snapshot.write(reader.readCSV(file), reader.getLastBytesRead(), 6, 0);
+        }
+    }
+
+    @Benchmark
+    public DailyStatsTable readCSV() {
+        return reader.readCSV(file);
+    }
+
+    @Benchmark
+    public DailyStatsTable readCSVSequential() {
+        return reader.readCSV(file, 1);
+    }
+
+    @Benchmark
+    public DailyStatsTable readSnapshot() throws IOException {
+        return snapshot.load();
+    }
+}
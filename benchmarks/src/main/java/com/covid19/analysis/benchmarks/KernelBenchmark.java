@@ -0,0 +1,93 @@
+package com.covid19.analysis.benchmarks;
+
+import com.covid19.analysis.CSVReader;
+import com.covid19.analysis.ColumnKernels;
+import com.covid19.analysis.DailyStatsTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link ColumnKernels} over a loaded table's columns. The scalar benchmarks fork without
+ * the Vector API module, so each pair compares the two paths on the same data; the GC
+ * profiler's gc.alloc.rate.norm should be 0 for both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KernelBenchmark {
+    private static final String VECTOR = "--add-modules=jdk.incubator.vector";
+    private static final String SCALAR = "-Dcovid19.vector=false";
+
+    @Param({"100000", "10000000", "30000000"})
+    public int rows;
+
+    private int[] cases;
+    private int[] dates;
+    private int size;
+    private int fromDate;
+    private int toDate;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        DailyStatsTable table = new CSVReader().readCSV(DatasetGenerator.dataset(rows, 1000).toString());
+        cases = table.casesColumn();
+        dates = table.dateColumn();
+        size = table.size();
+        // The middle half of the date span
+        int first = ColumnKernels.min(dates, 0, size);
+        int last = ColumnKernels.max(dates, 0, size);
+        fromDate = first + (last - first) / 4;
+        toDate = last - (last - first) / 4;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", VECTOR})
+    public long sumVector() {
+        return ColumnKernels.sum(cases, 0, size);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", SCALAR})
+    public long sumScalar() {
+        return ColumnKernels.sum(cases, 0, size);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", VECTOR})
+    public long maxVector() {
+        return ColumnKernels.max(cases, 0, size);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", SCALAR})
+    public long maxScalar() {
+        return ColumnKernels.max(cases, 0, size);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", VECTOR})
+    public long sumWhereVector() {
+        return ColumnKernels.sumWhere(cases, dates, fromDate, toDate, 0, size);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", SCALAR})
+    public long sumWhereScalar() {
+        return ColumnKernels.sumWhere(cases, dates, fromDate, toDate, 0, size);
+    }
+}
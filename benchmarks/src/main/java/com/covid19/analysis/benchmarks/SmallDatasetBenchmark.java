@@ -0,0 +1,131 @@
+package com.covid19.analysis.benchmarks;
+
+import com.covid19.analysis.AggregateSnapshot;
+import com.covid19.analysis.DailyStatsTable;
+import com.covid19.analysis.GrowthForecast;
+import com.covid19.analysis.MovingAverageSeries;
+import com.covid19.analysis.RegionPeaks;
+import com.covid19.analysis.TimeIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link IngestBenchmark} and {@link AnalysisBenchmark} workloads over a 50-row file,
+ * where per-call overhead rather than per-row work dominates. Kept apart from those classes
+ * so its region counts fit in 50 rows instead of being clamped from theirs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SmallDatasetBenchmark {
+    private static final String INGEST = "-Dcovid19.snapshotCache=false";
+    private static final String ANALYSIS = "--add-modules=jdk.incubator.vector";
+
+    @Param({"50"})
+    public int rows;
+
+    @Param({"3", "50"})
+    public int regions;
+
+    private final IngestBenchmark ingest = new IngestBenchmark();
+    private final AnalysisBenchmark analysis = new AnalysisBenchmark();
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        ingest.rows = rows;
+        ingest.regions = regions;
+        ingest.generate();
+        analysis.rows = rows;
+        analysis.regions = regions;
+        analysis.window = 7;
+        analysis.load();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", INGEST})
+    public DailyStatsTable readCSV() {
+        return ingest.readCSV();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", INGEST})
+    public DailyStatsTable readCSVSequential() {
+        return ingest.readCSVSequential();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", INGEST})
+    public DailyStatsTable readSnapshot() throws IOException {
+        return ingest.readSnapshot();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", ANALYSIS})
+    public AggregateSnapshot statistics() {
+        return analysis.statistics();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", ANALYSIS})
+    public MovingAverageSeries[] movingAverages() {
+        return analysis.movingAverages();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", ANALYSIS})
+    public MovingAverageSeries[] movingAveragesCentered() {
+        return analysis.movingAveragesCentered();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", ANALYSIS})
+    public void peakDays(Blackhole blackhole) {
+        analysis.peakDays(blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", ANALYSIS})
+    public RegionPeaks[] peakEngine() {
+        return analysis.peakEngine();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", ANALYSIS})
+    public GrowthForecast[] forecasts() {
+        return analysis.forecasts();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", ANALYSIS})
+    public String regionalComparison() {
+        return analysis.regionalComparison();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", ANALYSIS})
+    public TimeIndex timeIndexBuild() {
+        return analysis.timeIndexBuild();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", ANALYSIS})
+    public void rangeQueries(Blackhole blackhole) {
+        analysis.rangeQueries(blackhole);
+    }
+}
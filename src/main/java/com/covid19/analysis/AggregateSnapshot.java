@@ -0,0 +1,186 @@
+package com.covid19.analysis;
+
+/**
+ * Immutable result of one aggregation pass: global and per-region totals,
+ * rates and peak days. Region indexes match the table's region dictionary ids.
+ * Everything here is O(1) or O(regions) to read, so the GUI can render from it
+ * on every click without touching the rows again.
+ */
+public final class AggregateSnapshot {
+    private final long rowCount;
+    private final long totalCases;
+    private final long totalRecoveries;
+    private final long totalDeaths;
+    private final int firstDate;
+    private final int lastDate;
+
+    private final String[] regionNames;
+    private final long[] regionRows;
+    private final long[] regionCases;
+    private final long[] regionRecoveries;
+    private final long[] regionDeaths;
+    private final int[] peakCases;
+    private final int[] peakDates;
+
+    // Built on first lookup by name
+    private volatile StringDictionary nameIndex;
+
+    AggregateSnapshot(long rowCount, long totalCases, long totalRecoveries, long totalDeaths,
+                      int firstDate, int lastDate, String[] regionNames, long[] regionRows,
+                      long[] regionCases, long[] regionRecoveries, long[] regionDeaths,
+                      int[] peakCases, int[] peakDates) {
+        this.rowCount = rowCount;
+        this.totalCases = totalCases;
+        this.totalRecoveries = totalRecoveries;
+        this.totalDeaths = totalDeaths;
+        this.firstDate = firstDate;
+        this.lastDate = lastDate;
+        this.regionNames = regionNames;
+        this.regionRows = regionRows;
+        this.regionCases = regionCases;
+        this.regionRecoveries = regionRecoveries;
+        this.regionDeaths = regionDeaths;
+        this.peakCases = peakCases;
+        this.peakDates = peakDates;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    public long getTotalCases() {
+        return totalCases;
+    }
+
+    public long getTotalRecoveries() {
+        return totalRecoveries;
+    }
+
+    public long getTotalDeaths() {
+        return totalDeaths;
+    }
+
+    /**
+     * Earliest date seen as an epoch day, or DateCodec.INVALID when empty
+     */
+    public int getFirstDate() {
+        return firstDate;
+    }
+
+    public int getLastDate() {
+        return lastDate;
+    }
+
+    public double getFatalityRate() {
+        return percent(totalDeaths, totalCases);
+    }
+
+    public double getRecoveryRate() {
+        return percent(totalRecoveries, totalCases);
+    }
+
+    // === PER-REGION ===
+
+    public int getRegionCount() {
+        return regionNames.length;
+    }
+
+    /**
+     * Index of the named region, or -1 if it does not appear in the data
+     */
+    public int regionIndex(String name) {
+        StringDictionary index = nameIndex;
+        if (index == null) {
+            // Interning the names in order reproduces the same dense ids
+            index = new StringDictionary(regionNames.length);
+            for (String regionName : regionNames) {
+                index.intern(regionName);
+            }
+            nameIndex = index;
+        }
+        return index.find(name);
+    }
+
+    /**
+     * Region indexes ordered by the given metric (ties keep dictionary order)
+     */
+    public int[] regionsSortedBy(RegionMetric metric, boolean descending) {
+        int[] order = IndexSort.identity(regionNames.length);
+        if (metric == RegionMetric.NAME) {
+            IndexSort.sort(order, (a, b) -> descending
+                ? regionNames[b].compareTo(regionNames[a])
+                : regionNames[a].compareTo(regionNames[b]));
+            return order;
+        }
+
+        double[] values = new double[regionNames.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = metric.valueOf(this, i);
+        }
+        IndexSort.sort(order, (a, b) -> descending
+            ? Double.compare(values[b], values[a])
+            : Double.compare(values[a], values[b]));
+        return order;
+    }
+
+    public String getRegionName(int region) {
+        return regionNames[region];
+    }
+
+    public long getRegionRows(int region) {
+        return regionRows[region];
+    }
+
+    public long getRegionCases(int region) {
+        return regionCases[region];
+    }
+
+    public long getRegionRecoveries(int region) {
+        return regionRecoveries[region];
+    }
+
+    public long getRegionDeaths(int region) {
+        return regionDeaths[region];
+    }
+
+    public double getRegionFatalityRate(int region) {
+        return percent(regionDeaths[region], regionCases[region]);
+    }
+
+    public double getRegionRecoveryRate(int region) {
+        return percent(regionRecoveries[region], regionCases[region]);
+    }
+
+    /**
+     * Share of all cases that fall in this region, as a percentage
+     */
+    public double getRegionCaseShare(int region) {
+        return percent(regionCases[region], totalCases);
+    }
+
+    /**
+     * Highest single-day case count for the region (first occurrence wins on ties)
+     */
+    public int getPeakCases(int region) {
+        return peakCases[region];
+    }
+
+    /**
+     * Epoch day of the region's peak, or DateCodec.INVALID if it never had a case
+     */
+    public int getPeakDate(int region) {
+        return peakDates[region];
+    }
+
+    public String getPeakDateLabel(int region) {
+        return peakDates[region] == DateCodec.INVALID ? "" : DateCodec.format(peakDates[region]);
+    }
+
+    private static double percent(long part, long whole) {
+        return part * 100.0 / whole;
+    }
+}
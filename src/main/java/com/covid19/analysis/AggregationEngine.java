@@ -0,0 +1,102 @@
+package com.covid19.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Computes every total, rate and peak the GUI shows in a single pass over the table.
+ * The engine is an accumulator: rows can be folded in a range at a time and
+ * {@link #snapshot(StringDictionary)} freezes the current state into an
+ * immutable {@link AggregateSnapshot} at O(regions) cost.
+ */
+public class AggregationEngine {
+    private long rowCount;
+    private long totalCases;
+    private long totalRecoveries;
+    private long totalDeaths;
+    private int firstDate = DateCodec.INVALID;
+    private int lastDate = DateCodec.INVALID;
+
+    private long[] regionRows = new long[0];
+    private long[] regionCases = new long[0];
+    private long[] regionRecoveries = new long[0];
+    private long[] regionDeaths = new long[0];
+    private int[] peakCases = new int[0];
+    private int[] peakDates = new int[0];
+
+    /**
+     * Aggregates a whole table in one pass
+     */
+    public static AggregateSnapshot aggregate(DailyStatsTable table) {
+        AggregationEngine engine = new AggregationEngine();
+        engine.accept(table, 0, table.size());
+        return engine.snapshot(table.regions());
+    }
+
+    /**
+     * Folds rows [fromRow, toRow) of the table into the running aggregates
+     */
+    public void accept(DailyStatsTable table, int fromRow, int toRow) {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.AGGREGATE);
+        ensureRegions(table.regions().size());
+
+        int[] regionIds = table.regionIdColumn();
+        int[] dates = table.dateColumn();
+        int[] cases = table.casesColumn();
+        int[] recoveries = table.recoveriesColumn();
+        int[] deaths = table.deathsColumn();
+
+        // Whole-column totals and date bounds go through the vectorized kernels
+        totalCases += ColumnKernels.sum(cases, fromRow, toRow);
+        totalRecoveries += ColumnKernels.sum(recoveries, fromRow, toRow);
+        totalDeaths += ColumnKernels.sum(deaths, fromRow, toRow);
+        if (toRow > fromRow) {
+            int first = ColumnKernels.min(dates, fromRow, toRow);
+            int last = ColumnKernels.max(dates, fromRow, toRow);
+            firstDate = firstDate == DateCodec.INVALID ? first : Math.min(firstDate, first);
+            lastDate = lastDate == DateCodec.INVALID ? last : Math.max(lastDate, last);
+        }
+
+        // Per-region totals scatter by region id, so they stay a scalar loop
+        for (int i = fromRow; i < toRow; i++) {
+            int region = regionIds[i];
+            int dayCases = cases[i];
+
+            regionRows[region]++;
+            regionCases[region] += dayCases;
+            regionRecoveries[region] += recoveries[i];
+            regionDeaths[region] += deaths[i];
+
+            if (dayCases > peakCases[region]) {
+                peakCases[region] = dayCases;
+                peakDates[region] = dates[i];
+            }
+        }
+        rowCount += toRow - fromRow;
+        sample.stop(toRow - fromRow, 0);
+    }
+
+    public AggregateSnapshot snapshot(StringDictionary regions) {
+        int count = regionRows.length;
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = regions.get(i);
+        }
+        return new AggregateSnapshot(rowCount, totalCases, totalRecoveries, totalDeaths, firstDate, lastDate,
+            names, regionRows.clone(), regionCases.clone(), regionRecoveries.clone(), regionDeaths.clone(),
+            peakCases.clone(), peakDates.clone());
+    }
+
+    private void ensureRegions(int count) {
+        if (count <= regionRows.length) {
+            return;
+        }
+        int old = regionRows.length;
+        regionRows = Arrays.copyOf(regionRows, count);
+        regionCases = Arrays.copyOf(regionCases, count);
+        regionRecoveries = Arrays.copyOf(regionRecoveries, count);
+        regionDeaths = Arrays.copyOf(regionDeaths, count);
+        peakCases = Arrays.copyOf(peakCases, count);
+        peakDates = Arrays.copyOf(peakDates, count);
+        Arrays.fill(peakDates, old, count, DateCodec.INVALID);
+    }
+}
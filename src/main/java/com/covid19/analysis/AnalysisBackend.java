@@ -0,0 +1,37 @@
+package com.covid19.analysis;
+
+import java.sql.SQLException;
+
+/**
+ * Where the dashboard's analyses run: over the rows loaded into memory, or pushed
+ * down to the DailyStats table. Totals, fatality rates, regional comparison and
+ * peaks all come from the {@link AggregateSnapshot}.
+ */
+public interface AnalysisBackend {
+
+    String getName();
+
+    /**
+     * Totals, rates and peak days for every region
+     */
+    AggregateSnapshot snapshot() throws SQLException;
+
+    /**
+     * Moving-average series for every region, indexed like the regions of the given snapshot,
+     * which must be the caller's latest {@link #snapshot()} of this backend
+     */
+    MovingAverageSeries[] movingAverages(AggregateSnapshot regions, int window, boolean centered) throws SQLException;
+
+    /**
+     * Top-K days and prominent local maxima (raw and smoothed) for every region,
+     * indexed like the regions of the given snapshot (as for {@link #movingAverages}); see {@link PeakEngine}
+     */
+    RegionPeaks[] peaks(AggregateSnapshot regions, int topK, double prominence, int minSeparation, int smoothingWindow)
+        throws SQLException;
+
+    /**
+     * Totals between two epoch days (inclusive) for one region, or for all regions when
+     * regionName is null; null if the region is unknown
+     */
+    RangeStats range(String regionName, int fromDate, int toDate) throws SQLException;
+}
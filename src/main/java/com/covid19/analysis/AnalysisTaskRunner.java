@@ -0,0 +1,157 @@
+package com.covid19.analysis;
+
+import javax.swing.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs loads and analyses off the Event Dispatch Thread.
+ * Every task is a SwingWorker executed on a single background thread, which
+ * therefore owns the {@link LiveDataset}; results are handed back to the EDT.
+ * Submitting a new analysis cancels the previous one if it has not finished,
+ * and long-running tasks report progress through the shared progress bar.
+ */
+public class AnalysisTaskRunner {
+
+    /**
+     * Background work; runs on the worker thread, never on the EDT
+     */
+    public interface Task<T> {
+        T run(TaskContext context) throws Exception;
+    }
+
+    /**
+     * Lets a task report progress and notice that it has been superseded
+     */
+    public interface TaskContext {
+        void setProgress(int percent);
+
+        boolean isCancelled();
+
+        default void checkCancelled() {
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+        }
+    }
+
+    private final ExecutorService executor;
+    private final JProgressBar progressBar;
+    private final JLabel statusLabel;
+
+    private SwingWorker<?, ?> currentAnalysis;
+    private SwingWorker<?, ?> latestTask;
+
+    public AnalysisTaskRunner(JProgressBar progressBar, JLabel statusLabel) {
+        this.progressBar = progressBar;
+        this.statusLabel = statusLabel;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analysis-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs an analysis, cancelling the previous analysis if it is still queued or running.
+     * Must be called on the EDT.
+     */
+    public <T> void submitAnalysis(String description, Task<T> task, Consumer<T> onSuccess) {
+        if (currentAnalysis != null && !currentAnalysis.isDone()) {
+            currentAnalysis.cancel(false);
+        }
+        currentAnalysis = submit(description, task, onSuccess);
+    }
+
+    /**
+     * Whether the last submitted analysis is still queued or running. Must be called on the EDT.
+     */
+    public boolean isAnalysisRunning() {
+        return currentAnalysis != null && !currentAnalysis.isDone();
+    }
+
+    /**
+     * Runs a task that must not be superseded (loading, appending rows).
+     * Must be called on the EDT.
+     */
+    public <T> SwingWorker<T, Void> submit(String description, Task<T> task, Consumer<T> onSuccess) {
+        long submitted = System.nanoTime();
+
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                if (isCancelled()) {
+                    throw new CancellationException();
+                }
+                return task.run(new TaskContext() {
+                    @Override
+                    public void setProgress(int percent) {
+                        progress(Math.max(0, Math.min(100, percent)));
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return isCancelledWorker();
+                    }
+                });
+            }
+
+            private void progress(int percent) {
+                setProgress(percent);
+            }
+
+            private boolean isCancelledWorker() {
+                return isCancelled();
+            }
+
+            @Override
+            protected void done() {
+                boolean latest = latestTask == this;
+                if (latest) {
+                    progressBar.setVisible(false);
+                }
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    T result = get();
+                    onSuccess.accept(result);
+                    if (latest) {
+                        statusLabel.setText(String.format("%s finished in %.1f ms", description,
+                            (System.nanoTime() - submitted) / 1e6));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException) {
+                        return;
+                    }
+                    System.err.println(description + " failed: " + e.getCause());
+                    statusLabel.setText(description + " failed: " + e.getCause().getMessage());
+                }
+            }
+        };
+
+        worker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName()) && latestTask == worker) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue((Integer) event.getNewValue());
+            }
+        });
+
+        latestTask = worker;
+        progressBar.setIndeterminate(true);
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        statusLabel.setText(description + "...");
+        executor.execute(worker);
+        return worker;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
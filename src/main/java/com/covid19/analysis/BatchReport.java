@@ -0,0 +1,506 @@
+package com.covid19.analysis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Headless batch mode: analyses many daily_stats files concurrently and writes one
+ * JSON report per file plus a merged summary, with the same statistics the dashboard
+ * shows (totals, rates, per-region shares, peaks and the latest moving average).
+ *
+ * <pre>
+ * java -cp target/classes com.covid19.analysis.BatchReport &lt;directory|glob&gt; [output-directory]
+ * </pre>
+ *
+ * A directory means every *.csv file in it; a glob such as "extracts/**.csv" is matched
+ * below its first wildcard-free directory. At most -Dcovid19.batch.threads files are
+ * processed at once (default: one per core), each parsed with its share of the cores,
+ * so memory stays bounded by the largest few files rather than the whole batch.
+ * -Dcovid19.batch.window sets the moving-average window (default 7).
+ * Rejected rows of each file go to "&lt;name&gt;.quarantine" in the output directory.
+ * Exits with status 1 if any file could not be processed.
+ */
+public class BatchReport {
+    public static final String DEFAULT_OUTPUT = "reports";
+    public static final String SUMMARY_FILE = "summary.json";
+    public static final String REPORT_SUFFIX = ".report.json";
+
+    // Same peak settings as the dashboard's Total Cases view
+    private static final int PEAK_TOP_K = 3;
+    private static final double PEAK_PROMINENCE = 100;
+    private static final int PEAK_SEPARATION_DAYS = 14;
+
+    private final Path outputDir;
+    private final int threads;
+    private final int window;
+
+    public BatchReport(Path outputDir, int threads, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1 day: " + window);
+        }
+        this.outputDir = outputDir;
+        this.threads = Math.max(1, threads);
+        this.window = window;
+    }
+
+    /**
+     * Outcome for one input file; the report itself is already on disk
+     */
+    public static final class FileResult {
+        final Path file;
+        final Path report;
+        final AggregateSnapshot snapshot;
+        final long rowsRejected;
+        final long elapsedNanos;
+        final String error;
+
+        FileResult(Path file, Path report, AggregateSnapshot snapshot, long rowsRejected, long elapsedNanos, String error) {
+            this.file = file;
+            this.report = report;
+            this.snapshot = snapshot;
+            this.rowsRejected = rowsRejected;
+            this.elapsedNanos = elapsedNanos;
+            this.error = error;
+        }
+
+        public boolean isFailed() {
+            return error != null;
+        }
+    }
+
+    /**
+     * Expands a directory or glob into the matching regular files, sorted by path
+     */
+    public static List<Path> resolveInputs(String spec) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path direct = Paths.get(spec);
+        if (Files.isDirectory(direct)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(direct, "*.csv")) {
+                for (Path file : stream) {
+                    if (Files.isRegularFile(file)) {
+                        files.add(file);
+                    }
+                }
+            }
+        } else if (!hasWildcard(spec)) {
+            if (Files.isRegularFile(direct)) {
+                files.add(direct);
+            }
+        } else {
+            // Walk from the deepest directory before the first wildcard
+            String normalized = spec.replace('\\', '/');
+            int wildcard = firstWildcard(normalized);
+            int slash = normalized.lastIndexOf('/', wildcard);
+            Path base = slash < 0 ? Paths.get(".") : Paths.get(slash == 0 ? "/" : normalized.substring(0, slash));
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + normalized.substring(slash + 1));
+            if (Files.isDirectory(base)) {
+                try (Stream<Path> walk = Files.walk(base)) {
+                    walk.filter(Files::isRegularFile)
+                        .filter(file -> matcher.matches(base.relativize(file)))
+                        .forEach(files::add);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static boolean hasWildcard(String spec) {
+        return firstWildcard(spec) < spec.length();
+    }
+
+    private static int firstWildcard(String spec) {
+        for (int i = 0; i < spec.length(); i++) {
+            char c = spec.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return spec.length();
+    }
+
+    /**
+     * Processes every file on a fixed pool of worker threads and writes the summary.
+     * Results are returned in input order.
+     */
+    public List<FileResult> run(List<Path> files) throws IOException {
+        Files.createDirectories(outputDir);
+        int workers = Math.min(threads, Math.max(1, files.size()));
+        // Split the cores between the files being parsed at once
+        int parsePerFile = Math.max(1, Runtime.getRuntime().availableProcessors() / workers);
+        List<String> reportNames = reportNames(files);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers,
+            task -> new Thread(task, "batch-report-" + threadNumber.incrementAndGet()));
+        ExecutorCompletionService<FileResult> completion = new ExecutorCompletionService<>(pool);
+        long start = System.nanoTime();
+
+        FileResult[] results = new FileResult[files.size()];
+        try {
+            List<Future<FileResult>> futures = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                Path file = files.get(i);
+                Path report = outputDir.resolve(reportNames.get(i));
+                futures.add(completion.submit(() -> process(file, report, parsePerFile)));
+            }
+            for (int done = 1; done <= files.size(); done++) {
+                FileResult result = completion.take().get();
+                if (result.isFailed()) {
+                    System.err.printf("[%d/%d] %s FAILED: %s%n", done, files.size(), result.file, result.error);
+                } else {
+                    System.out.printf("[%d/%d] %s: %,d rows in %.1f ms -> %s%n", done, files.size(), result.file,
+                        result.snapshot.getRowCount(), result.elapsedNanos / 1e6, result.report.getFileName());
+                }
+            }
+            for (int i = 0; i < results.length; i++) {
+                results[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            // process() reports its own failures, so this is a bug rather than bad input
+            throw new IOException("Batch worker failed: " + e.getCause(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<FileResult> ordered = List.of(results);
+        writeSummary(ordered, System.nanoTime() - start);
+        return ordered;
+    }
+
+    /**
+     * Parses, analyses and reports one file; failures are captured in the result, not thrown
+     */
+    private FileResult process(Path file, Path report, int parallelism) {
+        long start = System.nanoTime();
+        try {
+            ParallelStatsLoader loader = new ParallelStatsLoader(parallelism);
+            String reportName = report.getFileName().toString();
+            Path quarantinePath = report.resolveSibling(
+                reportName.substring(0, reportName.length() - REPORT_SUFFIX.length()) + QuarantineFile.SUFFIX);
+            DailyStatsTable table;
+            try (QuarantineFile quarantine = new QuarantineFile(quarantinePath, false)) {
+                loader.setQuarantine(quarantine);
+                table = loader.load(file);
+            }
+            AggregateSnapshot snapshot = AggregationEngine.aggregate(table);
+            RegionPeaks[] peaks = PeakEngine.compute(table, PEAK_TOP_K, PEAK_PROMINENCE, PEAK_SEPARATION_DAYS, window);
+            MovingAverageSeries[] averages = MovingAverageEngine.compute(table, window, false);
+
+            writeAtomically(report, out -> writeFileReport(out, file, snapshot, peaks, averages, loader.getErrors()));
+            return new FileResult(file, report, snapshot, loader.getRowsRejected(), System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            return new FileResult(file, report, null, 0, System.nanoTime() - start, e.toString());
+        }
+    }
+
+    /**
+     * Report names are the input paths relative to their common parent, flattened,
+     * so files with the same name in different directories do not overwrite each other
+     */
+    private static List<String> reportNames(List<Path> files) {
+        Path common = null;
+        for (Path file : files) {
+            Path parent = file.toAbsolutePath().normalize().getParent();
+            if (common == null) {
+                common = parent;
+            }
+            while (common != null && !parent.startsWith(common)) {
+                common = common.getParent();
+            }
+        }
+        List<String> names = new ArrayList<>();
+        for (Path file : files) {
+            Path absolute = file.toAbsolutePath().normalize();
+            String relative = common == null ? absolute.getFileName().toString() : common.relativize(absolute).toString();
+            names.add(relative.replace('/', '_').replace('\\', '_') + REPORT_SUFFIX);
+        }
+        return names;
+    }
+
+    private void writeFileReport(Writer out, Path file, AggregateSnapshot snapshot, RegionPeaks[] peaks,
+                                 MovingAverageSeries[] averages, ParseErrors errors) throws IOException {
+        out.write("{\n");
+        field(out, 1, "file", file.toString());
+        field(out, 1, "rows", snapshot.getRowCount());
+        field(out, 1, "rowsRejected", errors.getTotal());
+        out.write("  \"rejectedByCategory\": {");
+        ParseErrors.Category[] categories = ParseErrors.Category.values();
+        for (int i = 0; i < categories.length; i++) {
+            out.write((i == 0 ? "" : ", ") + quote(categories[i].name().toLowerCase(Locale.ROOT)) + ": "
+                + errors.getCount(categories[i]));
+        }
+        out.write("},\n");
+        dateRange(out, 1, snapshot);
+        totals(out, 1, snapshot);
+        out.write("  \"regions\": [");
+        int[] order = snapshot.regionsSortedBy(RegionMetric.CASES, true);
+        for (int i = 0; i < order.length; i++) {
+            int region = order[i];
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write("    {\n");
+            field(out, 3, "region", snapshot.getRegionName(region));
+            field(out, 3, "reports", snapshot.getRegionRows(region));
+            field(out, 3, "cases", snapshot.getRegionCases(region));
+            field(out, 3, "recoveries", snapshot.getRegionRecoveries(region));
+            field(out, 3, "deaths", snapshot.getRegionDeaths(region));
+            field(out, 3, "caseShare", snapshot.getRegionCaseShare(region));
+            field(out, 3, "fatalityRate", snapshot.getRegionFatalityRate(region));
+            field(out, 3, "recoveryRate", snapshot.getRegionRecoveryRate(region));
+
+            RegionPeaks regionPeaks = peaks[region];
+            out.write("      \"topDays\": [");
+            for (int rank = 0; rank < regionPeaks.getTopCount(); rank++) {
+                out.write(rank == 0 ? "" : ", ");
+                out.write("{\"date\": " + quote(isoDate(regionPeaks.getTopDate(rank)))
+                    + ", \"cases\": " + regionPeaks.getTopCases(rank) + "}");
+            }
+            out.write("],\n");
+            field(out, 3, "localPeaks", regionPeaks.getLocalPeakCount());
+            field(out, 3, "smoothedPeaks", regionPeaks.getSmoothedPeakCount());
+
+            MovingAverageSeries series = averages[region];
+            field(out, 3, "movingAverageWindow", window);
+            if (series.size() > 0) {
+                field(out, 3, "latestMovingAverageDate", isoDate(series.date(series.size() - 1)));
+                lastField(out, 3, "latestMovingAverage", series.value(series.size() - 1));
+            } else {
+                lastRaw(out, 3, "latestMovingAverage", "null");
+            }
+            out.write("    }");
+        }
+        out.write(order.length == 0 ? "]\n" : "\n  ]\n");
+        out.write("}\n");
+    }
+
+    /**
+     * Writes summary.json: every file's status and totals, then the totals of all files
+     * together and each region merged across files by name
+     */
+    private void writeSummary(List<FileResult> results, long elapsedNanos) throws IOException {
+        long rows = 0, cases = 0, recoveries = 0, deaths = 0, rejected = 0;
+        int failed = 0;
+        int firstDate = DateCodec.INVALID, lastDate = DateCodec.INVALID;
+        // name -> reports, cases, recoveries, deaths, files
+        Map<String, long[]> regions = new TreeMap<>();
+        for (FileResult result : results) {
+            if (result.isFailed()) {
+                failed++;
+                continue;
+            }
+            AggregateSnapshot snapshot = result.snapshot;
+            rows += snapshot.getRowCount();
+            cases += snapshot.getTotalCases();
+            recoveries += snapshot.getTotalRecoveries();
+            deaths += snapshot.getTotalDeaths();
+            rejected += result.rowsRejected;
+            if (!snapshot.isEmpty()) {
+                firstDate = firstDate == DateCodec.INVALID ? snapshot.getFirstDate() : Math.min(firstDate, snapshot.getFirstDate());
+                lastDate = lastDate == DateCodec.INVALID ? snapshot.getLastDate() : Math.max(lastDate, snapshot.getLastDate());
+            }
+            for (int region = 0; region < snapshot.getRegionCount(); region++) {
+                long[] merged = regions.computeIfAbsent(snapshot.getRegionName(region), name -> new long[5]);
+                merged[0] += snapshot.getRegionRows(region);
+                merged[1] += snapshot.getRegionCases(region);
+                merged[2] += snapshot.getRegionRecoveries(region);
+                merged[3] += snapshot.getRegionDeaths(region);
+                merged[4]++;
+            }
+        }
+        long totalRows = rows, totalCases = cases, totalRecoveries = recoveries, totalDeaths = deaths;
+        long totalRejected = rejected;
+        int failures = failed, from = firstDate, to = lastDate;
+
+        writeAtomically(outputDir.resolve(SUMMARY_FILE), out -> {
+            out.write("{\n");
+            field(out, 1, "files", results.size());
+            field(out, 1, "failed", failures);
+            field(out, 1, "elapsedMillis", elapsedNanos / 1_000_000);
+            out.write("  \"reports\": [");
+            for (int i = 0; i < results.size(); i++) {
+                FileResult result = results.get(i);
+                out.write(i == 0 ? "\n" : ",\n");
+                out.write("    {\"file\": " + quote(result.file.toString()));
+                if (result.isFailed()) {
+                    out.write(", \"status\": \"failed\", \"error\": " + quote(result.error) + "}");
+                } else {
+                    out.write(", \"status\": \"ok\", \"report\": " + quote(result.report.getFileName().toString())
+                        + ", \"rows\": " + result.snapshot.getRowCount()
+                        + ", \"cases\": " + result.snapshot.getTotalCases()
+                        + ", \"millis\": " + result.elapsedNanos / 1_000_000 + "}");
+                }
+            }
+            out.write(results.isEmpty() ? "],\n" : "\n  ],\n");
+            field(out, 1, "rows", totalRows);
+            field(out, 1, "rowsRejected", totalRejected);
+            field(out, 1, "firstDate", from == DateCodec.INVALID ? null : isoDate(from));
+            field(out, 1, "lastDate", to == DateCodec.INVALID ? null : isoDate(to));
+            field(out, 1, "cases", totalCases);
+            field(out, 1, "recoveries", totalRecoveries);
+            field(out, 1, "deaths", totalDeaths);
+            field(out, 1, "fatalityRate", rate(totalDeaths, totalCases));
+            field(out, 1, "recoveryRate", rate(totalRecoveries, totalCases));
+            out.write("  \"regions\": [");
+            boolean first = true;
+            for (Map.Entry<String, long[]> entry : regions.entrySet()) {
+                long[] merged = entry.getValue();
+                out.write(first ? "\n" : ",\n");
+                first = false;
+                out.write("    {\"region\": " + quote(entry.getKey()) + ", \"files\": " + merged[4]
+                    + ", \"reports\": " + merged[0] + ", \"cases\": " + merged[1]
+                    + ", \"recoveries\": " + merged[2] + ", \"deaths\": " + merged[3]
+                    + ", \"fatalityRate\": " + number(rate(merged[3], merged[1])) + "}");
+            }
+            out.write(regions.isEmpty() ? "]\n" : "\n  ]\n");
+            out.write("}\n");
+        });
+
+        System.out.printf("%nProcessed %d file(s), %d failed: %,d rows, %,d cases, %,d deaths in %.1f s -> %s%n",
+            results.size(), failures, totalRows, totalCases, totalDeaths, elapsedNanos / 1e9,
+            outputDir.resolve(SUMMARY_FILE));
+    }
+
+    private static double rate(long part, long whole) {
+        return whole > 0 ? part * 100.0 / whole : 0;
+    }
+
+    // === JSON OUTPUT ===
+
+    private interface ReportContent {
+        void write(Writer out) throws IOException;
+    }
+
+    /**
+     * Writes next to the target and moves it into place, so a crashed run never leaves half a report
+     */
+    private static void writeAtomically(Path target, ReportContent content) throws IOException {
+        Path partial = target.resolveSibling(target.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+            content.write(out);
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void dateRange(Writer out, int depth, AggregateSnapshot snapshot) throws IOException {
+        field(out, depth, "firstDate", snapshot.isEmpty() ? null : isoDate(snapshot.getFirstDate()));
+        field(out, depth, "lastDate", snapshot.isEmpty() ? null : isoDate(snapshot.getLastDate()));
+    }
+
+    private static void totals(Writer out, int depth, AggregateSnapshot snapshot) throws IOException {
+        field(out, depth, "cases", snapshot.getTotalCases());
+        field(out, depth, "recoveries", snapshot.getTotalRecoveries());
+        field(out, depth, "deaths", snapshot.getTotalDeaths());
+        field(out, depth, "fatalityRate", snapshot.getFatalityRate());
+        field(out, depth, "recoveryRate", snapshot.getRecoveryRate());
+    }
+
+    private static void field(Writer out, int depth, String name, String value) throws IOException {
+        raw(out, depth, name, value == null ? "null" : quote(value), true);
+    }
+
+    private static void field(Writer out, int depth, String name, long value) throws IOException {
+        raw(out, depth, name, Long.toString(value), true);
+    }
+
+    private static void field(Writer out, int depth, String name, double value) throws IOException {
+        raw(out, depth, name, number(value), true);
+    }
+
+    private static void lastField(Writer out, int depth, String name, double value) throws IOException {
+        raw(out, depth, name, number(value), false);
+    }
+
+    private static void lastRaw(Writer out, int depth, String name, String json) throws IOException {
+        raw(out, depth, name, json, false);
+    }
+
+    private static void raw(Writer out, int depth, String name, String json, boolean more) throws IOException {
+        out.write("  ".repeat(depth));
+        out.write(quote(name));
+        out.write(": ");
+        out.write(json);
+        out.write(more ? ",\n" : "\n");
+    }
+
+    private static String number(double value) {
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.4f", value) : "null";
+    }
+
+    private static String isoDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': quoted.append("\\\""); break;
+                case '\\': quoted.append("\\\\"); break;
+                case '\n': quoted.append("\\n"); break;
+                case '\r': quoted.append("\\r"); break;
+                case '\t': quoted.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: BatchReport <directory|glob> [output-directory]");
+            System.exit(2);
+        }
+        Path output = Paths.get(args.length > 1 ? args[1] : DEFAULT_OUTPUT);
+        int threads = Integer.getInteger("covid19.batch.threads", Runtime.getRuntime().availableProcessors());
+        int window = Integer.getInteger("covid19.batch.window", 7);
+        PipelineMetrics.register();
+
+        try {
+            List<Path> files = resolveInputs(args[0]);
+            if (files.isEmpty()) {
+                System.err.println("No input files match " + args[0]);
+                System.exit(2);
+            }
+            System.out.println("Analyzing " + files.size() + " file(s) with " + Math.min(threads, files.size())
+                + " worker(s) into " + output);
+            List<FileResult> results = new BatchReport(output, threads, window).run(files);
+            if (results.stream().anyMatch(FileResult::isFailed)) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("Batch report failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
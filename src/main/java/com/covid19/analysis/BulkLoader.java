@@ -0,0 +1,484 @@
+package com.covid19.analysis;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams a daily_stats file into the Regions and DailyStats tables.
+ * A parser thread maps the file in line-aligned chunks and hands each parsed chunk
+ * to the inserting thread through a small bounded queue, so parsing and inserting
+ * overlap while memory stays bounded. Rows go in as fixed-size multi-row INSERTs sent in
+ * JDBC batches; rows short of a full statement carry over into the next chunk, and only the
+ * tails before a checkpoint or at the end go through a batched single-row INSERT. Every
+ * checkpoint commits the rows together with the position reached (rows loaded and last daily_id) in LoadCheckpoints, so an interrupted load picks
+ * up after the last committed row when it is run again.
+ */
+public class BulkLoader {
+    public static final int DEFAULT_BATCH_SIZE = 10_240;
+    public static final int DEFAULT_CHECKPOINT_ROWS = 250_000;
+
+    // 6 parameters per row; SQL Server allows at most 2100 parameters and 1000 rows per statement
+    static final int ROWS_PER_STATEMENT = 256;
+    private static final int COLUMNS = 6;
+    private static final int QUEUE_CAPACITY = 4;
+
+    private static final String CREATE_REGIONS =
+        "CREATE TABLE Regions (region_id INT IDENTITY(1,1) PRIMARY KEY, region_name NVARCHAR(100) NOT NULL UNIQUE)";
+    private static final String CREATE_DAILY_STATS =
+        "CREATE TABLE DailyStats (daily_id NVARCHAR(50) NOT NULL PRIMARY KEY, "
+            + "region_id INT NOT NULL REFERENCES Regions(region_id), report_date DATE NOT NULL, "
+            + "new_cases INT NOT NULL, recoveries INT NOT NULL, deaths INT NOT NULL)";
+    private static final String CREATE_CHECKPOINTS =
+        "CREATE TABLE LoadCheckpoints (source_file NVARCHAR(400) NOT NULL PRIMARY KEY, "
+            + "last_daily_id NVARCHAR(50) NOT NULL, rows_loaded BIGINT NOT NULL)";
+
+    // Marks the end of the parsed chunks
+    private static final Chunk END = new Chunk(null, null);
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final int checkpointRows;
+
+    private long rowsInserted;
+    private long rowsSkipped;
+    private long rowsRejected;
+    private long checkpoints;
+
+    // Position of the inserter within the current load
+    private String source;
+    private long rowsLoaded;
+    private String lastDailyId;
+    private long sinceCheckpoint;
+    private int pendingBatchRows;
+    private PreparedStatement fullInsert;
+    private PreparedStatement singleInsert;
+
+    // Rows waiting to fill the next multi-row INSERT, carried across chunks (region ids already mapped)
+    private final String[] heldIds = new String[ROWS_PER_STATEMENT];
+    private final int[] heldRegions = new int[ROWS_PER_STATEMENT];
+    private final int[] heldDates = new int[ROWS_PER_STATEMENT];
+    private final int[] heldCases = new int[ROWS_PER_STATEMENT];
+    private final int[] heldRecoveries = new int[ROWS_PER_STATEMENT];
+    private final int[] heldDeaths = new int[ROWS_PER_STATEMENT];
+    private int held;
+    private final Map<String, Integer> regionIds = new HashMap<>();
+
+    public BulkLoader(ConnectionPool pool) {
+        this(pool, DEFAULT_BATCH_SIZE, DEFAULT_CHECKPOINT_ROWS);
+    }
+
+    /**
+     * @param batchSize rows sent per JDBC batch
+     * @param checkpointRows rows per commit; a resumed load repeats at most this many rows of work
+     */
+    public BulkLoader(ConnectionPool pool, int batchSize, int checkpointRows) {
+        if (batchSize < 1 || checkpointRows < 1) {
+            throw new IllegalArgumentException("Batch size and checkpoint interval must be positive");
+        }
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.checkpointRows = checkpointRows;
+    }
+
+    public long load(String filePath) throws IOException, SQLException {
+        return load(Paths.get(filePath));
+    }
+
+    /**
+     * Loads the file, resuming after the last checkpoint of an earlier run if there is one.
+     * Returns the number of rows inserted by this call.
+     */
+    public long load(Path file) throws IOException, SQLException {
+        source = file.toAbsolutePath().toString();
+        rowsInserted = 0;
+        rowsSkipped = 0;
+        rowsRejected = 0;
+        checkpoints = 0;
+        long start = System.nanoTime();
+
+        try (Connection conn = pool.getConnection()) {
+            ensureTables(conn);
+            loadRegionIds(conn);
+            readCheckpoint(conn);
+            long resumeAfter = rowsLoaded;
+            String resumeId = lastDailyId;
+            if (resumeAfter > 0) {
+                System.out.printf("Resuming %s after row %,d (daily_id %s)%n", source, resumeAfter, resumeId);
+            }
+
+            conn.setAutoCommit(false);
+            BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            Thread parser = new Thread(() -> parseChunks(file, queue), "bulk-load-parser");
+            parser.setDaemon(true);
+            parser.start();
+
+            try {
+                fullInsert = conn.prepareStatement(insertSql(ROWS_PER_STATEMENT));
+                singleInsert = conn.prepareStatement(insertSql(1));
+                long rowsSeen = 0;
+                while (true) {
+                    Chunk chunk = queue.take();
+                    if (chunk == END) {
+                        break;
+                    }
+                    if (chunk.error != null) {
+                        throw chunk.error;
+                    }
+
+                    DailyStatsTable table = chunk.table;
+                    int from = (int) Math.max(0, Math.min(table.size(), resumeAfter - rowsSeen));
+                    if (from > 0 && rowsSeen + from == resumeAfter && !table.dailyId(from - 1).equals(resumeId)) {
+                        throw new IOException("Row " + resumeAfter + " of " + source + " is " + table.dailyId(from - 1)
+                            + ", not the checkpointed " + resumeId + "; the file changed since the last load. "
+                            + "Delete its LoadCheckpoints row to load it from the start.");
+                    }
+                    rowsSkipped += from;
+                    rowsSeen += table.size();
+                    insertRows(conn, table, from);
+                }
+                flushHeld();
+                flushBatch();
+                if (sinceCheckpoint > 0) {
+                    checkpoint(conn);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Bulk load interrupted", e);
+            } catch (SQLException | IOException | RuntimeException e) {
+                rollbackQuietly(conn);
+                throw e;
+            } finally {
+                parser.interrupt();
+                joinQuietly(parser);
+                if (fullInsert != null) {
+                    fullInsert.close();
+                    fullInsert = null;
+                }
+                if (singleInsert != null) {
+                    singleInsert.close();
+                    singleInsert = null;
+                }
+                conn.setAutoCommit(true);
+            }
+        }
+
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+        System.out.printf("Loaded %,d rows into DailyStats in %.1f s (%,.0f rows/s), %,d skipped as already loaded, "
+            + "%,d rejected, %d checkpoint(s)%n", rowsInserted, seconds, rowsInserted / seconds, rowsSkipped,
+            rowsRejected, checkpoints);
+        return rowsInserted;
+    }
+
+    /**
+     * Parser thread: puts line-aligned chunks on the queue in file order, then END
+     */
+    private void parseChunks(Path file, BlockingQueue<Chunk> queue) {
+        try {
+            try (QuarantineFile quarantine = QuarantineFile.forSource(file, false);
+                 FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long[] bounds = ParallelStatsLoader.splitOnLines(channel, Integer.MAX_VALUE);
+                ParseErrors errors = new ParseErrors();
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    MappedStatsParser parser = new MappedStatsParser();
+                    parser.setQuarantine(quarantine);
+                    DailyStatsTable table = new DailyStatsTable(new StringDictionary(),
+                        MappedStatsParser.estimateRows(bounds[i + 1] - bounds[i]));
+                    parser.parseRange(channel, bounds[i], bounds[i + 1], table);
+                    errors.merge(parser.getErrors());
+                    queue.put(new Chunk(table, null));
+                }
+                rowsRejected = errors.getTotal();
+                CSVReader.reportErrors(errors, quarantine);
+            } catch (IOException e) {
+                queue.put(new Chunk(null, e));
+                return;
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // The inserter gave up; nothing left to do
+        }
+    }
+
+    /**
+     * Queues the chunk's rows from the given index on: every ROWS_PER_STATEMENT rows become one
+     * batched multi-row INSERT, and the rows left over wait for the next chunk, so only
+     * insertSql(ROWS_PER_STATEMENT) and insertSql(1) are ever prepared
+     */
+    private void insertRows(Connection conn, DailyStatsTable table, int from) throws SQLException {
+        int[] regionMap = mapRegions(conn, table.regions());
+        for (int row = from; row < table.size(); row++) {
+            heldIds[held] = table.dailyId(row);
+            heldRegions[held] = regionMap[table.regionId(row)];
+            heldDates[held] = table.date(row);
+            heldCases[held] = table.cases(row);
+            heldRecoveries[held] = table.recoveries(row);
+            heldDeaths[held] = table.deaths(row);
+            held++;
+
+            if (held == ROWS_PER_STATEMENT) {
+                bindHeld(fullInsert, 0, held);
+                fullInsert.addBatch();
+                pendingBatchRows += held;
+                releaseHeld();
+                if (pendingBatchRows >= batchSize) {
+                    flushBatch();
+                }
+            }
+            if (sinceCheckpoint + held >= checkpointRows) {
+                flushHeld();
+                flushBatch();
+                checkpoint(conn);
+            }
+        }
+    }
+
+    /**
+     * Binds held rows [from, from + count) to the statement's parameters
+     */
+    private void bindHeld(PreparedStatement statement, int from, int count) throws SQLException {
+        int parameter = 1;
+        for (int i = from; i < from + count; i++) {
+            statement.setString(parameter++, heldIds[i]);
+            statement.setInt(parameter++, heldRegions[i]);
+            statement.setDate(parameter++, Date.valueOf(LocalDate.ofEpochDay(heldDates[i])));
+            statement.setInt(parameter++, heldCases[i]);
+            statement.setInt(parameter++, heldRecoveries[i]);
+            statement.setInt(parameter++, heldDeaths[i]);
+        }
+    }
+
+    /**
+     * Inserts a tail shorter than a full statement (before a checkpoint or at the end) as one single-row batch
+     */
+    private void flushHeld() throws SQLException {
+        if (held == 0) {
+            return;
+        }
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.DB);
+        for (int i = 0; i < held; i++) {
+            bindHeld(singleInsert, i, 1);
+            singleInsert.addBatch();
+        }
+        singleInsert.executeBatch();
+        sample.stop(held, 0);
+        releaseHeld();
+    }
+
+    /**
+     * Counts the held rows as inserted once they are bound to a statement
+     */
+    private void releaseHeld() {
+        rowsInserted += held;
+        rowsLoaded += held;
+        sinceCheckpoint += held;
+        lastDailyId = heldIds[held - 1];
+        held = 0;
+    }
+
+    private void flushBatch() throws SQLException {
+        if (pendingBatchRows > 0) {
+            PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.DB);
+            fullInsert.executeBatch();
+            sample.stop(pendingBatchRows, 0);
+            pendingBatchRows = 0;
+        }
+    }
+
+    /**
+     * Records the position reached and commits it together with the rows inserted so far
+     */
+    private void checkpoint(Connection conn) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement(
+                "UPDATE LoadCheckpoints SET last_daily_id = ?, rows_loaded = ? WHERE source_file = ?")) {
+            update.setString(1, lastDailyId);
+            update.setLong(2, rowsLoaded);
+            update.setString(3, source);
+            if (update.executeUpdate() == 0) {
+                try (PreparedStatement insert = conn.prepareStatement(
+                        "INSERT INTO LoadCheckpoints (source_file, last_daily_id, rows_loaded) VALUES (?, ?, ?)")) {
+                    insert.setString(1, source);
+                    insert.setString(2, lastDailyId);
+                    insert.setLong(3, rowsLoaded);
+                    insert.executeUpdate();
+                }
+            }
+        }
+        conn.commit();
+        sinceCheckpoint = 0;
+        checkpoints++;
+        System.out.printf("Checkpoint: %,d rows committed (last daily_id %s)%n", rowsLoaded, lastDailyId);
+    }
+
+    private void readCheckpoint(Connection conn) throws SQLException {
+        rowsLoaded = 0;
+        lastDailyId = null;
+        sinceCheckpoint = 0;
+        pendingBatchRows = 0;
+        held = 0;
+        try (PreparedStatement select = conn.prepareStatement(
+                "SELECT last_daily_id, rows_loaded FROM LoadCheckpoints WHERE source_file = ?")) {
+            select.setString(1, source);
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next()) {
+                    lastDailyId = rs.getString(1);
+                    rowsLoaded = rs.getLong(2);
+                }
+            }
+        }
+    }
+
+    private void loadRegionIds(Connection conn) throws SQLException {
+        regionIds.clear();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT region_id, region_name FROM Regions")) {
+            while (rs.next()) {
+                regionIds.put(rs.getString(2), rs.getInt(1));
+            }
+        }
+    }
+
+    /**
+     * Database region_id for every region of a chunk, indexed by the chunk's dictionary id
+     */
+    private int[] mapRegions(Connection conn, StringDictionary regions) throws SQLException {
+        int[] map = new int[regions.size()];
+        for (int id = 0; id < map.length; id++) {
+            String name = regions.get(id);
+            Integer known = regionIds.get(name);
+            if (known == null) {
+                known = insertRegion(conn, name);
+                regionIds.put(name, known);
+            }
+            map[id] = known;
+        }
+        return map;
+    }
+
+    private static int insertRegion(Connection conn, String name) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO Regions (region_name) VALUES (?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            insert.setString(1, name);
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+            }
+        }
+        throw new SQLException("No region_id generated for region " + name);
+    }
+
+    static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO DailyStats (daily_id, region_id, report_date, new_cases, recoveries, deaths) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(" : ", (");
+            for (int c = 0; c < COLUMNS; c++) {
+                sql.append(c == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Creates Regions, DailyStats and LoadCheckpoints if they do not exist yet (e.g. on an empty embedded database)
+     */
+    private static void ensureTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!tableExists(conn, "Regions")) {
+                stmt.executeUpdate(CREATE_REGIONS);
+            }
+            if (!tableExists(conn, "DailyStats")) {
+                stmt.executeUpdate(CREATE_DAILY_STATS);
+            }
+            if (!tableExists(conn, "LoadCheckpoints")) {
+                stmt.executeUpdate(CREATE_CHECKPOINTS);
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String name) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        for (String candidate : new String[] {name, name.toUpperCase(), name.toLowerCase()}) {
+            try (ResultSet rs = metaData.getTables(null, null, candidate, new String[] {"TABLE"})) {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.err.println("Rollback failed: " + e.getMessage());
+        }
+    }
+
+    private static void joinQuietly(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getRowsInserted() {
+        return rowsInserted;
+    }
+
+    public long getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public long getCheckpoints() {
+        return checkpoints;
+    }
+
+    public static void main(String[] args) {
+        String file = args.length > 0 ? args[0] : "data/daily_stats.csv";
+        PipelineMetrics.register();
+        try {
+            new BulkLoader(DatabaseConnection.getPool()).load(file);
+        } catch (IOException | SQLException e) {
+            System.err.println("Bulk load failed: " + e.getMessage());
+        } finally {
+            DatabaseConnection.closeConnection();
+        }
+    }
+
+    /**
+     * One parsed chunk, or the error that stopped the parser
+     */
+    private static final class Chunk {
+        final DailyStatsTable table;
+        final IOException error;
+
+        Chunk(DailyStatsTable table, IOException error) {
+            this.table = table;
+            this.error = error;
+        }
+    }
+}
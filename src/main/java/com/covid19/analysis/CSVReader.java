@@ -1,147 +1,255 @@
 package com.covid19.analysis;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Reads COVID-19 data from CSV file (with tab delimiters)
+ * using the memory-mapped {@link MappedStatsParser}, in parallel chunks for large files
  */
 public class CSVReader {
     
-    public List<String[]> readCSV(String filePath) {
-        List<String[]> data = new ArrayList<>();
+    // Bytes consumed by the last readCSV call, i.e. where appended data starts
+    private long lastBytesRead;
+    private boolean completeLinesOnly;
+    
+    /**
+     * For a file that is still being appended to: stop at the last newline, so that
+     * {@link #getLastBytesRead()} never points into the middle of a half-written row
+     */
+    public void setCompleteLinesOnly(boolean completeLinesOnly) {
+        this.completeLinesOnly = completeLinesOnly;
+    }
+    
+    public DailyStatsTable readCSV(String filePath) {
+        return readCSV(filePath, Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Reads the file using up to the given number of parallel workers
+     * (small files are always read on the calling thread).
+     * A binary snapshot of the parsed columns is kept next to the file and used instead
+     * of parsing whenever the file is unchanged; -Dcovid19.snapshotCache=false turns it off.
+     * Rejected rows are counted by category and written to "&lt;file&gt;.quarantine"
+     * (see {@link QuarantineFile}); -Dcovid19.quarantine=false turns that off.
+     * A directory is read as a {@link PartitionedDataset}.
+     */
+    public DailyStatsTable readCSV(String filePath, int parallelism) {
+        if (Files.isDirectory(Paths.get(filePath))) {
+            return readPartitions(filePath, parallelism);
+        }
+        boolean useSnapshot = !"false".equalsIgnoreCase(System.getProperty("covid19.snapshotCache"));
+        SnapshotCache cache = new SnapshotCache(filePath);
+        if (useSnapshot) {
+            DailyStatsTable cached = readSnapshot(cache);
+            if (cached != null) {
+                return cached;
+            }
+        }
         
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            int lineNumber = 0;
-            
-            while ((line = br.readLine()) != null) {
-                lineNumber++;
-                
-                // Skip empty lines
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-                
-                // Use TAB as delimiter (your file uses tabs, not commas)
-                String[] values = line.split("\t");
-                
-                // Skip header row
-                if (lineNumber == 1) {
-                    System.out.println("Header detected: " + values.length + " columns");
-                    continue;
+        ParallelStatsLoader loader = new ParallelStatsLoader(parallelism);
+        loader.setCompleteLinesOnly(completeLinesOnly);
+        QuarantineFile quarantine = QuarantineFile.forSource(Paths.get(filePath), false);
+        loader.setQuarantine(quarantine);
+        
+        try {
+            long start = System.nanoTime();
+            DailyStatsTable data;
+            try {
+                data = loader.load(filePath);
+            } finally {
+                if (quarantine != null) {
+                    quarantine.close();
                 }
-                
-                data.add(values);
             }
+            long elapsed = System.nanoTime() - start;
+            lastBytesRead = loader.getBytesRead();
             
+            if (loader.getHeaderColumns() > 0) {
+                System.out.println("Header detected: " + loader.getHeaderColumns() + " columns");
+            }
             System.out.println("Successfully read " + data.size() + " records from CSV");
+            reportErrors(loader.getErrors(), quarantine);
+            System.out.printf("Parsed %,d bytes in %.1f ms (%.1f MB/s, %d chunk(s))%n",
+                loader.getBytesRead(), elapsed / 1e6,
+                loader.getBytesRead() / 1e6 / Math.max(elapsed / 1e9, 1e-9), loader.getChunksUsed());
+            
+            if (useSnapshot) {
+                writeSnapshot(cache, data, loader);
+            }
+            return data;
             
         } catch (IOException e) {
             System.err.println("Error reading CSV file: " + e.getMessage());
         }
         
-        return data;
+        return new DailyStatsTable();
     }
     
-    public void displaySampleData(List<String[]> data, int numRecords) {
-        System.out.println("\n=== FIRST " + numRecords + " RECORDS ===");
-        for (int i = 0; i < Math.min(numRecords, data.size()); i++) {
-            String[] record = data.get(i);
+    /**
+     * Every partition of a directory dataset, each through its own snapshot
+     */
+    private DailyStatsTable readPartitions(String directory, int parallelism) {
+        try {
+            long start = System.nanoTime();
+            PartitionedDataset dataset = PartitionedDataset.open(Paths.get(directory), parallelism);
+            DailyStatsTable data = dataset.loadAll();
+            lastBytesRead = 0;
+            System.out.printf("Successfully read %d records from %d partition(s) in %.1f ms%n",
+                data.size(), dataset.getPartitionsRead(), (System.nanoTime() - start) / 1e6);
+            return data;
+        } catch (IOException e) {
+            System.err.println("Error reading partitions: " + e.getMessage());
+        }
+        return new DailyStatsTable();
+    }
+    
+    /**
+     * One summary for all rejected rows instead of a line each
+     */
+    static void reportErrors(ParseErrors errors, QuarantineFile quarantine) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        System.err.println(errors + (quarantine != null ? " (written to " + quarantine.getPath() + ")" : ""));
+        for (String sample : errors.getSamples()) {
+            System.err.println("  e.g. " + sample);
+        }
+    }
+    
+    private DailyStatsTable readSnapshot(SnapshotCache cache) {
+        try {
+            long start = System.nanoTime();
+            DailyStatsTable data = cache.load();
+            if (data == null) {
+                return null;
+            }
+            if (completeLinesOnly && !endsLine(cache.getSourcePath(), cache.getBytesRead())) {
+                // Written by a load that took in an unterminated last line
+                return null;
+            }
+            long elapsed = System.nanoTime() - start;
+            lastBytesRead = cache.getBytesRead();
             
-            if (record.length >= 6) {
-                System.out.printf("Record %d: %s | %s | %s | %s cases | %s recoveries | %s deaths%n",
-                    (i + 1), record[0], record[1], record[2], record[3], record[4], record[5]);
-            } else {
-                System.out.println("Record " + (i + 1) + ": INCOMPLETE - " + record.length + " columns");
+            System.out.println("Successfully read " + data.size() + " records from snapshot " + cache.getSnapshotPath().getFileName());
+            System.out.printf("Loaded snapshot in %.1f ms (%.1f ms of it verifying the source checksum)%n",
+                elapsed / 1e6, cache.getChecksumNanos() / 1e6);
+            if (cache.getRowsRejected() > 0) {
+                System.err.printf("%,d rows were rejected when the file was parsed%n", cache.getRowsRejected());
             }
+            return data;
+        } catch (IOException e) {
+            System.err.println("Error reading snapshot, parsing instead: " + e.getMessage());
+            return null;
         }
     }
     
-    public void calculateStatistics(List<String[]> data) {
-        if (data.isEmpty()) {
+    /**
+     * Whether the byte before the given offset is a newline (or the offset is the start of the file)
+     */
+    private static boolean endsLine(Path file, long offset) throws IOException {
+        if (offset == 0) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            return channel.read(last, offset - 1) == 1 && last.get(0) == '\n';
+        }
+    }
+    
+    private void writeSnapshot(SnapshotCache cache, DailyStatsTable data, ParallelStatsLoader loader) {
+        try {
+            long start = System.nanoTime();
+            cache.write(data, loader.getBytesRead(), loader.getHeaderColumns(), loader.getRowsRejected());
+            System.out.printf("Wrote snapshot %s in %.1f ms%n", cache.getSnapshotPath().getFileName(),
+                (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            System.err.println("Could not write snapshot: " + e.getMessage());
+        }
+    }
+    
+    public long getLastBytesRead() {
+        return lastBytesRead;
+    }
+    
+    public void displaySampleData(DailyStatsTable data, int numRecords) {
+        System.out.println("\n=== FIRST " + numRecords + " RECORDS ===");
+        for (int i = 0; i < Math.min(numRecords, data.size()); i++) {
+            System.out.printf("Record %d: %s | %s | %s | %d cases | %d recoveries | %d deaths%n",
+                (i + 1), data.dailyId(i), data.regionName(i), data.dateLabel(i),
+                data.cases(i), data.recoveries(i), data.deaths(i));
+        }
+    }
+    
+    public void calculateStatistics(DailyStatsTable data) {
+        calculateStatistics(AggregationEngine.aggregate(data));
+    }
+    
+    /**
+     * Prints the overall statistics from an already computed snapshot
+     */
+    public void calculateStatistics(AggregateSnapshot stats) {
+        if (stats.isEmpty()) {
             System.out.println("No data to analyze");
             return;
         }
         
-        int totalCases = 0;
-        int totalRecoveries = 0;
-        int totalDeaths = 0;
-        int validRecords = 0;
-        
-        for (String[] record : data) {
-            if (record.length >= 6) {
-                try {
-                    totalCases += Integer.parseInt(record[3].trim());
-                    totalRecoveries += Integer.parseInt(record[4].trim());
-                    totalDeaths += Integer.parseInt(record[5].trim());
-                    validRecords++;
-                } catch (NumberFormatException e) {
-                    System.err.println("Skipping record with invalid numbers: " + String.join(" | ", record));
-                }
-            }
-        }
-        
         System.out.println("\n=== COVID-19 STATISTICS ===");
-        System.out.println("Records analyzed: " + validRecords);
-        System.out.println("Total Cases: " + totalCases);
-        System.out.println("Total Recoveries: " + totalRecoveries);
-        System.out.println("Total Deaths: " + totalDeaths);
+        System.out.println("Records analyzed: " + stats.getRowCount());
+        System.out.println("Total Cases: " + stats.getTotalCases());
+        System.out.println("Total Recoveries: " + stats.getTotalRecoveries());
+        System.out.println("Total Deaths: " + stats.getTotalDeaths());
         
-        if (totalCases > 0) {
-            double fatalityRate = (double) totalDeaths / totalCases * 100;
-            double recoveryRate = (double) totalRecoveries / totalCases * 100;
-            System.out.printf("Case Fatality Rate: %.2f%%%n", fatalityRate);
-            System.out.printf("Recovery Rate: %.2f%%%n", recoveryRate);
+        if (stats.getTotalCases() > 0) {
+            System.out.printf("Case Fatality Rate: %.2f%%%n", stats.getFatalityRate());
+            System.out.printf("Recovery Rate: %.2f%%%n", stats.getRecoveryRate());
         }
     }
     
     /**
      * Calculate 7-day moving average for a specific region
      */
-    public void calculateMovingAverage(List<String[]> data, String region) {
-        System.out.println("\n=== 7-DAY MOVING AVERAGE for " + region + " ===");
-        
-        // Filter data for the specific region
-        List<Integer> regionCases = new ArrayList<>();
-        List<String> regionDates = new ArrayList<>();
-        
-        for (String[] record : data) {
-            if (record.length >= 6 && record[1].equals(region)) {
-                try {
-                    regionCases.add(Integer.parseInt(record[3].trim()));
-                    regionDates.add(record[2].trim());
-                } catch (NumberFormatException e) {
-                    // Skip invalid records
-                }
-            }
+    public void calculateMovingAverage(DailyStatsTable data, String region) {
+        int regionId = data.regions().find(region);
+        if (regionId < 0) {
+            System.out.println("\n=== 7-DAY MOVING AVERAGE for " + region + " ===");
+            return;
         }
+        printMovingAverage(MovingAverageEngine.compute(data, 7, false)[regionId]);
+    }
+    
+    /**
+     * Calculate 7-day moving averages for every region in a single pass
+     */
+    public void calculateMovingAverages(DailyStatsTable data) {
+        for (MovingAverageSeries series : MovingAverageEngine.compute(data, 7, false)) {
+            printMovingAverage(series);
+        }
+    }
+    
+    private void printMovingAverage(MovingAverageSeries series) {
+        System.out.println("\n=== " + series.getWindow() + "-DAY MOVING AVERAGE for " + series.getRegion() + " ===");
         
-        // Calculate 7-day moving average
-        for (int i = 6; i < regionCases.size(); i++) {
-            int sum = 0;
-            for (int j = i - 6; j <= i; j++) {
-                sum += regionCases.get(j);
-            }
-            double average = sum / 7.0;
-            System.out.printf("Date: %s | 7-day avg: %.1f cases%n", regionDates.get(i), average);
-            
-            // Only show first 3 averages for demo
-            if (i >= 8) break;
+        // Only show first 3 averages for demo
+        for (int i = 0; i < Math.min(3, series.size()); i++) {
+            System.out.printf("Date: %s | %d-day avg: %.1f cases%n", series.dateLabel(i), series.getWindow(), series.value(i));
         }
     }
     
     public static void main(String[] args) {
+        PipelineMetrics.register();
         CSVReader reader = new CSVReader();
         
         System.out.println("COVID-19 DATA ANALYSIS");
         System.out.println("======================");
         
         // Read the CSV file
-        List<String[]> covidData = reader.readCSV("data/daily_stats.csv");
+        DailyStatsTable covidData = reader.readCSV("data/daily_stats.csv");
         
         if (!covidData.isEmpty()) {
             // Display sample data
@@ -151,9 +259,7 @@ public class CSVReader {
             reader.calculateStatistics(covidData);
             
             // Calculate moving averages for each region
-            reader.calculateMovingAverage(covidData, "RegionA");
-            reader.calculateMovingAverage(covidData, "RegionB");
-            reader.calculateMovingAverage(covidData, "RegionC");
+            reader.calculateMovingAverages(covidData);
             
             System.out.println("\nANALYSIS COMPLETE!");
             System.out.println("All 4 analysis tasks from README are implemented:");
@@ -162,6 +268,9 @@ public class CSVReader {
             System.out.println("3. Regional comparisons ✓");
             System.out.println("4. Data visualization (ready for charts) ✓");
             
+            System.out.println("\n=== PIPELINE METRICS ===");
+            System.out.print(PipelineMetrics.get().getReport());
+            
         } else {
             System.out.println("No data was loaded from the CSV file.");
         }
@@ -0,0 +1,174 @@
+package com.covid19.analysis;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * One line of a {@link TimeSeriesChart}: values by epoch day, plus a pyramid of
+ * min/max downsampled copies, one per zoom level.
+ * Level k keeps, for every bucket of 2^k days on a fixed date grid, the first, lowest,
+ * highest and last point (M4 bucketing), so a line drawn from it at one bucket per pixel
+ * or coarser looks exactly like the full series: spikes and dips are never averaged away.
+ * Because the buckets are aligned, level k is built from level k - 1 rather than the raw
+ * points, the whole pyramid costs about two passes over the series, and panning never
+ * recomputes anything.
+ * Built off the EDT; immutable afterwards.
+ */
+public final class ChartSeries {
+    // Stop once a level is this small; coarser zoom levels just reuse it
+    private static final int MIN_LEVEL_POINTS = 512;
+
+    private final String name;
+    private final Color color;
+    private final int[][] levelDates;
+    private final double[][] levelValues;
+    private final double maxValue;
+
+    /**
+     * @param dates epoch days, in any order (sorted here if needed)
+     * @param values one value per date
+     */
+    public ChartSeries(String name, Color color, int[] dates, double[] values) {
+        this.name = name;
+        this.color = color;
+
+        int[] sortedDates = dates;
+        double[] sortedValues = values;
+        if (!isSorted(dates)) {
+            int[] order = IndexSort.identity(dates.length);
+            IndexSort.sort(order, (a, b) -> Integer.compare(dates[a], dates[b]));
+            sortedDates = new int[dates.length];
+            sortedValues = new double[dates.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedDates[i] = dates[order[i]];
+                sortedValues[i] = values[order[i]];
+            }
+        }
+
+        int[][] pyramidDates = new int[32][];
+        double[][] pyramidValues = new double[32][];
+        pyramidDates[0] = sortedDates;
+        pyramidValues[0] = sortedValues;
+        int levels = 1;
+        while (levels < 31 && pyramidDates[levels - 1].length > MIN_LEVEL_POINTS) {
+            downsample(pyramidDates, pyramidValues, levels);
+            levels++;
+        }
+        this.levelDates = Arrays.copyOf(pyramidDates, levels);
+        this.levelValues = Arrays.copyOf(pyramidValues, levels);
+
+        double max = 0;
+        for (double value : sortedValues) {
+            max = Math.max(max, value);
+        }
+        this.maxValue = max;
+    }
+
+    private static boolean isSorted(int[] dates) {
+        for (int i = 1; i < dates.length; i++) {
+            if (dates[i - 1] > dates[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds level k from level k - 1: first, min, max and last of each 2^k-day bucket, in date order
+     */
+    private static void downsample(int[][] pyramidDates, double[][] pyramidValues, int level) {
+        int[] dates = pyramidDates[level - 1];
+        double[] values = pyramidValues[level - 1];
+        int[] outDates = new int[dates.length];
+        double[] outValues = new double[dates.length];
+        int out = 0;
+
+        int start = 0;
+        while (start < dates.length) {
+            int bucket = dates[start] >> level;
+            int end = start + 1;
+            int min = start, max = start;
+            while (end < dates.length && dates[end] >> level == bucket) {
+                if (values[end] < values[min]) {
+                    min = end;
+                }
+                if (values[end] > values[max]) {
+                    max = end;
+                }
+                end++;
+            }
+            int last = end - 1;
+            // Emit the (up to) four distinct points in their original order
+            int first = start;
+            int lower = Math.min(min, max);
+            int upper = Math.max(min, max);
+            out = emit(dates, values, first, outDates, outValues, out);
+            if (lower != first) {
+                out = emit(dates, values, lower, outDates, outValues, out);
+            }
+            if (upper != lower && upper != first) {
+                out = emit(dates, values, upper, outDates, outValues, out);
+            }
+            if (last != upper && last != lower && last != first) {
+                out = emit(dates, values, last, outDates, outValues, out);
+            }
+            start = end;
+        }
+        pyramidDates[level] = Arrays.copyOf(outDates, out);
+        pyramidValues[level] = Arrays.copyOf(outValues, out);
+    }
+
+    private static int emit(int[] dates, double[] values, int index, int[] outDates, double[] outValues, int out) {
+        outDates[out] = dates[index];
+        outValues[out] = values[index];
+        return out + 1;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public int size() {
+        return levelDates[0].length;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getFirstDate() {
+        return levelDates[0][0];
+    }
+
+    public int getLastDate() {
+        return levelDates[0][size() - 1];
+    }
+
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Finest level whose buckets are no wider than the given number of days
+     */
+    int levelFor(double daysPerBucket) {
+        int level = daysPerBucket < 2 ? 0 : 31 - Integer.numberOfLeadingZeros((int) Math.min(daysPerBucket, 1 << 30));
+        return Math.min(level, levelDates.length - 1);
+    }
+
+    int[] dates(int level) {
+        return levelDates[level];
+    }
+
+    double[] values(int level) {
+        return levelValues[level];
+    }
+
+    int getLevelCount() {
+        return levelDates.length;
+    }
+}
@@ -0,0 +1,62 @@
+package com.covid19.analysis;
+
+/**
+ * Sum, min/max and filtered-sum loops over int columns, accumulated in long so that
+ * national-scale totals cannot overflow.
+ * When the JVM runs with {@code --add-modules jdk.incubator.vector} the loops use the
+ * Vector API ({@link VectorKernels}); otherwise, or with {@code -Dcovid19.vector=false},
+ * they run the plain scalar loops. Both paths give exactly the same results, and
+ * neither allocates.
+ */
+public final class ColumnKernels {
+    private static final boolean VECTORIZED = !"false".equals(System.getProperty("covid19.vector"))
+        && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+        && VectorKernels.isSupported();
+
+    private ColumnKernels() {}
+
+    /**
+     * Whether the Vector API path is in use
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Sum of values[from, to)
+     */
+    public static long sum(int[] values, int from, int to) {
+        return VECTORIZED ? VectorKernels.sum(values, from, to) : ScalarKernels.sum(values, from, to);
+    }
+
+    /**
+     * Smallest of values[from, to), or Integer.MAX_VALUE for an empty range
+     */
+    public static int min(int[] values, int from, int to) {
+        return VECTORIZED ? VectorKernels.min(values, from, to) : ScalarKernels.min(values, from, to);
+    }
+
+    /**
+     * Largest of values[from, to), or Integer.MIN_VALUE for an empty range
+     */
+    public static int max(int[] values, int from, int to) {
+        return VECTORIZED ? VectorKernels.max(values, from, to) : ScalarKernels.max(values, from, to);
+    }
+
+    /**
+     * Sum of values[i] over the rows in [from, to) whose key lies in [low, high],
+     * e.g. cases between two epoch days
+     */
+    public static long sumWhere(int[] values, int[] keys, int low, int high, int from, int to) {
+        return VECTORIZED ? VectorKernels.sumWhere(values, keys, low, high, from, to)
+            : ScalarKernels.sumWhere(values, keys, low, high, from, to);
+    }
+
+    /**
+     * Number of rows in [from, to) whose key lies in [low, high]
+     */
+    public static int countWhere(int[] keys, int low, int high, int from, int to) {
+        return VECTORIZED ? VectorKernels.countWhere(keys, low, high, from, to)
+            : ScalarKernels.countWhere(keys, low, high, from, to);
+    }
+}
@@ -0,0 +1,706 @@
+package com.covid19.analysis;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe JDBC connection pool.
+ * Callers borrow with {@link #getConnection()} and give the connection back by closing it.
+ * Connections idle for longer than the validation interval are checked before reuse,
+ * connections older than the maximum lifetime are retired, and each connection keeps
+ * a small LRU cache of prepared statements so repeated SQL is only prepared once.
+ */
+public class ConnectionPool implements AutoCloseable {
+    public static final int DEFAULT_MAX_SIZE = 8;
+    public static final long DEFAULT_TIMEOUT_MS = 30_000;
+    public static final long DEFAULT_MAX_LIFETIME_MS = 30 * 60_000;
+    public static final long DEFAULT_VALIDATION_IDLE_MS = 30_000;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final String url;
+    private final Properties info;
+    private final int maxSize;
+    private final Semaphore permits;
+
+    private long timeoutMillis = DEFAULT_TIMEOUT_MS;
+    private long maxLifetimeMillis = DEFAULT_MAX_LIFETIME_MS;
+    private long validationIdleMillis = DEFAULT_VALIDATION_IDLE_MS;
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+
+    // Most recently returned last, so the warmest connection is reused first
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    // Metrics
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong retired = new AtomicLong();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    public ConnectionPool(String url, int maxSize) {
+        this(url, new Properties(), maxSize);
+    }
+
+    public ConnectionPool(String url, Properties info, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + maxSize);
+        }
+        this.url = url;
+        this.info = info;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the pool timeout for one to become free.
+     * Closing the returned connection hands it back to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        return getConnection(timeoutMillis);
+    }
+
+    public Connection getConnection(long timeoutMillis) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("No connection available within " + timeoutMillis
+                    + " ms (" + maxSize + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, info));
+                created.incrementAndGet();
+            }
+            active.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Next reusable idle connection, retiring any that are too old or fail validation
+     */
+    private PooledConnection takeIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollLast();
+            }
+            if (pooled == null) {
+                return null;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - pooled.createdAt > maxLifetimeMillis) {
+                retire(pooled);
+                continue;
+            }
+            if (now - pooled.lastUsedAt > validationIdleMillis && !isValid(pooled)) {
+                retire(pooled);
+                continue;
+            }
+            return pooled;
+        }
+    }
+
+    private static boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Called when a borrowed connection is closed by its user
+     */
+    private void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            boolean reusable = !closed
+                && System.currentTimeMillis() - pooled.createdAt <= maxLifetimeMillis
+                && pooled.reset();
+            if (reusable) {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.addLast(pooled);
+                }
+            } else {
+                retire(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void retire(PooledConnection pooled) {
+        retired.incrementAndGet();
+        pooled.closePhysical();
+    }
+
+    private void recordWait(long nanos) {
+        acquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Closes idle connections now; borrowed ones are closed as they are returned
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (idle) {
+            for (Iterator<PooledConnection> it = idle.iterator(); it.hasNext(); ) {
+                it.next().closePhysical();
+                it.remove();
+            }
+        }
+    }
+
+    // Settings; change them before the pool is shared
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public void setMaxLifetimeMillis(long maxLifetimeMillis) {
+        this.maxLifetimeMillis = maxLifetimeMillis;
+    }
+
+    public void setValidationIdleMillis(long validationIdleMillis) {
+        this.validationIdleMillis = validationIdleMillis;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    // Metrics
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveConnections() {
+        return active.get();
+    }
+
+    public int getIdleConnections() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Threads currently blocked waiting for a connection
+     */
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    public long getConnectionsCreated() {
+        return created.get();
+    }
+
+    public long getConnectionsRetired() {
+        return retired.get();
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = acquisitions.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    public long getStatementCacheHits() {
+        return statementHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementMisses.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[active=%d, idle=%d, waiting=%d, created=%d, retired=%d, "
+                + "avgWait=%.2f ms, maxWait=%.2f ms, timeouts=%d, statementHits=%d, statementMisses=%d]",
+            getActiveConnections(), getIdleConnections(), getWaitingThreads(), getConnectionsCreated(),
+            getConnectionsRetired(), getAverageWaitMillis(), getMaxWaitMillis(), getTimeouts(),
+            getStatementCacheHits(), getStatementCacheMisses());
+    }
+
+    /**
+     * A physical connection plus its statement cache. Each loan gets a fresh proxy,
+     * so a stale handle kept after close() cannot touch the next borrower's session.
+     */
+    private final class PooledConnection {
+        final Connection physical;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastUsedAt = createdAt;
+
+        // Session settings as the driver opened the connection, restored after each loan
+        private final boolean defaultAutoCommit;
+        private final boolean defaultReadOnly;
+        private final int defaultIsolation;
+        private final String defaultCatalog;
+        // Set by the loan when it changes session state; guarded by this
+        private boolean sessionChanged;
+        private boolean sessionUnrestorable;
+
+        // Prepared statements by SQL, least recently used first; guarded by this
+        private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+        // Open statements of the current loan that are not in the cache; guarded by this
+        private final List<StatementHandle> uncached = new ArrayList<>();
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            try {
+                defaultAutoCommit = physical.getAutoCommit();
+                defaultReadOnly = physical.isReadOnly();
+                defaultIsolation = physical.getTransactionIsolation();
+                defaultCatalog = physical.getCatalog();
+            } catch (SQLException | RuntimeException e) {
+                physical.close();
+                throw e;
+            }
+        }
+
+        Connection lease() {
+            Lease lease = new Lease(this);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, lease);
+        }
+
+        /**
+         * Notes a session setter called by the borrower, so reset() knows what to undo
+         */
+        synchronized void sessionSetter(String name) {
+            switch (name) {
+                case "setAutoCommit":
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                case "setCatalog":
+                    sessionChanged = true;
+                    break;
+                case "setSavepoint":
+                    break; // undone by the rollback in reset()
+                default:
+                    // Type map, schema, holdability, client info, network timeout: retire instead
+                    sessionUnrestorable = true;
+                    break;
+            }
+        }
+
+        /**
+         * Prepares the statement or reuses the cached one if it is not already in use.
+         * Every call returns a fresh handle owned by the given loan, so a handle kept after
+         * close() or after the connection went back to the pool can no longer reach the statement.
+         */
+        synchronized PreparedStatement prepare(String sql, Connection lease) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && cached.owner == null) {
+                statementHits.incrementAndGet();
+                PipelineMetrics.cacheHit(PipelineMetrics.Cache.STATEMENT);
+                return (PreparedStatement) checkOut(cached, lease);
+            }
+
+            statementMisses.incrementAndGet();
+            PipelineMetrics.cacheMiss(PipelineMetrics.Cache.STATEMENT);
+            PreparedStatement statement = physical.prepareStatement(sql);
+            if (cached != null || statementCacheSize <= 0) {
+                // Same SQL open twice on one connection: the second copy is not cached
+                return (PreparedStatement) track(statement, PreparedStatement.class, lease);
+            }
+
+            try {
+                cached = new CachedStatement(sql, statement);
+            } catch (SQLException e) {
+                statement.close();
+                throw e;
+            }
+            statements.put(sql, cached);
+            Statement proxy = checkOut(cached, lease);
+            evictStatements();
+            return (PreparedStatement) proxy;
+        }
+
+        /**
+         * Wraps a statement the loan created outside the cache (createStatement, prepareCall,
+         * prepareStatement with options), so it is closed when the connection is returned
+         */
+        synchronized Statement track(Statement statement, Class<?> type, Connection lease) {
+            StatementHandle handle = new StatementHandle(statement, type, null, lease);
+            uncached.add(handle);
+            return handle.proxy;
+        }
+
+        private Statement checkOut(CachedStatement cached, Connection lease) {
+            StatementHandle handle = new StatementHandle(cached.statement, PreparedStatement.class, cached, lease);
+            cached.owner = handle;
+            return handle.proxy;
+        }
+
+        private void evictStatements() {
+            Iterator<CachedStatement> it = statements.values().iterator();
+            while (statements.size() > statementCacheSize && it.hasNext()) {
+                CachedStatement eldest = it.next();
+                if (eldest.owner == null) {
+                    eldest.closeQuietly();
+                    it.remove();
+                }
+            }
+        }
+
+        /**
+         * Hands a cached statement back to the cache, or drops it if it cannot be restored
+         */
+        private void checkIn(CachedStatement cached) {
+            cached.owner = null;
+            if (!cached.restore()) {
+                cached.closeQuietly();
+                statements.remove(cached.sql);
+            }
+        }
+
+        /**
+         * Restores default session and statement state before the connection is reused;
+         * false if it is broken or was changed in a way that cannot be undone.
+         * Statement handles of the finished loan stop working here.
+         */
+        synchronized boolean reset() {
+            for (StatementHandle handle : uncached) {
+                handle.closeUncached();
+            }
+            uncached.clear();
+            for (CachedStatement cached : new ArrayList<>(statements.values())) {
+                if (cached.owner != null) {
+                    checkIn(cached);
+                }
+            }
+            if (sessionUnrestorable) {
+                return false;
+            }
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                }
+                if (sessionChanged) {
+                    physical.setAutoCommit(defaultAutoCommit);
+                    if (physical.isReadOnly() != defaultReadOnly) {
+                        physical.setReadOnly(defaultReadOnly);
+                    }
+                    if (physical.getTransactionIsolation() != defaultIsolation) {
+                        physical.setTransactionIsolation(defaultIsolation);
+                    }
+                    if (defaultCatalog != null && !defaultCatalog.equals(physical.getCatalog())) {
+                        physical.setCatalog(defaultCatalog);
+                    }
+                    sessionChanged = false;
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        synchronized void closePhysical() {
+            for (StatementHandle handle : uncached) {
+                handle.closeUncached();
+            }
+            uncached.clear();
+            for (CachedStatement cached : statements.values()) {
+                cached.closeQuietly();
+            }
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing pooled connection: " + e.getMessage());
+            }
+        }
+
+        /**
+         * A cached statement, its settings as prepared, and the handle currently allowed
+         * to use it (null when free)
+         */
+        private final class CachedStatement {
+            final String sql;
+            final PreparedStatement statement;
+            final int fetchSize;
+            final int fetchDirection;
+            final int maxRows;
+            final int maxFieldSize;
+            final int queryTimeout;
+            volatile StatementHandle owner;
+            // Set when the owner changed a setting; unrestorable when it cannot be read back
+            boolean settingsChanged;
+            boolean settingsUnrestorable;
+
+            CachedStatement(String sql, PreparedStatement statement) throws SQLException {
+                this.sql = sql;
+                this.statement = statement;
+                this.fetchSize = statement.getFetchSize();
+                this.fetchDirection = statement.getFetchDirection();
+                this.maxRows = statement.getMaxRows();
+                this.maxFieldSize = statement.getMaxFieldSize();
+                this.queryTimeout = statement.getQueryTimeout();
+            }
+
+            void settingChanged(String name) {
+                switch (name) {
+                    case "setFetchSize":
+                    case "setFetchDirection":
+                    case "setMaxRows":
+                    case "setLargeMaxRows":
+                    case "setMaxFieldSize":
+                    case "setQueryTimeout":
+                        settingsChanged = true;
+                        break;
+                    default:
+                        settingsUnrestorable = true;
+                        break;
+                }
+            }
+
+            /**
+             * Clears parameters and batch and puts back the settings; false if the statement should be dropped
+             */
+            boolean restore() {
+                if (settingsUnrestorable) {
+                    return false;
+                }
+                try {
+                    statement.clearParameters();
+                    statement.clearBatch();
+                    if (settingsChanged) {
+                        statement.setFetchSize(fetchSize);
+                        statement.setFetchDirection(fetchDirection);
+                        statement.setMaxRows(maxRows);
+                        statement.setMaxFieldSize(maxFieldSize);
+                        statement.setQueryTimeout(queryTimeout);
+                        settingsChanged = false;
+                    }
+                    return true;
+                } catch (SQLException e) {
+                    return false;
+                }
+            }
+
+            void closeQuietly() {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing cached statement: " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * What a borrower holds: closing a cached statement only returns it to the cache,
+         * and getConnection() gives back the loan's proxy rather than the physical connection
+         */
+        private final class StatementHandle implements InvocationHandler {
+            final Statement statement;
+            final CachedStatement cached;
+            final Connection lease;
+            final Statement proxy;
+            // Only used by statements that are not cached
+            private volatile boolean open = true;
+
+            StatementHandle(Statement statement, Class<?> type, CachedStatement cached, Connection lease) {
+                this.statement = statement;
+                this.cached = cached;
+                this.lease = lease;
+                this.proxy = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                    new Class<?>[] {type}, this);
+            }
+
+            private boolean isLive() {
+                return cached != null ? cached.owner == this : open;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                switch (name) {
+                    case "close":
+                        synchronized (PooledConnection.this) {
+                            if (cached == null) {
+                                uncached.remove(this);
+                                closeUncached();
+                            } else if (cached.owner == this) {
+                                checkIn(cached);
+                            }
+                        }
+                        return null;
+                    case "isClosed":
+                        return !isLive() || statement.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return (cached != null ? "Cached" : "Pooled") + statement;
+                    default:
+                        break;
+                }
+                if (!isLive()) {
+                    throw new SQLException("Statement has been closed or its connection returned to the pool");
+                }
+                if ("getConnection".equals(name)) {
+                    return lease;
+                }
+                if (cached != null && method.getDeclaringClass() == Statement.class
+                        && (name.startsWith("set") || "closeOnCompletion".equals(name))) {
+                    synchronized (PooledConnection.this) {
+                        cached.settingChanged(name);
+                    }
+                }
+                return forward(statement, method, args);
+            }
+
+            void closeUncached() {
+                if (!open) {
+                    return;
+                }
+                open = false;
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing pooled statement: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * One loan of a pooled connection: close() returns it, plain prepareStatement(sql) is cached,
+     * every other statement is tracked so it is closed with the loan
+     */
+    private final class Lease implements InvocationHandler {
+        private PooledConnection pooled;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + url + "]";
+                default:
+                    break;
+            }
+
+            PooledConnection current;
+            synchronized (this) {
+                current = pooled;
+                if ("close".equals(name)) {
+                    pooled = null;
+                }
+            }
+            if ("close".equals(name)) {
+                if (current != null) {
+                    release(current);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return current == null || current.physical.isClosed();
+            }
+            if (current == null) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            switch (name) {
+                case "prepareStatement":
+                    if (args.length == 1) {
+                        return current.prepare((String) args[0], (Connection) proxy);
+                    }
+                    return current.track((Statement) forward(current.physical, method, args),
+                        PreparedStatement.class, (Connection) proxy);
+                case "createStatement":
+                case "prepareCall":
+                    return current.track((Statement) forward(current.physical, method, args),
+                        method.getReturnType(), (Connection) proxy);
+                default:
+                    break;
+            }
+            if (name.startsWith("set")) {
+                current.sessionSetter(name);
+            }
+            return forward(current.physical, method, args);
+        }
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -4,30 +4,379 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Enhanced COVID-19 Data Analysis GUI with Interactive Features
  */
 public class CovidAnalysisGUI extends JFrame {
+    private static final String DATA_FILE = "data/daily_stats.csv";
+    private static final String ALL_REGIONS = "All regions";
+    private static final String DATABASE_MODE = "database";
+    private static final String EXPORT_ROWS = "Raw rows";
+    private static final String EXPORT_REGIONS = "Region totals";
+    private static final String EXPORT_AVERAGES = "Moving averages";
+    
+    // Peak report: top days per region, and how far cases must rise and fall (over how many days) to count as a wave
+    private static final int PEAK_TOP_K = 3;
+    private static final double PEAK_PROMINENCE = 100;
+    private static final int PEAK_SEPARATION_DAYS = 14;
+    
+    // Outbreak alerts listed in the Analysis tab and echoed to the log per update
+    private static final int ALERTS_SHOWN = 200;
+    private static final int ALERTS_LOGGED = 20;
+    
+    // Growth forecasts: fitted over each region's last three weeks, projected one week ahead
+    private static final int FORECAST_WINDOW = 21;
+    private static final int FORECAST_HORIZON = 7;
+    private static final int FORECASTS_SHOWN = 200;
+    
+    // Chart line colors
+    private static final Color CASES_COLOR = new Color(52, 152, 219);
+    private static final Color RECOVERIES_COLOR = new Color(46, 204, 113);
+    private static final Color DEATHS_COLOR = new Color(231, 76, 60);
+    private static final Color AVERAGE_COLOR = new Color(142, 68, 173);
+    
     private CSVReader csvReader;
-    private List<String[]> covidData;
+    
+    // Loaded rows plus the incremental aggregates, moving averages and time index.
+    // Only ever touched on the analysis worker thread (see AnalysisTaskRunner).
+    private LiveDataset dataset;
+    
+    // Cached single-pass aggregates; immutable, so the EDT can read the latest one freely
+    private AggregateSnapshot snapshot;
+    
+    // Picks up rows appended to the data file while the dashboard is open
+    private StatsFileWatcher fileWatcher;
+    
+    // Runs loads and analyses in the background
+    private AnalysisTaskRunner taskRunner;
+    
+    // Database analyses (worker thread only); created on first use
+    private DatabaseBackend databaseBackend;
+    
+    // Whether the data file has been loaded into memory (EDT)
+    private boolean dataLoaded;
     
     // GUI Components
     private JTabbedPane tabbedPane;
     private JTextArea resultsArea;
     private JTable dataTable;
+    private DailyStatsTableModel dataModel;
+    private JTextField dataFilterField;
+    private JLabel dataCountLabel;
+    private JComboBox<String> exportBox;
+    private JTextArea statsArea;
+    private JLabel statusLabel;
+    private JProgressBar progressBar;
+    private JComboBox<String> backendBox;
+    private JComboBox<RegionMetric> sortMetricBox;
+    private JCheckBox descendingBox;
+    private JComboBox<Integer> windowBox;
+    private JCheckBox centeredBox;
+    private JComboBox<String> rangeRegionBox;
+    private JTextField rangeFromField, rangeToField;
+    private JTextArea alertsArea;
+    private JTextArea forecastArea;
+    private JPanel chartPanel;
+    private TimeSeriesChart chart;
+    private JComboBox<String> chartRegionBox;
+    private JCheckBox chartCasesBox, chartRecoveriesBox, chartDeathsBox, chartAverageBox;
+    
+    // Set while the chart's region list is refilled, so that does not trigger redraws
+    private boolean updatingChartRegions;
+    
+    // Last analysis shown, re-run when the settings or the data change
+    private Analysis lastAnalysis;
+    // Set when rows were appended while an analysis was running, so it is re-run once it finishes
+    private boolean analysisRefreshPending;
     
     // Buttons for event handling
     private JButton totalCasesBtn, fatalityRateBtn, movingAvgBtn, regionalBtn;
     
+    /**
+     * Builds the text for one of the dashboard analyses on the worker thread
+     */
+    private interface Analysis {
+        String run(ViewSettings settings, AnalysisTaskRunner.TaskContext context) throws SQLException;
+    }
+    
+    /**
+     * What a load or append changed, handed from the worker to the EDT
+     */
+    private static final class DatasetUpdate {
+        final AggregateSnapshot snapshot;
+        final List<OutbreakAlert> latestAlerts;
+        final long alertCount;
+        final long newAlerts;
+        final int activeAlarms;
+        final GrowthForecast[] forecasts;
+        
+        DatasetUpdate(AggregateSnapshot snapshot, List<OutbreakAlert> latestAlerts, long alertCount, long newAlerts,
+                      int activeAlarms, GrowthForecast[] forecasts) {
+            this.snapshot = snapshot;
+            this.latestAlerts = latestAlerts;
+            this.alertCount = alertCount;
+            this.newAlerts = newAlerts;
+            this.activeAlarms = activeAlarms;
+            this.forecasts = forecasts;
+        }
+    }
+    
+    /**
+     * Control values captured on the EDT when an analysis is requested
+     */
+    private static final class ViewSettings {
+        final RegionMetric metric;
+        final boolean descending;
+        final int window;
+        final boolean centered;
+        final boolean database;
+        
+        ViewSettings(RegionMetric metric, boolean descending, int window, boolean centered, boolean database) {
+            this.metric = metric;
+            this.descending = descending;
+            this.window = window;
+            this.centered = centered;
+            this.database = database;
+        }
+    }
+    
     public CovidAnalysisGUI() {
         csvReader = new CSVReader();
-        covidData = csvReader.readCSV("data/daily_stats.csv");
+        // The file is tailed after loading, so a half-written last row is left to the watcher
+        csvReader.setCompleteLinesOnly(true);
+        dataset = new LiveDataset(new DailyStatsTable());
+        snapshot = dataset.getSnapshot();
         
         initializeGUI();
         setupEventHandlers();
+        
+        // -Dcovid19.backend=database analyzes DailyStats in place without loading the file
+        if (DATABASE_MODE.equalsIgnoreCase(System.getProperty("covid19.backend"))) {
+            backendBox.setSelectedIndex(1);
+        } else {
+            loadData();
+        }
+    }
+    
+    // === LOADING AND LIVE UPDATES ===
+    
+    private void loadData() {
+        taskRunner.submit("Loading " + DATA_FILE, context -> {
+            DailyStatsTable table = csvReader.readCSV(DATA_FILE);
+            dataset = new LiveDataset(table);
+            return datasetUpdate(0);
+        }, loaded -> {
+            dataLoaded = true;
+            if (!isDatabaseMode()) {
+                applySnapshot(loaded.snapshot);
+            }
+            showAlerts(loaded);
+            showForecasts(loaded.forecasts);
+            refreshDataTable();
+            refreshChart();
+            startFileWatcher(csvReader.getLastBytesRead());
+        });
+    }
+    
+    private void startFileWatcher(long offset) {
+        fileWatcher = new StatsFileWatcher(Paths.get(DATA_FILE), offset,
+            new StatsFileWatcher.Listener() {
+                @Override
+                public void rowsAppended(DailyStatsTable tail, long bytes, long elapsedNanos) {
+                    SwingUtilities.invokeLater(() -> applyAppendedRows(tail, elapsedNanos));
+                }
+                
+                @Override
+                public void fileReset() {
+                    SwingUtilities.invokeLater(() -> reloadData());
+                }
+                
+                @Override
+                public void watchFailed(IOException e) {
+                    System.err.println("Error watching data file: " + e.getMessage());
+                }
+            });
+        fileWatcher.setQuarantine(QuarantineFile.forSource(Paths.get(DATA_FILE), true));
+        try {
+            fileWatcher.start();
+        } catch (IOException e) {
+            System.err.println("Live updates disabled: " + e.getMessage());
+        }
+    }
+    
+    private void applyAppendedRows(DailyStatsTable tail, long parseNanos) {
+        long submitted = System.nanoTime();
+        taskRunner.submit("Appending " + tail.size() + " rows", context -> {
+            // Fold the new rows in on the worker thread, which owns the dataset
+            long alertsBefore = dataset.getOutbreakDetector().getAlertCount();
+            dataset.append(tail);
+            return datasetUpdate(alertsBefore);
+        }, updated -> {
+            if (!isDatabaseMode()) {
+                applyAppendedSnapshot(updated.snapshot);
+            }
+            showAlerts(updated);
+            showForecasts(updated.forecasts);
+            refreshDataTable();
+            refreshChart();
+            String message = String.format("Appended %,d rows (parse %.1f ms, update %.1f ms) - %,d records total",
+                tail.size(), parseNanos / 1e6, (System.nanoTime() - submitted) / 1e6, updated.snapshot.getRowCount());
+            if (updated.newAlerts > 0) {
+                message += String.format(" - %,d new outbreak alert(s)", updated.newAlerts);
+            }
+            statusLabel.setText(message);
+            System.out.println(message);
+        });
+    }
+    
+    /**
+     * Collects the dataset's state after a load or append and logs the alerts it raised (worker thread)
+     */
+    private DatasetUpdate datasetUpdate(long alertsBefore) {
+        OutbreakDetector detector = dataset.getOutbreakDetector();
+        long newAlerts = detector.getAlertCount() - alertsBefore;
+        if (newAlerts > ALERTS_LOGGED) {
+            System.out.printf("%,d outbreak alerts raised; the latest %d:%n", newAlerts, ALERTS_LOGGED);
+        }
+        for (OutbreakAlert alert : detector.getLatestAlerts((int) Math.min(newAlerts, ALERTS_LOGGED))) {
+            System.out.println("OUTBREAK ALERT: " + alert);
+        }
+        return new DatasetUpdate(dataset.getSnapshot(), detector.getLatestAlerts(ALERTS_SHOWN),
+            detector.getAlertCount(), newAlerts, detector.getActiveAlarmCount(),
+            dataset.getForecasts(FORECAST_WINDOW, FORECAST_HORIZON));
+    }
+    
+    /**
+     * Lists the latest outbreak alerts, newest first (EDT)
+     */
+    private void showAlerts(DatasetUpdate update) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%,d alert(s) raised, %,d region(s) currently in alarm%n",
+            update.alertCount, update.activeAlarms));
+        if (update.alertCount > update.latestAlerts.size()) {
+            text.append(String.format("Showing the latest %d%n", update.latestAlerts.size()));
+        }
+        text.append("\n");
+        for (int i = update.latestAlerts.size() - 1; i >= 0; i--) {
+            text.append(update.latestAlerts.get(i)).append("\n");
+        }
+        showText(alertsArea, text.toString());
+    }
+    
+    /**
+     * Lists the fastest-growing regions first, with doubling time and the one-week projection (EDT)
+     */
+    private void showForecasts(GrowthForecast[] forecasts) {
+        int[] order = IndexSort.identity(forecasts.length);
+        IndexSort.sort(order, (a, b) -> Double.compare(growthKey(forecasts[b]), growthKey(forecasts[a])));
+        
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Log-linear fit over each region's last %d reports, %d-day projection (95%% interval)%n%n",
+            FORECAST_WINDOW, FORECAST_HORIZON));
+        text.append(String.format("%-20s %9s %12s %28s%n", "Region", "Growth/d", "Doubling", "Day +" + FORECAST_HORIZON));
+        int shown = Math.min(order.length, FORECASTS_SHOWN);
+        for (int i = 0; i < shown; i++) {
+            GrowthForecast forecast = forecasts[order[i]];
+            if (!forecast.isFitted() || forecast.getHorizon() == 0) {
+                text.append(String.format("%-20s %s%n", forecast.getRegion(), "not enough reports"));
+                continue;
+            }
+            double doubling = forecast.getDoublingDays();
+            String doublingText = Double.isInfinite(doubling) ? "flat"
+                : doubling > 0 ? String.format("%.1f d", doubling) : String.format("halves %.1f d", -doubling);
+            int ahead = forecast.getHorizon();
+            text.append(String.format("%-20s %8.1f%% %12s %,10.0f [%,.0f - %,.0f]%n", forecast.getRegion(),
+                Math.expm1(forecast.getGrowthRate()) * 100, doublingText, forecast.getExpected(ahead),
+                forecast.getLower(ahead), forecast.getUpper(ahead)));
+        }
+        if (order.length > shown) {
+            text.append(String.format("... and %,d more regions%n", order.length - shown));
+        }
+        showText(forecastArea, text.toString());
+    }
+    
+    private static double growthKey(GrowthForecast forecast) {
+        return forecast.isFitted() ? forecast.getGrowthRate() : Double.NEGATIVE_INFINITY;
+    }
+    
+    /**
+     * Switches between analyzing the loaded file and pushing the analyses down to the database
+     */
+    private void switchBackend() {
+        if (!isDatabaseMode() && !dataLoaded) {
+            loadData();
+            return;
+        }
+        boolean database = isDatabaseMode();
+        taskRunner.submit("Reading " + (database ? "database" : "memory") + " totals",
+            context -> backend(database).snapshot(), this::applySnapshot);
+    }
+    
+    private boolean isDatabaseMode() {
+        return backendBox.getSelectedIndex() == 1;
+    }
+    
+    /**
+     * Backend for the chosen mode; call on the worker thread
+     */
+    private AnalysisBackend backend(boolean database) {
+        if (!database) {
+            return new InMemoryBackend(dataset);
+        }
+        if (databaseBackend == null) {
+            databaseBackend = new DatabaseBackend(DatabaseConnection.getPool());
+        }
+        return databaseBackend;
+    }
+    
+    private void reloadData() {
+        fileWatcher.close();
+        System.out.println("Data file was truncated or replaced, reloading");
+        loadData();
+    }
+    
+    /**
+     * Makes a new snapshot current and re-renders everything derived from it (EDT)
+     */
+    private void applySnapshot(AggregateSnapshot updated) {
+        snapshot = updated;
+        refreshStatistics();
+        refreshRangeRegions();
+        refreshChartRegions();
+        if (lastAnalysis != null) {
+            runAnalysis(lastAnalysis);
+        }
+    }
+    
+    /**
+     * Lighter version for appended rows, which arrive as often as the file is written (EDT):
+     * the region lists are only rebuilt when regions were added, and the last analysis is
+     * re-run without cancelling one that is still in progress - at most one re-run is kept pending
+     */
+    private void applyAppendedSnapshot(AggregateSnapshot updated) {
+        boolean regionsAdded = updated.getRegionCount() != snapshot.getRegionCount();
+        snapshot = updated;
+        refreshStatistics();
+        if (regionsAdded) {
+            refreshRangeRegions();
+            refreshChartRegions();
+        }
+        if (lastAnalysis == null) {
+            return;
+        }
+        if (taskRunner.isAnalysisRunning()) {
+            analysisRefreshPending = true;
+        } else {
+            runAnalysis(lastAnalysis);
+        }
     }
     
     private void initializeGUI() {
@@ -36,6 +385,16 @@ public class CovidAnalysisGUI extends JFrame {
         setSize(1000, 700);
         setLocationRelativeTo(null);
         
+        // Status bar with progress for background work
+        statusLabel = new JLabel("Starting...");
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setVisible(false);
+        JPanel statusBar = new JPanel(new BorderLayout(10, 0));
+        statusBar.setBorder(BorderFactory.createEmptyBorder(3, 8, 3, 8));
+        statusBar.add(statusLabel, BorderLayout.CENTER);
+        statusBar.add(progressBar, BorderLayout.EAST);
+        taskRunner = new AnalysisTaskRunner(progressBar, statusLabel);
+        
         // Create main tabbed interface
         tabbedPane = new JTabbedPane();
         
@@ -43,9 +402,11 @@ public class CovidAnalysisGUI extends JFrame {
         tabbedPane.addTab("Dashboard", createDashboardPanel());
         tabbedPane.addTab("Statistics", createStatisticsPanel());
         tabbedPane.addTab("Data View", createDataPanel());
+        tabbedPane.addTab("Charts", createChartPanel());
         tabbedPane.addTab("Analysis", createAnalysisPanel());
         
         add(tabbedPane);
+        add(statusBar, BorderLayout.SOUTH);
     }
     
     private JPanel createDashboardPanel() {
@@ -87,10 +448,32 @@ public class CovidAnalysisGUI extends JFrame {
         
         JScrollPane scrollPane = new JScrollPane(resultsArea);
         scrollPane.setBorder(BorderFactory.createTitledBorder(
-            BorderFactory.createLineBorder(new Color(150, 150, 150)), 
+            BorderFactory.createLineBorder(new Color(150, 150, 150)),
             "Analysis Results"
         ));
-        panel.add(scrollPane, BorderLayout.SOUTH);
+        
+        // Region ordering controls
+        JPanel sortPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        backendBox = new JComboBox<>(new String[] {"In-memory (data file)", "Database (DailyStats)"});
+        sortPanel.add(new JLabel("Source:"));
+        sortPanel.add(backendBox);
+        sortMetricBox = new JComboBox<>(RegionMetric.values());
+        sortMetricBox.setSelectedItem(RegionMetric.CASES);
+        descendingBox = new JCheckBox("Descending", true);
+        sortPanel.add(new JLabel("Sort regions by:"));
+        sortPanel.add(sortMetricBox);
+        sortPanel.add(descendingBox);
+        
+        windowBox = new JComboBox<>(new Integer[] {7, 14, 28});
+        centeredBox = new JCheckBox("Centered", false);
+        sortPanel.add(new JLabel("  Moving average window:"));
+        sortPanel.add(windowBox);
+        sortPanel.add(centeredBox);
+        
+        JPanel resultsPanel = new JPanel(new BorderLayout());
+        resultsPanel.add(sortPanel, BorderLayout.NORTH);
+        resultsPanel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(resultsPanel, BorderLayout.SOUTH);
         
         return panel;
     }
@@ -124,277 +507,262 @@ public class CovidAnalysisGUI extends JFrame {
         totalCasesBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                showTotalCases();
+                runAnalysis(CovidAnalysisGUI.this::showTotalCases);
             }
         });
         
         fatalityRateBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                calculateFatalityRate();
+                runAnalysis(CovidAnalysisGUI.this::calculateFatalityRate);
             }
         });
         
         movingAvgBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                showMovingAverages();
+                runAnalysis(CovidAnalysisGUI.this::showMovingAverages);
             }
         });
         
         regionalBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                showRegionalComparison();
+                runAnalysis(CovidAnalysisGUI.this::showRegionalComparison);
             }
         });
+        
+        // Changing the sort order re-renders whatever is on screen
+        ActionListener resort = e -> {
+            if (lastAnalysis != null) {
+                runAnalysis(lastAnalysis);
+            }
+        };
+        backendBox.addActionListener(e -> switchBackend());
+        sortMetricBox.addActionListener(resort);
+        descendingBox.addActionListener(resort);
+        windowBox.addActionListener(resort);
+        centeredBox.addActionListener(resort);
+        
+        // The chart follows the moving average settings and is only drawn while its tab is showing
+        windowBox.addActionListener(e -> refreshChart());
+        centeredBox.addActionListener(e -> refreshChart());
+        tabbedPane.addChangeListener(e -> refreshChart());
+    }
+    
+    /**
+     * Runs an analysis in the background, superseding any analysis still in progress
+     */
+    private void runAnalysis(Analysis analysis) {
+        lastAnalysis = analysis;
+        analysisRefreshPending = false;
+        ViewSettings settings = new ViewSettings(
+            (RegionMetric) sortMetricBox.getSelectedItem(), descendingBox.isSelected(),
+            (Integer) windowBox.getSelectedItem(), centeredBox.isSelected(), isDatabaseMode());
+        
+        taskRunner.submitAnalysis(settings.database ? "Analyzing in database" : "Analyzing", context -> analysis.run(settings, context),
+            text -> {
+                showText(resultsArea, text);
+                // Rows arrived while this ran; show them now that it is done
+                if (analysisRefreshPending) {
+                    runAnalysis(lastAnalysis);
+                }
+            });
+    }
+    
+    /**
+     * Displays a finished report (EDT); timed as the render stage
+     */
+    private void showText(JTextArea area, String text) {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.RENDER);
+        area.setText(text);
+        area.setCaretPosition(0);
+        sample.stop(0, text.length());
     }
     
     // === ANALYSIS METHODS ===
+    // These run on the worker thread and only return text; the EDT displays it.
     
-    private void showTotalCases() {
+    private String showTotalCases(ViewSettings settings, AnalysisTaskRunner.TaskContext context) throws SQLException {
+        AnalysisBackend backend = backend(settings.database);
+        AggregateSnapshot snapshot = backend.snapshot();
         StringBuilder result = new StringBuilder();
         result.append("TOTAL COVID-19 CASES ANALYSIS\n");
         result.append("==============================\n\n");
         
-        if (covidData.isEmpty()) {
+        if (snapshot.isEmpty()) {
             result.append("No data available. Please check the CSV file.\n");
-            resultsArea.setText(result.toString());
-            return;
+            return result.toString();
         }
         
-        int totalCases = 0;
-        int regionA = 0, regionB = 0, regionC = 0;
-        
-        for (String[] record : covidData) {
-            if (record.length >= 6) {
-                int cases = Integer.parseInt(record[3].trim());
-                totalCases += cases;
-                
-                if (record[1].equals("RegionA")) regionA += cases;
-                else if (record[1].equals("RegionB")) regionB += cases;
-                else if (record[1].equals("RegionC")) regionC += cases;
-            }
+        int[] order = snapshot.regionsSortedBy(settings.metric, settings.descending);
+        result.append(String.format("Total Cases Across All Regions: %,d\n\n", snapshot.getTotalCases()));
+        result.append("Breakdown by Region (" + snapshot.getRegionCount() + " regions):\n");
+        for (int i = 0; i < order.length; i++) {
+            int region = order[i];
+            result.append(String.format("  %s: %,d cases (%.1f%%)\n", snapshot.getRegionName(region),
+                snapshot.getRegionCases(region), snapshot.getRegionCaseShare(region)));
+            reportProgress(context, i, order.length * 2);
         }
         
-        result.append(String.format("Total Cases Across All Regions: %,d\n\n", totalCases));
-        result.append("Breakdown by Region:\n");
-        result.append(String.format("  Region A: %,d cases (%.1f%%)\n", regionA, (regionA * 100.0 / totalCases)));
-        result.append(String.format("  Region B: %,d cases (%.1f%%)\n", regionB, (regionB * 100.0 / totalCases)));
-        result.append(String.format("  Region C: %,d cases (%.1f%%)\n", regionC, (regionC * 100.0 / totalCases)));
-        
         // Add peak day analysis
+        RegionPeaks[] peaks = backend.peaks(snapshot, PEAK_TOP_K, PEAK_PROMINENCE, PEAK_SEPARATION_DAYS, settings.window);
         result.append("\n--- PEAK CASE DAYS ---\n");
-        String[] peakDays = findPeakDays();
+        String[] peakDays = findPeakDays(peaks, order, settings.window, context);
         for (String peakDay : peakDays) {
             result.append(peakDay).append("\n");
         }
         
-        resultsArea.setText(result.toString());
+        return result.toString();
     }
     
-    private void calculateFatalityRate() {
+    private String calculateFatalityRate(ViewSettings settings, AnalysisTaskRunner.TaskContext context) throws SQLException {
+        AnalysisBackend backend = backend(settings.database);
+        AggregateSnapshot snapshot = backend.snapshot();
         StringBuilder result = new StringBuilder();
         result.append("CASE FATALITY RATE ANALYSIS\n");
         result.append("============================\n\n");
         
-        if (covidData.isEmpty()) {
+        if (snapshot.isEmpty()) {
             result.append("No data available. Please check the CSV file.\n");
-            resultsArea.setText(result.toString());
-            return;
+            return result.toString();
         }
         
-        int totalCases = 0, totalDeaths = 0;
-        int casesA = 0, deathsA = 0, casesB = 0, deathsB = 0, casesC = 0, deathsC = 0;
-        
-        for (String[] record : covidData) {
-            if (record.length >= 6) {
-                int cases = Integer.parseInt(record[3].trim());
-                int deaths = Integer.parseInt(record[5].trim());
-                
-                totalCases += cases;
-                totalDeaths += deaths;
-                
-                if (record[1].equals("RegionA")) {
-                    casesA += cases;
-                    deathsA += deaths;
-                } else if (record[1].equals("RegionB")) {
-                    casesB += cases;
-                    deathsB += deaths;
-                } else if (record[1].equals("RegionC")) {
-                    casesC += cases;
-                    deathsC += deaths;
-                }
-            }
-        }
-        
-        result.append(String.format("Overall Fatality Rate: %.2f%%\n\n", (totalDeaths * 100.0 / totalCases)));
+        int[] order = snapshot.regionsSortedBy(settings.metric, settings.descending);
+        result.append(String.format("Overall Fatality Rate: %.2f%%\n\n", snapshot.getFatalityRate()));
         result.append("Regional Fatality Rates:\n");
-        result.append(String.format("  Region A: %.2f%% (%d deaths / %d cases)\n", 
-            (deathsA * 100.0 / casesA), deathsA, casesA));
-        result.append(String.format("  Region B: %.2f%% (%d deaths / %d cases)\n", 
-            (deathsB * 100.0 / casesB), deathsB, casesB));
-        result.append(String.format("  Region C: %.2f%% (%d deaths / %d cases)\n", 
-            (deathsC * 100.0 / casesC), deathsC, casesC));
+        for (int i = 0; i < order.length; i++) {
+            int region = order[i];
+            result.append(String.format("  %s: %.2f%% (%d deaths / %d cases)\n",
+                snapshot.getRegionName(region), snapshot.getRegionFatalityRate(region),
+                snapshot.getRegionDeaths(region), snapshot.getRegionCases(region)));
+            reportProgress(context, i, order.length);
+        }
         
-        resultsArea.setText(result.toString());
+        return result.toString();
     }
     
-    private void showMovingAverages() {
+    private String showMovingAverages(ViewSettings settings, AnalysisTaskRunner.TaskContext context) throws SQLException {
+        AnalysisBackend backend = backend(settings.database);
+        AggregateSnapshot snapshot = backend.snapshot();
+        String title = settings.window + "-DAY " + (settings.centered ? "CENTERED " : "") + "MOVING AVERAGE ANALYSIS";
+        
         StringBuilder result = new StringBuilder();
-        result.append("7-DAY MOVING AVERAGE ANALYSIS\n");
-        result.append("==============================\n\n");
+        result.append(title).append("\n");
+        result.append("=".repeat(title.length())).append("\n\n");
         
-        if (covidData.isEmpty()) {
+        if (snapshot.isEmpty()) {
             result.append("No data available. Please check the CSV file.\n");
-            resultsArea.setText(result.toString());
-            return;
+            return result.toString();
         }
         
-        // Calculate moving averages for each region
-        result.append("REGION A - 7-Day Moving Averages:\n");
-        result.append(calculateMovingAverageForRegion("RegionA"));
-        result.append("\nREGION B - 7-Day Moving Averages:\n");
-        result.append(calculateMovingAverageForRegion("RegionB"));
-        result.append("\nREGION C - 7-Day Moving Averages:\n");
-        result.append(calculateMovingAverageForRegion("RegionC"));
+        // One pass (or one window query) computes the series for every region
+        MovingAverageSeries[] movingAverages = backend.movingAverages(snapshot, settings.window, settings.centered);
+        context.checkCancelled();
+        
+        // Show moving averages for each region
+        int[] order = snapshot.regionsSortedBy(settings.metric, settings.descending);
+        for (int i = 0; i < order.length; i++) {
+            int region = order[i];
+            if (i > 0) {
+                result.append("\n");
+            }
+            result.append(snapshot.getRegionName(region).toUpperCase())
+                .append(" - ").append(settings.window).append("-Day Moving Averages:\n");
+            result.append(formatMovingAverages(movingAverages[region]));
+            reportProgress(context, i, order.length);
+        }
         
-        resultsArea.setText(result.toString());
+        return result.toString();
     }
     
-    private void showRegionalComparison() {
+    private String showRegionalComparison(ViewSettings settings, AnalysisTaskRunner.TaskContext context) throws SQLException {
+        AnalysisBackend backend = backend(settings.database);
+        AggregateSnapshot snapshot = backend.snapshot();
         StringBuilder result = new StringBuilder();
         result.append("REGIONAL COMPARISON ANALYSIS\n");
         result.append("=============================\n\n");
         
-        if (covidData.isEmpty()) {
+        if (snapshot.isEmpty()) {
             result.append("No data available. Please check the CSV file.\n");
-            resultsArea.setText(result.toString());
-            return;
+            return result.toString();
         }
         
-        int casesA = 0, recoveriesA = 0, deathsA = 0;
-        int casesB = 0, recoveriesB = 0, deathsB = 0;
-        int casesC = 0, recoveriesC = 0, deathsC = 0;
+        result.append("COMPREHENSIVE REGIONAL COMPARISON:\n\n");
         
-        for (String[] record : covidData) {
-            if (record.length >= 6) {
-                int cases = Integer.parseInt(record[3].trim());
-                int recoveries = Integer.parseInt(record[4].trim());
-                int deaths = Integer.parseInt(record[5].trim());
-                
-                if (record[1].equals("RegionA")) {
-                    casesA += cases;
-                    recoveriesA += recoveries;
-                    deathsA += deaths;
-                } else if (record[1].equals("RegionB")) {
-                    casesB += cases;
-                    recoveriesB += recoveries;
-                    deathsB += deaths;
-                } else if (record[1].equals("RegionC")) {
-                    casesC += cases;
-                    recoveriesC += recoveries;
-                    deathsC += deaths;
-                }
+        int[] order = snapshot.regionsSortedBy(settings.metric, settings.descending);
+        for (int i = 0; i < order.length; i++) {
+            int region = order[i];
+            if (i > 0) {
+                result.append("\n");
             }
+            result.append("=== ").append(snapshot.getRegionName(region).toUpperCase()).append(" ===\n");
+            result.append(String.format("Total Cases:     %,10d\n", snapshot.getRegionCases(region)));
+            result.append(String.format("Total Recoveries:%,10d\n", snapshot.getRegionRecoveries(region)));
+            result.append(String.format("Total Deaths:   %,10d\n", snapshot.getRegionDeaths(region)));
+            result.append(String.format("Recovery Rate:  %10.1f%%\n", snapshot.getRegionRecoveryRate(region)));
+            result.append(String.format("Fatality Rate:  %10.1f%%\n", snapshot.getRegionFatalityRate(region)));
+            reportProgress(context, i, order.length);
         }
         
-        result.append("COMPREHENSIVE REGIONAL COMPARISON:\n\n");
-        
-        result.append("=== REGION A ===\n");
-        result.append(String.format("Total Cases:     %,10d\n", casesA));
-        result.append(String.format("Total Recoveries:%,10d\n", recoveriesA));
-        result.append(String.format("Total Deaths:   %,10d\n", deathsA));
-        result.append(String.format("Recovery Rate:  %10.1f%%\n", (recoveriesA * 100.0 / casesA)));
-        result.append(String.format("Fatality Rate:  %10.1f%%\n\n", (deathsA * 100.0 / casesA)));
-        
-        result.append("=== REGION B ===\n");
-        result.append(String.format("Total Cases:     %,10d\n", casesB));
-        result.append(String.format("Total Recoveries:%,10d\n", recoveriesB));
-        result.append(String.format("Total Deaths:   %,10d\n", deathsB));
-        result.append(String.format("Recovery Rate:  %10.1f%%\n", (recoveriesB * 100.0 / casesB)));
-        result.append(String.format("Fatality Rate:  %10.1f%%\n\n", (deathsB * 100.0 / casesB)));
-        
-        result.append("=== REGION C ===\n");
-        result.append(String.format("Total Cases:     %,10d\n", casesC));
-        result.append(String.format("Total Recoveries:%,10d\n", recoveriesC));
-        result.append(String.format("Total Deaths:   %,10d\n", deathsC));
-        result.append(String.format("Recovery Rate:  %10.1f%%\n", (recoveriesC * 100.0 / casesC)));
-        result.append(String.format("Fatality Rate:  %10.1f%%\n", (deathsC * 100.0 / casesC)));
-        
-        resultsArea.setText(result.toString());
+        return result.toString();
     }
     
     // === HELPER METHODS ===
     
-    private String calculateMovingAverageForRegion(String region) {
+    /**
+     * Reports progress every 256 regions and stops early if the analysis was superseded
+     */
+    private static void reportProgress(AnalysisTaskRunner.TaskContext context, int done, int total) {
+        if ((done & 0xFF) == 0) {
+            context.checkCancelled();
+            context.setProgress((int) (done * 100L / Math.max(1, total)));
+        }
+    }
+    
+    private String formatMovingAverages(MovingAverageSeries series) {
         StringBuilder maResult = new StringBuilder();
         
-        // Filter data for the specific region
-        List<Integer> regionCases = new ArrayList<>();
-        List<String> regionDates = new ArrayList<>();
-        
-        for (String[] record : covidData) {
-            if (record.length >= 6 && record[1].equals(region)) {
-                try {
-                    regionCases.add(Integer.parseInt(record[3].trim()));
-                    regionDates.add(record[2].trim());
-                } catch (NumberFormatException e) {
-                    // Skip invalid records
-                }
+        if (series.size() > 0) {
+            // Only show first 5 averages for readability
+            int shown = Math.min(5, series.size());
+            for (int i = 0; i < shown; i++) {
+                maResult.append(String.format("  %s: %.1f cases\n", series.dateLabel(i), series.value(i)));
             }
-        }
-        
-        // Calculate 7-day moving average
-        if (regionCases.size() >= 7) {
-            for (int i = 6; i < regionCases.size(); i++) {
-                int sum = 0;
-                for (int j = i - 6; j <= i; j++) {
-                    sum += regionCases.get(j);
-                }
-                double average = sum / 7.0;
-                maResult.append(String.format("  %s: %.1f cases\n", regionDates.get(i), average));
-                
-                // Only show first 5 averages for readability
-                if (i >= 10) break;
+            if (series.size() > shown) {
+                int last = series.size() - 1;
+                maResult.append(String.format("  ... %d more, latest %s: %.1f cases\n",
+                    series.size() - shown, series.dateLabel(last), series.value(last)));
             }
         } else {
-            maResult.append("  Not enough data for 7-day moving average\n");
+            maResult.append("  Not enough data for ").append(series.getWindow()).append("-day moving average\n");
         }
         
         return maResult.toString();
     }
     
-    private String[] findPeakDays() {
-        // Simple peak detection - find days with highest cases for each region
-        String[] peaks = new String[3];
-        int maxA = 0, maxB = 0, maxC = 0;
-        String peakDayA = "", peakDayB = "", peakDayC = "";
+    private String[] findPeakDays(RegionPeaks[] peaks, int[] order, int window,
+                                  AnalysisTaskRunner.TaskContext context) {
+        // Peak detection - highest days plus the prominent local maxima (waves) for each region
+        String[] lines = new String[order.length];
         
-        for (String[] record : covidData) {
-            if (record.length >= 6) {
-                int cases = Integer.parseInt(record[3].trim());
-                String region = record[1];
-                String date = record[2];
-                
-                if (region.equals("RegionA") && cases > maxA) {
-                    maxA = cases;
-                    peakDayA = date;
-                } else if (region.equals("RegionB") && cases > maxB) {
-                    maxB = cases;
-                    peakDayB = date;
-                } else if (region.equals("RegionC") && cases > maxC) {
-                    maxC = cases;
-                    peakDayC = date;
-                }
+        for (int i = 0; i < order.length; i++) {
+            RegionPeaks regionPeaks = peaks[order[i]];
+            StringBuilder line = new StringBuilder(regionPeaks.getRegion()).append(":");
+            if (regionPeaks.getTopCount() == 0) {
+                line.append(" no reports");
             }
+            for (int rank = 0; rank < regionPeaks.getTopCount(); rank++) {
+                line.append(String.format("%s %,d cases on %s", rank == 0 ? "" : ",",
+                    regionPeaks.getTopCases(rank), regionPeaks.getTopDateLabel(rank)));
+            }
+            line.append(String.format("\n    %d local peaks, %d in the %d-day average",
+                regionPeaks.getLocalPeakCount(), regionPeaks.getSmoothedPeakCount(), window));
+            lines[i] = line.toString();
+            reportProgress(context, order.length + i, order.length * 2);
         }
         
-        peaks[0] = String.format("Region A: %d cases on %s", maxA, peakDayA);
-        peaks[1] = String.format("Region B: %d cases on %s", maxB, peakDayB);
-        peaks[2] = String.format("Region C: %d cases on %s", maxC, peakDayC);
-        
-        return peaks;
+        return lines;
     }
     
     // Keep the existing panel methods (they were working)
@@ -406,84 +774,187 @@ public class CovidAnalysisGUI extends JFrame {
         title.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
         panel.add(title, BorderLayout.NORTH);
         
-        JTextArea statsArea = new JTextArea();
+        statsArea = new JTextArea();
         statsArea.setEditable(false);
         statsArea.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        statsArea.setText("Loading data...");
         
-        // Calculate and display statistics
-        if (!covidData.isEmpty()) {
+        JScrollPane scrollPane = new JScrollPane(statsArea);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(createRangeQueryPanel(), BorderLayout.SOUTH);
+        
+        return panel;
+    }
+    
+    private void refreshStatistics() {
+        AggregateSnapshot current = snapshot;
+        taskRunner.submit("Summarizing statistics", context -> {
+            // Calculate and display statistics
+            if (current.isEmpty()) {
+                return "No data available. Please check the CSV file.";
+            }
+            
             StringBuilder stats = new StringBuilder();
             stats.append("=== COVID-19 STATISTICS SUMMARY ===\n\n");
             
-            // Basic calculations
-            int totalCases = 0, totalRecoveries = 0, totalDeaths = 0;
-            int regionACases = 0, regionBCases = 0, regionCCases = 0;
-            
-            for (String[] record : covidData) {
-                if (record.length >= 6) {
-                    int cases = Integer.parseInt(record[3].trim());
-                    totalCases += cases;
-                    totalRecoveries += Integer.parseInt(record[4].trim());
-                    totalDeaths += Integer.parseInt(record[5].trim());
-                    
-                    // Count by region
-                    if (record[1].equals("RegionA")) regionACases += cases;
-                    else if (record[1].equals("RegionB")) regionBCases += cases;
-                    else if (record[1].equals("RegionC")) regionCCases += cases;
-                }
-            }
-            
-            stats.append(String.format("Total Cases: %,d\n", totalCases));
-            stats.append(String.format("Total Recoveries: %,d\n", totalRecoveries));
-            stats.append(String.format("Total Deaths: %,d\n\n", totalDeaths));
+            stats.append(String.format("Total Cases: %,d\n", current.getTotalCases()));
+            stats.append(String.format("Total Recoveries: %,d\n", current.getTotalRecoveries()));
+            stats.append(String.format("Total Deaths: %,d\n\n", current.getTotalDeaths()));
             
             stats.append("--- Cases by Region ---\n");
-            stats.append(String.format("Region A: %,d cases\n", regionACases));
-            stats.append(String.format("Region B: %,d cases\n", regionBCases));
-            stats.append(String.format("Region C: %,d cases\n\n", regionCCases));
-            
-            if (totalCases > 0) {
-                double fatalityRate = (double) totalDeaths / totalCases * 100;
-                double recoveryRate = (double) totalRecoveries / totalCases * 100;
-                stats.append(String.format("Case Fatality Rate: %.2f%%\n", fatalityRate));
-                stats.append(String.format("Recovery Rate: %.2f%%\n", recoveryRate));
+            for (int region : current.regionsSortedBy(RegionMetric.CASES, true)) {
+                stats.append(String.format("%s: %,d cases\n", current.getRegionName(region),
+                    current.getRegionCases(region)));
             }
+            stats.append("\n");
             
-            statsArea.setText(stats.toString());
-        } else {
-            statsArea.setText("No data available. Please check the CSV file.");
-        }
+            if (current.getTotalCases() > 0) {
+                stats.append(String.format("Case Fatality Rate: %.2f%%\n", current.getFatalityRate()));
+                stats.append(String.format("Recovery Rate: %.2f%%\n", current.getRecoveryRate()));
+            }
+            return stats.toString();
+        }, text -> showText(statsArea, text));
+    }
+    
+    private JPanel createRangeQueryPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createTitledBorder("Date Range Query"));
         
-        JScrollPane scrollPane = new JScrollPane(statsArea);
-        scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        panel.add(scrollPane, BorderLayout.CENTER);
+        JPanel inputs = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        rangeRegionBox = new JComboBox<>();
+        rangeRegionBox.addItem(ALL_REGIONS);
+        rangeFromField = new JTextField(9);
+        rangeToField = new JTextField(9);
+        JButton queryBtn = new JButton("Query");
+        
+        inputs.add(new JLabel("Region:"));
+        inputs.add(rangeRegionBox);
+        inputs.add(new JLabel("From (MM d yyyy):"));
+        inputs.add(rangeFromField);
+        inputs.add(new JLabel("To:"));
+        inputs.add(rangeToField);
+        inputs.add(queryBtn);
+        panel.add(inputs, BorderLayout.NORTH);
+        
+        JTextArea rangeArea = new JTextArea(4, 50);
+        rangeArea.setEditable(false);
+        rangeArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        panel.add(rangeArea, BorderLayout.CENTER);
+        
+        queryBtn.addActionListener(e -> {
+            int from = DateCodec.parse(rangeFromField.getText().trim());
+            int to = DateCodec.parse(rangeToField.getText().trim());
+            if (from == DateCodec.INVALID || to == DateCodec.INVALID) {
+                JOptionPane.showMessageDialog(this, "Dates must look like \"01 1 2025\" (month day year).",
+                    "Invalid date", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            if (from > to) {
+                JOptionPane.showMessageDialog(this, "The \"From\" date must not be after the \"To\" date.",
+                    "Invalid range", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            String regionName = (String) rangeRegionBox.getSelectedItem();
+            boolean database = isDatabaseMode();
+            taskRunner.submitAnalysis("Querying date range",
+                context -> formatRange(regionName, from, to, database), text -> showText(rangeArea, text));
+        });
         
         return panel;
     }
     
+    /**
+     * Fills the range query controls from the current snapshot, keeping the user's choices
+     */
+    private void refreshRangeRegions() {
+        Object selected = rangeRegionBox.getSelectedItem();
+        rangeRegionBox.removeAllItems();
+        rangeRegionBox.addItem(ALL_REGIONS);
+        for (int region : snapshot.regionsSortedBy(RegionMetric.NAME, false)) {
+            rangeRegionBox.addItem(snapshot.getRegionName(region));
+        }
+        rangeRegionBox.setSelectedItem(selected);
+        
+        if (!snapshot.isEmpty() && rangeFromField.getText().isEmpty()) {
+            rangeFromField.setText(DateCodec.format(snapshot.getFirstDate()));
+            rangeToField.setText(DateCodec.format(snapshot.getLastDate()));
+        }
+    }
+    
+    private String formatRange(String regionName, int from, int to, boolean database) throws SQLException {
+        // In memory this is a couple of binary searches over the prefix sums; in the database one SUM query
+        RangeStats range = backend(database).range(ALL_REGIONS.equals(regionName) ? null : regionName, from, to);
+        if (range == null) {
+            return "No data for " + regionName;
+        }
+        
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("%s, %s to %s: %,d reports\n", regionName,
+            DateCodec.format(from), DateCodec.format(to), range.getRows()));
+        result.append(String.format("Cases: %,d  Recoveries: %,d  Deaths: %,d\n",
+            range.getCases(), range.getRecoveries(), range.getDeaths()));
+        result.append(String.format("Fatality Rate: %.2f%%  Recovery Rate: %.2f%%  Avg cases/day: %.1f\n",
+            range.getFatalityRate(), range.getRecoveryRate(), range.getAverageCasesPerDay()));
+        return result.toString();
+    }
+    
     private JPanel createDataPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         
         JLabel title = new JLabel("COVID-19 Raw Data View", SwingConstants.CENTER);
         title.setFont(new Font("Arial", Font.BOLD, 18));
         title.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
-        panel.add(title, BorderLayout.NORTH);
         
-        // Create table data
-        String[] columnNames = {"Daily ID", "Region", "Date", "New Cases", "Recoveries", "Deaths"};
-        String[][] tableData = new String[Math.min(20, covidData.size())][6];
+        // Region filter; click a column header to sort (again to reverse)
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        dataFilterField = new JTextField(15);
+        JButton filterBtn = new JButton("Filter");
+        dataCountLabel = new JLabel();
+        filterPanel.add(new JLabel("Region contains:"));
+        filterPanel.add(dataFilterField);
+        filterPanel.add(filterBtn);
+        filterPanel.add(dataCountLabel);
         
-        for (int i = 0; i < Math.min(20, covidData.size()); i++) {
-            String[] record = covidData.get(i);
-            for (int j = 0; j < Math.min(record.length, 6); j++) {
-                tableData[i][j] = record[j];
-            }
-        }
+        // Streams straight from the loaded columns or results to disk, in CSV, JSON lines or binary
+        exportBox = new JComboBox<>(new String[] {EXPORT_ROWS, EXPORT_REGIONS, EXPORT_AVERAGES});
+        JButton exportBtn = new JButton("Export...");
+        exportBtn.addActionListener(e -> exportData());
+        filterPanel.add(new JLabel("  Export:"));
+        filterPanel.add(exportBox);
+        filterPanel.add(exportBtn);
         
-        dataTable = new JTable(tableData, columnNames);
+        JPanel header = new JPanel(new BorderLayout());
+        header.add(title, BorderLayout.NORTH);
+        header.add(filterPanel, BorderLayout.SOUTH);
+        panel.add(header, BorderLayout.NORTH);
+        
+        // Cells are read on demand from the loaded columns, so every row can be browsed
+        dataModel = new DailyStatsTableModel();
+        dataTable = new JTable(dataModel);
         dataTable.setFont(new Font("Arial", Font.PLAIN, 12));
         dataTable.setRowHeight(25);
         
+        ActionListener applyFilter = e -> {
+            DailyStatsView current = dataModel.getView();
+            selectDataRows(dataFilterField.getText(), current.getSortColumn(), current.isAscending());
+        };
+        filterBtn.addActionListener(applyFilter);
+        dataFilterField.addActionListener(applyFilter);
+        
+        dataTable.getTableHeader().addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent evt) {
+                int column = dataTable.convertColumnIndexToModel(dataTable.columnAtPoint(evt.getPoint()));
+                if (column < 0) {
+                    return;
+                }
+                DailyStatsView current = dataModel.getView();
+                boolean ascending = column != current.getSortColumn() || !current.isAscending();
+                selectDataRows(current.getRegionFilter(), column, ascending);
+            }
+        });
+        
         JScrollPane tableScrollPane = new JScrollPane(dataTable);
         tableScrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         panel.add(tableScrollPane, BorderLayout.CENTER);
@@ -491,6 +962,181 @@ public class CovidAnalysisGUI extends JFrame {
         return panel;
     }
     
+    /**
+     * Publishes the rows loaded so far to the data view, keeping the current filter and sort
+     */
+    private void refreshDataTable() {
+        DailyStatsView current = dataModel.getView();
+        taskRunner.submit("Preparing data view",
+            context -> current.reselect(dataset.getTable().view()), this::showDataView);
+    }
+    
+    private void selectDataRows(String regionFilter, int sortColumn, boolean ascending) {
+        taskRunner.submit("Sorting data view",
+            context -> dataset.getTable().view().select(regionFilter, sortColumn, ascending), this::showDataView);
+    }
+    
+    /**
+     * Asks for a file and exports the chosen data in the format its extension names (CSV by default)
+     */
+    private void exportData() {
+        if (!dataLoaded) {
+            JOptionPane.showMessageDialog(this, "Load the data file before exporting.", "Export",
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "CSV, JSON lines or binary columnar (.csv, .jsonl, .bin)", "csv", "jsonl", "bin"));
+        chooser.setSelectedFile(new File("covid19_export.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path target = chooser.getSelectedFile().toPath();
+        StatsExporter.Format format = StatsExporter.Format.forFile(target);
+        if (format == null) {
+            format = StatsExporter.Format.CSV;
+            target = target.resolveSibling(target.getFileName() + "." + format.getExtension());
+        }
+        
+        String what = (String) exportBox.getSelectedItem();
+        AggregateSnapshot current = snapshot;
+        int window = (Integer) windowBox.getSelectedItem();
+        boolean centered = centeredBox.isSelected();
+        StatsExporter exporter = new StatsExporter(format);
+        Path file = target;
+        long start = System.nanoTime();
+        taskRunner.submit("Exporting " + what.toLowerCase() + " to " + file.getFileName(), context -> {
+            exporter.setProgressListener(context::setProgress);
+            if (EXPORT_REGIONS.equals(what)) {
+                return exporter.exportRegions(current, file);
+            }
+            if (EXPORT_AVERAGES.equals(what)) {
+                return exporter.exportMovingAverages(dataset.getMovingAverages(window, centered), file);
+            }
+            return exporter.exportRows(dataset.getTable(), file);
+        }, bytes -> {
+            String message = String.format("Exported %s to %s: %,d bytes in %.1f s", what.toLowerCase(), file, bytes,
+                (System.nanoTime() - start) / 1e9);
+            statusLabel.setText(message);
+            System.out.println(message);
+        });
+    }
+    
+    private void showDataView(DailyStatsView view) {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.RENDER);
+        dataModel.setView(view);
+        
+        // Header values are cached by the columns, so refresh the sort arrows by hand
+        for (int i = 0; i < dataTable.getColumnCount(); i++) {
+            javax.swing.table.TableColumn column = dataTable.getColumnModel().getColumn(i);
+            column.setHeaderValue(dataModel.getColumnName(column.getModelIndex()));
+        }
+        dataTable.getTableHeader().repaint();
+        dataCountLabel.setText(String.format("Showing %,d of %,d rows", view.getRowCount(), view.getTableSize()));
+        sample.stop(view.getRowCount(), 0);
+    }
+    
+    private JPanel createChartPanel() {
+        chartPanel = new JPanel(new BorderLayout());
+        
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        chartRegionBox = new JComboBox<>();
+        chartCasesBox = new JCheckBox("Cases", true);
+        chartRecoveriesBox = new JCheckBox("Recoveries", true);
+        chartDeathsBox = new JCheckBox("Deaths", true);
+        chartAverageBox = new JCheckBox("Moving average", true);
+        controls.add(new JLabel("Region:"));
+        controls.add(chartRegionBox);
+        controls.add(chartCasesBox);
+        controls.add(chartRecoveriesBox);
+        controls.add(chartDeathsBox);
+        controls.add(chartAverageBox);
+        controls.add(new JLabel("  Wheel to zoom, drag to pan, double-click to reset"));
+        chartPanel.add(controls, BorderLayout.NORTH);
+        
+        chart = new TimeSeriesChart();
+        chart.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        chartPanel.add(chart, BorderLayout.CENTER);
+        
+        ActionListener redraw = e -> {
+            if (!updatingChartRegions) {
+                refreshChart();
+            }
+        };
+        chartRegionBox.addActionListener(redraw);
+        chartCasesBox.addActionListener(redraw);
+        chartRecoveriesBox.addActionListener(redraw);
+        chartDeathsBox.addActionListener(redraw);
+        chartAverageBox.addActionListener(redraw);
+        
+        return chartPanel;
+    }
+    
+    /**
+     * Fills the chart's region list from the current snapshot, keeping the selection
+     */
+    private void refreshChartRegions() {
+        updatingChartRegions = true;
+        try {
+            Object selected = chartRegionBox.getSelectedItem();
+            chartRegionBox.removeAllItems();
+            for (int region : snapshot.regionsSortedBy(RegionMetric.NAME, false)) {
+                chartRegionBox.addItem(snapshot.getRegionName(region));
+            }
+            if (selected != null) {
+                chartRegionBox.setSelectedItem(selected);
+            }
+        } finally {
+            updatingChartRegions = false;
+        }
+    }
+    
+    /**
+     * Rebuilds the chart's series on the worker when the Charts tab is showing; the chart
+     * keeps its zoom, and the downsampled levels are built there too, so the EDT only paints
+     */
+    private void refreshChart() {
+        if (tabbedPane.getSelectedComponent() != chartPanel || !dataLoaded) {
+            return;
+        }
+        String regionName = (String) chartRegionBox.getSelectedItem();
+        if (regionName == null) {
+            return;
+        }
+        boolean cases = chartCasesBox.isSelected();
+        boolean recoveries = chartRecoveriesBox.isSelected();
+        boolean deaths = chartDeathsBox.isSelected();
+        boolean average = chartAverageBox.isSelected();
+        int window = (Integer) windowBox.getSelectedItem();
+        boolean centered = centeredBox.isSelected();
+        taskRunner.submit("Charting " + regionName, context -> {
+            // Charts always draw the loaded file, whichever backend the dashboard uses
+            TimeIndex index = dataset.getTimeIndex();
+            int region = index.regionIndex(regionName);
+            List<ChartSeries> lines = new ArrayList<>();
+            if (region < 0) {
+                return lines;
+            }
+            int[] dates = index.regionDates(region);
+            if (cases) {
+                lines.add(new ChartSeries("Cases", CASES_COLOR, dates, index.regionCases(region)));
+            }
+            if (recoveries) {
+                lines.add(new ChartSeries("Recoveries", RECOVERIES_COLOR, dates, index.regionRecoveries(region)));
+            }
+            if (deaths) {
+                lines.add(new ChartSeries("Deaths", DEATHS_COLOR, dates, index.regionDeaths(region)));
+            }
+            if (average) {
+                MovingAverageSeries series = dataset.getMovingAverages(window, centered)[region];
+                lines.add(new ChartSeries(window + "-day average" + (centered ? " (centered)" : ""),
+                    AVERAGE_COLOR, series.dates(), series.values()));
+            }
+            return lines;
+        }, chart::setSeries);
+    }
+    
     private JPanel createAnalysisPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         
@@ -510,22 +1156,38 @@ public class CovidAnalysisGUI extends JFrame {
             "- 7-day moving averages\n" +
             "- Case fatality rate by region\n" +
             "- Recovery efficiency analysis\n" +
-            "- Outbreak detection algorithms\n" +
-            "- Predictive modeling\n" +
+            "- Outbreak detection (EWMA baseline + CUSUM alarm)\n" +
+            "- Predictive modeling (log-linear growth forecasts)\n" +
             "- Comparative regional charts\n\n" +
             
             "Implementation Status:\n" +
             "✓ Basic statistics calculated\n" +
             "✓ Data parsing and validation\n" +
             "✓ Regional comparisons\n" +
-            "○ Charts and graphs (next phase)\n" +
-            "○ Predictive analytics (future)\n" +
-            "○ Export functionality (future)"
+            "✓ Outbreak detection (live, below)\n" +
+            "✓ Growth forecasts (live, below)\n" +
+            "✓ Charts and graphs (Charts tab)\n" +
+            "✓ Export functionality (Data View tab)"
         );
         
         JScrollPane scrollPane = new JScrollPane(analysisArea);
         scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        // Filled in by the outbreak detector as data is loaded and appended
+        alertsArea = new JTextArea("No data loaded yet.");
+        alertsArea.setEditable(false);
+        alertsArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        forecastArea = new JTextArea("No data loaded yet.");
+        forecastArea.setEditable(false);
+        forecastArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        
+        JTabbedPane liveTabs = new JTabbedPane();
+        liveTabs.addTab("Outbreak Alerts", new JScrollPane(alertsArea));
+        liveTabs.addTab("Growth Forecasts", new JScrollPane(forecastArea));
+        
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, scrollPane, liveTabs);
+        split.setResizeWeight(0.5);
+        panel.add(split, BorderLayout.CENTER);
         
         return panel;
     }
@@ -536,6 +1198,7 @@ public class CovidAnalysisGUI extends JFrame {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        PipelineMetrics.register();
         
         SwingUtilities.invokeLater(() -> {
             CovidAnalysisGUI gui = new CovidAnalysisGUI();
@@ -543,4 +1206,4 @@ public class CovidAnalysisGUI extends JFrame {
             System.out.println("Enhanced COVID-19 Analysis GUI launched successfully!");
         });
     }
-}
\ No newline at end of file
+}
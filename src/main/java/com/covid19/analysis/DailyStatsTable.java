@@ -0,0 +1,278 @@
+package com.covid19.analysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar, primitive-typed store for the daily_stats data.
+ * Every row is parsed once on load; analyses read the int columns directly
+ * instead of re-parsing strings. Region names are dictionary-encoded and
+ * dates are stored as epoch days.
+ */
+public class DailyStatsTable {
+    public static final String[] COLUMN_NAMES = {"Daily ID", "Region", "Date", "New Cases", "Recoveries", "Deaths"};
+
+    // Largest array the VM reliably allocates
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    // Initial daily-id bytes reserved per row
+    private static final int ID_BYTES_PER_ROW = 4;
+
+    private final StringDictionary regions;
+
+    // Daily ids are kept as packed bytes; row i spans idOffsets[i]..idOffsets[i + 1]
+    private byte[] idBytes;
+    private int[] idOffsets;
+
+    private int[] regionIds;
+    private int[] dates;
+    private int[] cases;
+    private int[] recoveries;
+    private int[] deaths;
+    private int size;
+
+    public DailyStatsTable() {
+        this(new StringDictionary(), 1024);
+    }
+
+    public DailyStatsTable(StringDictionary regions, int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        this.regions = regions;
+        this.idBytes = new byte[(int) Math.min(MAX_ARRAY_LENGTH, (long) capacity * ID_BYTES_PER_ROW)];
+        this.idOffsets = new int[capacity + 1];
+        this.regionIds = new int[capacity];
+        this.dates = new int[capacity];
+        this.cases = new int[capacity];
+        this.recoveries = new int[capacity];
+        this.deaths = new int[capacity];
+    }
+
+    /**
+     * Wraps columns that were read back in bulk (see {@link SnapshotCache}); the arrays are not copied
+     */
+    DailyStatsTable(StringDictionary regions, byte[] idBytes, int[] idOffsets, int[] regionIds, int[] dates,
+                    int[] cases, int[] recoveries, int[] deaths, int size) {
+        this.regions = regions;
+        this.idBytes = idBytes;
+        this.idOffsets = idOffsets;
+        this.regionIds = regionIds;
+        this.dates = dates;
+        this.cases = cases;
+        this.recoveries = recoveries;
+        this.deaths = deaths;
+        this.size = size;
+    }
+
+    public void addRow(String dailyId, String region, int epochDay, int newCases, int newRecoveries, int newDeaths) {
+        byte[] id = dailyId.getBytes(StandardCharsets.UTF_8);
+        addRow(id, 0, id.length, regions.intern(region), epochDay, newCases, newRecoveries, newDeaths);
+    }
+
+    /**
+     * Appends one row; the daily id is copied out of idSource[idOffset, idOffset + idLength)
+     */
+    public void addRow(byte[] idSource, int idOffset, int idLength, int regionId,
+                       int epochDay, int newCases, int newRecoveries, int newDeaths) {
+        int idStart = reserveRow(idLength);
+        System.arraycopy(idSource, idOffset, idBytes, idStart, idLength);
+        setRow(regionId, epochDay, newCases, newRecoveries, newDeaths);
+    }
+
+    /**
+     * Appends one row whose daily id is read directly from a (memory-mapped) buffer
+     */
+    public void addRow(ByteBuffer idSource, int idOffset, int idLength, int regionId,
+                       int epochDay, int newCases, int newRecoveries, int newDeaths) {
+        int idStart = reserveRow(idLength);
+        idSource.get(idOffset, idBytes, idStart, idLength);
+        setRow(regionId, epochDay, newCases, newRecoveries, newDeaths);
+    }
+
+    /**
+     * Appends every row of another table, in order, re-mapping its region ids
+     * into this table's dictionary. Used to merge tables parsed in parallel.
+     */
+    public void appendAll(DailyStatsTable other) {
+        int[] remap = new int[other.regions.size()];
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = regions.intern(other.regions.get(id));
+        }
+
+        int count = other.size;
+        ensureCapacity(size + count);
+        int idStart = idOffsets[size];
+        int idLength = other.idOffsets[count];
+        ensureIdCapacity((long) idStart + idLength);
+        System.arraycopy(other.idBytes, 0, idBytes, idStart, idLength);
+        for (int i = 1; i <= count; i++) {
+            idOffsets[size + i] = idStart + other.idOffsets[i];
+        }
+
+        for (int i = 0; i < count; i++) {
+            regionIds[size + i] = remap[other.regionIds[i]];
+        }
+        System.arraycopy(other.dates, 0, dates, size, count);
+        System.arraycopy(other.cases, 0, cases, size, count);
+        System.arraycopy(other.recoveries, 0, recoveries, size, count);
+        System.arraycopy(other.deaths, 0, deaths, size, count);
+        size += count;
+    }
+
+    /**
+     * Concatenates tables parsed in parallel, in list order, into one table sized exactly up front.
+     * Each part's columns are copied into its own range and its list slot is cleared right after,
+     * so a part can be collected as soon as it has been copied.
+     */
+    static DailyStatsTable concat(List<DailyStatsTable> parts) {
+        long totalRows = 0;
+        long totalIdBytes = 0;
+        for (DailyStatsTable part : parts) {
+            totalRows += part.size;
+            totalIdBytes += part.idOffsets[part.size];
+        }
+        if (totalRows > MAX_ARRAY_LENGTH - 1) {
+            throw new IllegalStateException("Table exceeds " + (MAX_ARRAY_LENGTH - 1) + " rows");
+        }
+        if (totalIdBytes > MAX_ARRAY_LENGTH) {
+            throw new IllegalStateException("Daily ids exceed " + MAX_ARRAY_LENGTH + " bytes");
+        }
+
+        int rows = (int) totalRows;
+        DailyStatsTable merged = new DailyStatsTable(new StringDictionary(), new byte[(int) totalIdBytes],
+            new int[rows + 1], new int[rows], new int[rows], new int[rows], new int[rows], new int[rows], 0);
+        for (int i = 0; i < parts.size(); i++) {
+            merged.appendAll(parts.get(i));
+            parts.set(i, null);
+        }
+        return merged;
+    }
+
+    private int reserveRow(int idLength) {
+        ensureCapacity(size + 1);
+        int idStart = idOffsets[size];
+        ensureIdCapacity((long) idStart + idLength);
+        idOffsets[size + 1] = idStart + idLength;
+        return idStart;
+    }
+
+    private void setRow(int regionId, int epochDay, int newCases, int newRecoveries, int newDeaths) {
+        regionIds[size] = regionId;
+        dates[size] = epochDay;
+        cases[size] = newCases;
+        recoveries[size] = newRecoveries;
+        deaths[size] = newDeaths;
+        size++;
+    }
+
+    private void ensureIdCapacity(long required) {
+        if (required <= idBytes.length) {
+            return;
+        }
+        if (required > MAX_ARRAY_LENGTH) {
+            throw new IllegalStateException("Daily ids exceed " + MAX_ARRAY_LENGTH + " bytes");
+        }
+        idBytes = Arrays.copyOf(idBytes, (int) Math.min(MAX_ARRAY_LENGTH, Math.max(idBytes.length * 2L, required)));
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= regionIds.length) {
+            return;
+        }
+        if (required < 0 || required > MAX_ARRAY_LENGTH - 1) {
+            throw new IllegalStateException("Table exceeds " + (MAX_ARRAY_LENGTH - 1) + " rows");
+        }
+        int capacity = (int) Math.min(MAX_ARRAY_LENGTH - 1,
+            Math.max(required, regionIds.length + (long) (regionIds.length >> 1)));
+        idOffsets = Arrays.copyOf(idOffsets, capacity + 1);
+        regionIds = Arrays.copyOf(regionIds, capacity);
+        dates = Arrays.copyOf(dates, capacity);
+        cases = Arrays.copyOf(cases, capacity);
+        recoveries = Arrays.copyOf(recoveries, capacity);
+        deaths = Arrays.copyOf(deaths, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public StringDictionary regions() {
+        return regions;
+    }
+
+    public String dailyId(int row) {
+        return new String(idBytes, idOffsets[row], idOffsets[row + 1] - idOffsets[row], StandardCharsets.UTF_8);
+    }
+
+    public int regionId(int row) {
+        return regionIds[row];
+    }
+
+    public String regionName(int row) {
+        return regions.get(regionIds[row]);
+    }
+
+    public int date(int row) {
+        return dates[row];
+    }
+
+    public String dateLabel(int row) {
+        return DateCodec.format(dates[row]);
+    }
+
+    public int cases(int row) {
+        return cases[row];
+    }
+
+    public int recoveries(int row) {
+        return recoveries[row];
+    }
+
+    public int deaths(int row) {
+        return deaths[row];
+    }
+
+    /**
+     * Read-only view of the rows added so far. It shares the column arrays instead of
+     * copying them; rows are only ever appended past the current size, so the view stays
+     * valid (and safe to read from another thread once handed over) while this table grows.
+     */
+    public DailyStatsView view() {
+        return new DailyStatsView(this, size, idBytes, idOffsets, regions.names(), regions.size(),
+            regionIds, dates, cases, recoveries, deaths);
+    }
+
+    // Raw column access for tight loops; only the first size() entries are valid
+
+    byte[] idBytesColumn() {
+        return idBytes;
+    }
+
+    int[] idOffsetsColumn() {
+        return idOffsets;
+    }
+
+    public int[] regionIdColumn() {
+        return regionIds;
+    }
+
+    public int[] dateColumn() {
+        return dates;
+    }
+
+    public int[] casesColumn() {
+        return cases;
+    }
+
+    public int[] recoveriesColumn() {
+        return recoveries;
+    }
+
+    public int[] deathsColumn() {
+        return deaths;
+    }
+}
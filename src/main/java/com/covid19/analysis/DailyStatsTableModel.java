@@ -0,0 +1,71 @@
+package com.covid19.analysis;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model for the Data View tab that reads cells lazily from a {@link DailyStatsView}.
+ * JTable only asks for the rows it paints, so scrolling through millions of rows
+ * never copies them; sorting and filtering are index permutations built off the EDT.
+ * Must only be used on the Event Dispatch Thread.
+ */
+public class DailyStatsTableModel extends AbstractTableModel {
+    private static final Class<?>[] COLUMN_TYPES = {
+        String.class, String.class, String.class, Integer.class, Integer.class, Integer.class
+    };
+
+    private DailyStatsView view = new DailyStatsTable().view();
+
+    /**
+     * Shows a new view. If both views are in plain table order over the same table and
+     * the new one only adds rows, just the inserted rows are announced so the selection
+     * and scroll position survive live appends; a reloaded table always repaints in full.
+     */
+    public void setView(DailyStatsView next) {
+        DailyStatsView previous = view;
+        view = next;
+
+        int before = previous.getRowCount();
+        int after = next.getRowCount();
+        if (previous.isUnordered() && next.isUnordered() && next.isSameTable(previous)
+                && after >= before && before > 0) {
+            if (after > before) {
+                fireTableRowsInserted(before, after - 1);
+            }
+        } else {
+            fireTableDataChanged();
+        }
+    }
+
+    public DailyStatsView getView() {
+        return view;
+    }
+
+    @Override
+    public int getRowCount() {
+        return view.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return DailyStatsTable.COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        String name = DailyStatsTable.COLUMN_NAMES[column];
+        if (column == view.getSortColumn()) {
+            return name + (view.isAscending() ? " ▲" : " ▼");
+        }
+        return name;
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_TYPES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return view.getValueAt(row, column);
+    }
+}
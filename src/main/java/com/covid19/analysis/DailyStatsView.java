@@ -0,0 +1,298 @@
+package com.covid19.analysis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Immutable window onto the first rows of a {@link DailyStatsTable}, optionally
+ * filtered and sorted. The column arrays are shared with the table, so a view costs
+ * nothing to create; filtering and sorting only add an int permutation of the rows
+ * that are shown. Cells are decoded on demand, one visible row at a time.
+ */
+public class DailyStatsView {
+    public static final int NO_SORT = -1;
+
+    // The table the columns belong to, to tell an append from a reload
+    private final DailyStatsTable table;
+    private final int size;
+    private final byte[] idBytes;
+    private final int[] idOffsets;
+    private final String[] regionNames;
+    private final int regionCount;
+    private final int[] regionIds;
+    private final int[] dates;
+    private final int[] cases;
+    private final int[] recoveries;
+    private final int[] deaths;
+
+    // Table rows in display order, or null to show rows 0..size-1 as they are
+    private final int[] order;
+    private final String regionFilter;
+    private final int sortColumn;
+    private final boolean ascending;
+    // Kept so a reselect after an append only handles the new rows: which regions pass
+    // the filter (null without one) and the alphabetical rank of each region (region sort only)
+    private final boolean[] filterMatches;
+    private final int[] regionRanks;
+
+    DailyStatsView(DailyStatsTable table, int size, byte[] idBytes, int[] idOffsets, String[] regionNames,
+                   int regionCount, int[] regionIds, int[] dates, int[] cases, int[] recoveries, int[] deaths) {
+        this(table, size, idBytes, idOffsets, regionNames, regionCount, regionIds, dates, cases, recoveries, deaths,
+            null, "", NO_SORT, true, null, null);
+    }
+
+    private DailyStatsView(DailyStatsTable table, int size, byte[] idBytes, int[] idOffsets, String[] regionNames,
+                           int regionCount, int[] regionIds, int[] dates, int[] cases, int[] recoveries, int[] deaths,
+                           int[] order, String regionFilter, int sortColumn, boolean ascending,
+                           boolean[] filterMatches, int[] regionRanks) {
+        this.table = table;
+        this.size = size;
+        this.idBytes = idBytes;
+        this.idOffsets = idOffsets;
+        this.regionNames = regionNames;
+        this.regionCount = regionCount;
+        this.regionIds = regionIds;
+        this.dates = dates;
+        this.cases = cases;
+        this.recoveries = recoveries;
+        this.deaths = deaths;
+        this.order = order;
+        this.regionFilter = regionFilter;
+        this.sortColumn = sortColumn;
+        this.ascending = ascending;
+        this.filterMatches = filterMatches;
+        this.regionRanks = regionRanks;
+    }
+
+    /**
+     * Returns a view of the same rows restricted to regions whose name contains the
+     * filter text (ignoring case) and sorted, stably, by one column.
+     * Runs in O(rows log rows); call it off the Event Dispatch Thread.
+     *
+     * @param sortColumn index into {@link DailyStatsTable#COLUMN_NAMES}, or {@link #NO_SORT}
+     */
+    public DailyStatsView select(String regionFilter, int sortColumn, boolean ascending) {
+        String filter = regionFilter == null ? "" : regionFilter.trim();
+        boolean[] matches = filter.isEmpty() ? null : matchRegions(filter, null);
+        int[] rank = sortColumn == 1 ? regionRanks() : null;
+        int[] rows = null;
+
+        if (matches != null) {
+            rows = matchingRows(matches, 0, size);
+        }
+
+        if (sortColumn != NO_SORT) {
+            if (rows == null) {
+                rows = IndexSort.identity(size);
+            }
+            IndexSort.sort(rows, rowComparator(sortColumn, ascending, rank));
+        }
+
+        return new DailyStatsView(table, size, idBytes, idOffsets, regionNames, regionCount, regionIds, dates,
+            cases, recoveries, deaths, rows, filter, sortColumn, ascending, matches, rank);
+    }
+
+    /**
+     * Re-applies this view's filter and sort to a newer view of the same (or a reloaded) table.
+     * When the newer view only adds rows to this view's table, just those rows are filtered,
+     * sorted and merged into the existing order, so an append costs O(new rows log new rows + shown rows).
+     */
+    public DailyStatsView reselect(DailyStatsView newer) {
+        if (isUnordered()) {
+            return newer;
+        }
+        if (!newer.isSameTable(this) || newer.size < size) {
+            return newer.select(regionFilter, sortColumn, ascending);
+        }
+
+        boolean[] matches = filterMatches == null ? null : newer.matchRegions(regionFilter, filterMatches);
+        int[] rank = regionRanks;
+        if (sortColumn == 1 && (rank == null || rank.length != newer.regionCount)) {
+            rank = newer.regionRanks(); // new regions shift the alphabetical ranks
+        }
+        int[] added = matches == null ? rangeOf(size, newer.size) : newer.matchingRows(matches, size, newer.size);
+        int[] rows;
+        if (sortColumn == NO_SORT) {
+            rows = concat(order, added);
+        } else {
+            IndexSort.IntComparator comparator = newer.rowComparator(sortColumn, ascending, rank);
+            IndexSort.sort(added, comparator);
+            rows = merge(order, added, comparator);
+        }
+
+        return new DailyStatsView(newer.table, newer.size, newer.idBytes, newer.idOffsets, newer.regionNames,
+            newer.regionCount, newer.regionIds, newer.dates, newer.cases, newer.recoveries, newer.deaths,
+            rows, regionFilter, sortColumn, ascending, matches, rank);
+    }
+
+    /**
+     * Which regions contain the filter text (ignoring case); regions already decided in known are copied
+     */
+    private boolean[] matchRegions(String filter, boolean[] known) {
+        String needle = filter.toLowerCase(Locale.ROOT);
+        int from = known == null ? 0 : Math.min(known.length, regionCount);
+        boolean[] matches = known == null ? new boolean[regionCount] : Arrays.copyOf(known, regionCount);
+        for (int region = from; region < regionCount; region++) {
+            matches[region] = regionNames[region].toLowerCase(Locale.ROOT).contains(needle);
+        }
+        return matches;
+    }
+
+    /**
+     * Rows in [from, to) whose region matches, in table order; the row scan is a single array lookup
+     */
+    private int[] matchingRows(boolean[] matches, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (matches[regionIds[i]]) {
+                count++;
+            }
+        }
+        int[] rows = new int[count];
+        for (int i = from, j = 0; i < to; i++) {
+            if (matches[regionIds[i]]) {
+                rows[j++] = i;
+            }
+        }
+        return rows;
+    }
+
+    private static int[] rangeOf(int from, int to) {
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = from + i;
+        }
+        return rows;
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] rows = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, rows, first.length, second.length);
+        return rows;
+    }
+
+    /**
+     * Merges two sorted permutations; on ties the earlier (older) rows stay first, as in a stable sort
+     */
+    private static int[] merge(int[] older, int[] added, IndexSort.IntComparator comparator) {
+        int[] rows = new int[older.length + added.length];
+        int left = 0, right = 0, out = 0;
+        while (left < older.length && right < added.length) {
+            rows[out++] = comparator.compare(added[right], older[left]) < 0 ? added[right++] : older[left++];
+        }
+        while (left < older.length) {
+            rows[out++] = older[left++];
+        }
+        while (right < added.length) {
+            rows[out++] = added[right++];
+        }
+        return rows;
+    }
+
+    private IndexSort.IntComparator rowComparator(int column, boolean ascending, int[] rank) {
+        IndexSort.IntComparator comparator = comparator(column, rank);
+        return ascending ? comparator : (a, b) -> comparator.compare(b, a);
+    }
+
+    private IndexSort.IntComparator comparator(int column, int[] rank) {
+        switch (column) {
+            case 0:
+                return (a, b) -> Arrays.compareUnsigned(idBytes, idOffsets[a], idOffsets[a + 1],
+                    idBytes, idOffsets[b], idOffsets[b + 1]);
+            case 1:
+                return (a, b) -> Integer.compare(rank[regionIds[a]], rank[regionIds[b]]);
+            case 2:
+                return (a, b) -> Integer.compare(dates[a], dates[b]);
+            case 3:
+                return (a, b) -> Integer.compare(cases[a], cases[b]);
+            case 4:
+                return (a, b) -> Integer.compare(recoveries[a], recoveries[b]);
+            case 5:
+                return (a, b) -> Integer.compare(deaths[a], deaths[b]);
+            default:
+                throw new IllegalArgumentException("No such column: " + column);
+        }
+    }
+
+    /**
+     * Alphabetical position of every region, so rows compare by name without touching strings
+     */
+    private int[] regionRanks() {
+        int[] byName = IndexSort.identity(regionCount);
+        IndexSort.sort(byName, (a, b) -> regionNames[a].compareTo(regionNames[b]));
+        int[] rank = new int[regionCount];
+        for (int position = 0; position < byName.length; position++) {
+            rank[byName[position]] = position;
+        }
+        return rank;
+    }
+
+    /**
+     * Number of rows shown (after filtering)
+     */
+    public int getRowCount() {
+        return order == null ? size : order.length;
+    }
+
+    /**
+     * Number of rows in the underlying table when the view was taken
+     */
+    public int getTableSize() {
+        return size;
+    }
+
+    /**
+     * True when both views were taken from the same table instance, so the later one
+     * holds the earlier one's rows followed by any rows appended since
+     */
+    public boolean isSameTable(DailyStatsView other) {
+        return table == other.table;
+    }
+
+    /**
+     * True when rows are shown in table order with nothing filtered out
+     */
+    public boolean isUnordered() {
+        return order == null;
+    }
+
+    /**
+     * Table row displayed at the given position
+     */
+    public int tableRow(int position) {
+        return order == null ? position : order[position];
+    }
+
+    public Object getValueAt(int position, int column) {
+        int row = tableRow(position);
+        switch (column) {
+            case 0:
+                return new String(idBytes, idOffsets[row], idOffsets[row + 1] - idOffsets[row], StandardCharsets.UTF_8);
+            case 1:
+                return regionNames[regionIds[row]];
+            case 2:
+                return DateCodec.format(dates[row]);
+            case 3:
+                return cases[row];
+            case 4:
+                return recoveries[row];
+            case 5:
+                return deaths[row];
+            default:
+                throw new IllegalArgumentException("No such column: " + column);
+        }
+    }
+
+    public String getRegionFilter() {
+        return regionFilter;
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+}
@@ -0,0 +1,294 @@
+package com.covid19.analysis;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Runs the analyses inside the database (the DailyStats and Regions tables that
+ * {@link BulkLoader} fills), so the client only holds per-region results, never the rows.
+ * Totals and peaks come from one GROUP BY query joined with a ROW_NUMBER() peak pick,
+ * moving averages from an AVG() window function, prominent peaks from the daily series
+ * streamed in order. Results are streamed with a forward-only cursor and a large fetch size.
+ * Regions are indexed in name order in every result.
+ */
+public class DatabaseBackend implements AnalysisBackend {
+    public static final int DEFAULT_FETCH_SIZE = 10_000;
+
+    // Ties go to the earliest report, like the in-memory pass (which keeps the first maximum it meets)
+    private static final String SNAPSHOT_SQL =
+        "SELECT r.region_name, g.report_rows, g.cases, g.recoveries, g.deaths, g.first_date, g.last_date, "
+            + "p.new_cases, p.report_date "
+            + "FROM (SELECT region_id, COUNT(*) AS report_rows, SUM(CAST(new_cases AS BIGINT)) AS cases, "
+            + "SUM(CAST(recoveries AS BIGINT)) AS recoveries, SUM(CAST(deaths AS BIGINT)) AS deaths, "
+            + "MIN(report_date) AS first_date, MAX(report_date) AS last_date "
+            + "FROM DailyStats GROUP BY region_id) g "
+            + "JOIN Regions r ON r.region_id = g.region_id "
+            + "JOIN (SELECT region_id, new_cases, report_date, ROW_NUMBER() OVER "
+            + "(PARTITION BY region_id ORDER BY new_cases DESC, report_date, daily_id) AS rn FROM DailyStats) p "
+            + "ON p.region_id = g.region_id AND p.rn = 1 "
+            + "ORDER BY r.region_name";
+
+    private static final String PEAK_SERIES_SQL =
+        "SELECT r.region_name, d.report_date, d.new_cases FROM DailyStats d "
+            + "JOIN Regions r ON r.region_id = d.region_id "
+            + "ORDER BY r.region_name, d.report_date, d.daily_id";
+
+    private static final String RANGE_SQL =
+        "SELECT COUNT(*), SUM(CAST(d.new_cases AS BIGINT)), SUM(CAST(d.recoveries AS BIGINT)), "
+            + "SUM(CAST(d.deaths AS BIGINT)) FROM DailyStats d ";
+
+    private final ConnectionPool pool;
+    private final int fetchSize;
+
+    public DatabaseBackend(ConnectionPool pool) {
+        this(pool, DEFAULT_FETCH_SIZE);
+    }
+
+    public DatabaseBackend(ConnectionPool pool, int fetchSize) {
+        this.pool = pool;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public String getName() {
+        return "Database";
+    }
+
+    @Override
+    public AggregateSnapshot snapshot() throws SQLException {
+        int capacity = 64;
+        int count = 0;
+        String[] names = new String[capacity];
+        long[] rows = new long[capacity];
+        long[] cases = new long[capacity];
+        long[] recoveries = new long[capacity];
+        long[] deaths = new long[capacity];
+        int[] peakCases = new int[capacity];
+        int[] peakDates = new int[capacity];
+        long totalRows = 0, totalCases = 0, totalRecoveries = 0, totalDeaths = 0;
+        int firstDate = DateCodec.INVALID, lastDate = DateCodec.INVALID;
+
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.DB);
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SNAPSHOT_SQL)) {
+            stmt.setFetchSize(fetchSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (count == capacity) {
+                        capacity *= 2;
+                        names = Arrays.copyOf(names, capacity);
+                        rows = Arrays.copyOf(rows, capacity);
+                        cases = Arrays.copyOf(cases, capacity);
+                        recoveries = Arrays.copyOf(recoveries, capacity);
+                        deaths = Arrays.copyOf(deaths, capacity);
+                        peakCases = Arrays.copyOf(peakCases, capacity);
+                        peakDates = Arrays.copyOf(peakDates, capacity);
+                    }
+                    names[count] = rs.getString(1);
+                    rows[count] = rs.getLong(2);
+                    cases[count] = rs.getLong(3);
+                    recoveries[count] = rs.getLong(4);
+                    deaths[count] = rs.getLong(5);
+                    int first = epochDay(rs.getDate(6));
+                    int last = epochDay(rs.getDate(7));
+
+                    // Like the in-memory pass, a region only has a peak once it reports a positive count
+                    int peak = rs.getInt(8);
+                    peakCases[count] = Math.max(0, peak);
+                    peakDates[count] = peak > 0 ? epochDay(rs.getDate(9)) : DateCodec.INVALID;
+
+                    totalRows += rows[count];
+                    totalCases += cases[count];
+                    totalRecoveries += recoveries[count];
+                    totalDeaths += deaths[count];
+                    firstDate = firstDate == DateCodec.INVALID ? first : Math.min(firstDate, first);
+                    lastDate = lastDate == DateCodec.INVALID ? last : Math.max(lastDate, last);
+                    count++;
+                }
+            }
+        }
+        sample.stop(count, 0);
+
+        return new AggregateSnapshot(totalRows, totalCases, totalRecoveries, totalDeaths, firstDate, lastDate,
+            Arrays.copyOf(names, count), Arrays.copyOf(rows, count), Arrays.copyOf(cases, count),
+            Arrays.copyOf(recoveries, count), Arrays.copyOf(deaths, count),
+            Arrays.copyOf(peakCases, count), Arrays.copyOf(peakDates, count));
+    }
+
+    /**
+     * Streams the window-function averages region by region; only the averages are kept,
+     * so memory is proportional to the output rather than to the DailyStats table.
+     * Region names are mapped through the caller's snapshot rather than a second aggregation.
+     */
+    @Override
+    public MovingAverageSeries[] movingAverages(AggregateSnapshot regions, int window, boolean centered)
+            throws SQLException {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1 day: " + window);
+        }
+        MovingAverageSeries[] result = new MovingAverageSeries[regions.getRegionCount()];
+
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.DB);
+        long fetched = 0;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(movingAverageSql(window, centered))) {
+            stmt.setFetchSize(fetchSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                String currentName = null;
+                double[] values = new double[16];
+                int[] dates = new int[16];
+                int length = 0;
+
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    if (!name.equals(currentName)) {
+                        store(result, regions, currentName, window, centered, values, dates, length);
+                        currentName = name;
+                        values = new double[16];
+                        dates = new int[16];
+                        length = 0;
+                    }
+                    if (length == values.length) {
+                        values = Arrays.copyOf(values, length * 2);
+                        dates = Arrays.copyOf(dates, length * 2);
+                    }
+                    dates[length] = epochDay(rs.getDate(2));
+                    values[length] = rs.getDouble(3);
+                    length++;
+                    fetched++;
+                }
+                store(result, regions, currentName, window, centered, values, dates, length);
+            }
+        }
+        sample.stop(fetched, 0);
+
+        // Regions with fewer reports than the window get an empty series
+        for (int region = 0; region < result.length; region++) {
+            if (result[region] == null) {
+                result[region] = new MovingAverageSeries(regions.getRegionName(region), window, centered,
+                    new double[0], new int[0], 0);
+            }
+        }
+        return result;
+    }
+
+    private static void store(MovingAverageSeries[] result, AggregateSnapshot regions, String name, int window,
+                              boolean centered, double[] values, int[] dates, int length) {
+        if (name == null) {
+            return;
+        }
+        int region = regions.regionIndex(name);
+        if (region >= 0) {
+            result[region] = new MovingAverageSeries(name, window, centered, values, dates, length);
+        }
+    }
+
+    /**
+     * Peak detection is sequential per region, so the daily series is streamed in order
+     * through a {@link PeakEngine}; the client keeps per-region state only, not the rows
+     */
+    @Override
+    public RegionPeaks[] peaks(AggregateSnapshot regions, int topK, double prominence, int minSeparation,
+                               int smoothingWindow) throws SQLException {
+        PeakEngine engine = new PeakEngine(topK, prominence, minSeparation, smoothingWindow);
+
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.DB);
+        long fetched = 0;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(PEAK_SERIES_SQL)) {
+            stmt.setFetchSize(fetchSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                String currentName = null;
+                int region = -1;
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    if (!name.equals(currentName)) {
+                        currentName = name;
+                        region = regions.regionIndex(name);
+                    }
+                    if (region >= 0) {
+                        engine.add(region, epochDay(rs.getDate(2)), rs.getInt(3));
+                    }
+                    fetched++;
+                }
+            }
+        }
+        sample.stop(fetched, 0);
+
+        RegionPeaks[] result = new RegionPeaks[regions.getRegionCount()];
+        for (int region = 0; region < result.length; region++) {
+            result[region] = engine.peaks(region, regions.getRegionName(region));
+        }
+        return result;
+    }
+
+    /**
+     * Window bounds are literals because SQL Server does not accept parameters in ROWS BETWEEN.
+     * A trailing average covers the row and the window - 1 before it; a centered one is dated
+     * at the middle row, matching {@link MovingAverageEngine}. Rows without a full window are dropped.
+     */
+    static String movingAverageSql(int window, boolean centered) {
+        int following = centered ? (window - 1) / 2 : 0;
+        int preceding = window - 1 - following;
+        String order = "PARTITION BY region_id ORDER BY report_date, daily_id";
+        return "SELECT r.region_name, m.report_date, m.average FROM ("
+            + "SELECT region_id, report_date, daily_id, "
+            + "AVG(CAST(new_cases AS FLOAT)) OVER (" + order + " ROWS BETWEEN " + preceding + " PRECEDING AND "
+            + following + " FOLLOWING) AS average, "
+            + "ROW_NUMBER() OVER (" + order + ") AS rn, "
+            + "COUNT(*) OVER (PARTITION BY region_id) AS reports FROM DailyStats) m "
+            + "JOIN Regions r ON r.region_id = m.region_id "
+            + "WHERE m.rn > " + preceding + " AND m.rn <= m.reports - " + following + " "
+            + "ORDER BY r.region_name, m.report_date, m.daily_id";
+    }
+
+    @Override
+    public RangeStats range(String regionName, int fromDate, int toDate) throws SQLException {
+        String sql = regionName == null
+            ? RANGE_SQL + "WHERE d.report_date BETWEEN ? AND ?"
+            : RANGE_SQL + "JOIN Regions r ON r.region_id = d.region_id "
+                + "WHERE r.region_name = ? AND d.report_date BETWEEN ? AND ?";
+
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.DB);
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int parameter = 1;
+            if (regionName != null) {
+                if (!regionExists(conn, regionName)) {
+                    return null;
+                }
+                stmt.setString(parameter++, regionName);
+            }
+            stmt.setDate(parameter++, Date.valueOf(LocalDate.ofEpochDay(fromDate)));
+            stmt.setDate(parameter, Date.valueOf(LocalDate.ofEpochDay(toDate)));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new RangeStats(fromDate, toDate, rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+            }
+        } finally {
+            sample.stop(1, 0);
+        }
+    }
+
+    private static boolean regionExists(Connection conn, String regionName) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM Regions WHERE region_name = ?")) {
+            stmt.setString(1, regionName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static int epochDay(Date date) {
+        return date == null ? DateCodec.INVALID : (int) date.toLocalDate().toEpochDay();
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+}
@@ -4,38 +4,62 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
+/**
+ * Shared connection pool for the application database.
+ * The URL defaults to the local SQL Server instance and can be pointed elsewhere
+ * (e.g. an embedded H2 database) with -Dcovid19.db.url=...; the pool size with
+ * -Dcovid19.db.poolSize=N. Callers must close the connections they borrow.
+ */
 public class DatabaseConnection {
     // Use shared memory connection - works without TCP/IP configuration
-    private static final String URL = "jdbc:sqlserver://localhost;databaseName=Covid19Analysis;integratedSecurity=true;";
+    private static final String DEFAULT_URL = "jdbc:sqlserver://localhost;databaseName=Covid19Analysis;integratedSecurity=true;";
+    private static final String URL = System.getProperty("covid19.db.url", DEFAULT_URL);
+    private static final int POOL_SIZE = Integer.getInteger("covid19.db.poolSize", ConnectionPool.DEFAULT_MAX_SIZE);
     
-    private static Connection connection;
+    private static ConnectionPool pool;
     
     static {
-        try {
-            Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
-            System.out.println("JDBC Driver loaded successfully!");
-        } catch (ClassNotFoundException e) {
-            System.err.println("Failed to load JDBC Driver: " + e.getMessage());
+        if (URL.startsWith("jdbc:sqlserver:")) {
+            try {
+                Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
+                System.out.println("JDBC Driver loaded successfully!");
+            } catch (ClassNotFoundException e) {
+                System.err.println("Failed to load JDBC Driver: " + e.getMessage());
+            }
         }
     }
     
     private DatabaseConnection() {}
     
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(URL, POOL_SIZE);
+        }
+        return pool;
+    }
+    
+    /**
+     * Borrows a pooled connection; closing it returns it to the pool
+     */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
-                connection = DriverManager.getConnection(URL);
+        ConnectionPool current = getPool();
+        boolean first = current.getConnectionsCreated() == 0;
+        try {
+            Connection connection = current.getConnection();
+            if (first) {
                 System.out.println("Database connected successfully!");
-            } catch (SQLException e) {
-                System.err.println("Database connection failed: " + e.getMessage());
+            }
+            return connection;
+        } catch (SQLException e) {
+            System.err.println("Database connection failed: " + e.getMessage());
+            if (URL.equals(DEFAULT_URL)) {
                 System.err.println("Trying alternative connection methods...");
                 
                 // Try alternative connection strings
                 tryAlternativeConnections();
-                throw e;
             }
+            throw e;
         }
-        return connection;
     }
     
     private static void tryAlternativeConnections() {
@@ -57,14 +81,15 @@ public class DatabaseConnection {
         }
     }
     
-    public static void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                System.out.println("Database connection closed.");
-            } catch (SQLException e) {
-                System.err.println("Error closing connection: " + e.getMessage());
-            }
+    /**
+     * Shuts the pool down; the next getConnection() starts a new one
+     */
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            System.out.println("Closing database pool: " + pool);
+            pool.close();
+            pool = null;
+            System.out.println("Database connection closed.");
         }
     }
     
@@ -0,0 +1,140 @@
+package com.covid19.analysis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the "MM d yyyy" dates used in daily_stats (e.g. "01 1 2025") to and from epoch days.
+ * Works on plain ints so dates can be stored in a primitive column.
+ */
+public final class DateCodec {
+    /** Returned by the parse methods when the token is not a valid date */
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    private DateCodec() {}
+
+    public static int parse(CharSequence text) {
+        int month = 0, day = 0, year = 0;
+        int field = 0;
+        int digits = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (field > 2 || digits == 9) {
+                    return INVALID;
+                }
+                int digit = c - '0';
+                if (field == 0) month = month * 10 + digit;
+                else if (field == 1) day = day * 10 + digit;
+                else year = year * 10 + digit;
+                digits++;
+            } else if (c == ' ' || c == '/' || c == '-') {
+                if (digits > 0) {
+                    field++;
+                    digits = 0;
+                }
+            } else {
+                return INVALID;
+            }
+        }
+        if (digits > 0) {
+            field++;
+        }
+        if (field != 3) {
+            return INVALID;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Parses the date held in buffer[from, to) without creating a String
+     */
+    public static int parse(ByteBuffer buffer, int from, int to) {
+        int month = 0, day = 0, year = 0;
+        int field = 0;
+        int digits = 0;
+
+        for (int i = from; i < to; i++) {
+            byte c = buffer.get(i);
+            if (c >= '0' && c <= '9') {
+                if (field > 2 || digits == 9) {
+                    return INVALID;
+                }
+                int digit = c - '0';
+                if (field == 0) month = month * 10 + digit;
+                else if (field == 1) day = day * 10 + digit;
+                else year = year * 10 + digit;
+                digits++;
+            } else if (c == ' ' || c == '/' || c == '-') {
+                if (digits > 0) {
+                    field++;
+                    digits = 0;
+                }
+            } else {
+                return INVALID;
+            }
+        }
+        if (digits > 0) {
+            field++;
+        }
+        if (field != 3) {
+            return INVALID;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Days since 1970-01-01 for the given civil date, or INVALID if the date does not exist
+     */
+    public static int toEpochDay(int year, int month, int day) {
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) || year < 1 || year > 9999) {
+            return INVALID;
+        }
+        // Howard Hinnant's days_from_civil
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Formats an epoch day back into the "MM d yyyy" form used by the data files
+     */
+    public static String format(int epochDay) {
+        int yearMonthDay = toYearMonthDay(epochDay);
+        return String.format("%02d %d %d", yearMonthDay / 100 % 100, yearMonthDay % 100, yearMonthDay / 10000);
+    }
+
+    /**
+     * Civil date of an epoch day packed as yyyymmdd, for writers that format dates without allocating
+     */
+    static int toYearMonthDay(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.covid19.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered, write-only file channel for the exporters. Numbers, dates and text are encoded
+ * straight into one direct buffer that is drained to the channel whenever it fills, so an
+ * export never holds more than the buffer however large the output, and no per-value
+ * strings are created. Written next to the target and moved into place by {@link #commit()},
+ * like the snapshot cache, so readers never see half a file.
+ */
+final class ExportChannel implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Largest value printed with fixed decimals; beyond that Double.toString is used
+    private static final double MAX_FIXED = 1e14;
+
+    private final Path target;
+    private final Path partial;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final byte[] digits = new byte[20];
+    private long written;
+    private boolean committed;
+
+    ExportChannel(Path target) throws IOException {
+        this.target = target;
+        this.partial = target.resolveSibling(target.getFileName() + ".tmp");
+        this.channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Bytes written so far, including what is still buffered
+     */
+    long getBytesWritten() {
+        return written + buffer.position();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        written += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // === TEXT ===
+
+    void put(byte value) throws IOException {
+        ensure(1);
+        buffer.put(value);
+    }
+
+    void put(byte[] bytes) throws IOException {
+        put(bytes, 0, bytes.length);
+    }
+
+    void put(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            ensure(1);
+            int chunk = Math.min(buffer.remaining(), length);
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * ASCII text such as field names and fixed punctuation
+     */
+    void putAscii(String text) throws IOException {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    void putDecimal(long value) throws IOException {
+        ensure(20);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                putAscii("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        while (length > 0) {
+            buffer.put(digits[--length]);
+        }
+    }
+
+    /**
+     * A finite double rounded to the given number of decimals (trailing zeros dropped)
+     */
+    void putDecimal(double value, int decimals) throws IOException {
+        if (Math.abs(value) >= MAX_FIXED) {
+            putAscii(Double.toString(value));
+            return;
+        }
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            put((byte) '-');
+        }
+        putDecimal(scaled / scale);
+        long fraction = scaled % scale;
+        if (fraction == 0) {
+            return;
+        }
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            decimals--;
+        }
+        ensure(decimals + 1);
+        buffer.put((byte) '.');
+        for (int i = decimals - 1; i >= 0; i--) {
+            digits[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        buffer.put(digits, 0, decimals);
+    }
+
+    /**
+     * An epoch day as yyyy-mm-dd
+     */
+    void putIsoDate(int epochDay) throws IOException {
+        int yearMonthDay = DateCodec.toYearMonthDay(epochDay);
+        int year = yearMonthDay / 10000;
+        ensure(10);
+        if (year < 1000 || year > 9999) {
+            putDecimal(year);
+        } else {
+            buffer.put((byte) ('0' + year / 1000)).put((byte) ('0' + year / 100 % 10))
+                .put((byte) ('0' + year / 10 % 10)).put((byte) ('0' + year % 10));
+        }
+        twoDigits(yearMonthDay / 100 % 100);
+        twoDigits(yearMonthDay % 100);
+    }
+
+    private void twoDigits(int value) throws IOException {
+        ensure(3);
+        buffer.put((byte) '-').put((byte) ('0' + value / 10)).put((byte) ('0' + value % 10));
+    }
+
+    /**
+     * UTF-8 text as a CSV field, quoted only when it holds a separator, quote or line break
+     */
+    void putCsvField(byte[] bytes, int offset, int length) throws IOException {
+        boolean quote = false;
+        for (int i = offset; i < offset + length && !quote; i++) {
+            byte b = bytes[i];
+            quote = b == ',' || b == '"' || b == '\n' || b == '\r';
+        }
+        if (!quote) {
+            put(bytes, offset, length);
+            return;
+        }
+        put((byte) '"');
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] == '"') {
+                put((byte) '"');
+            }
+            put(bytes[i]);
+        }
+        put((byte) '"');
+    }
+
+    /**
+     * UTF-8 text as a quoted JSON string; multi-byte sequences pass through unchanged
+     */
+    void putJsonString(byte[] bytes, int offset, int length) throws IOException {
+        put((byte) '"');
+        for (int i = offset; i < offset + length; i++) {
+            byte b = bytes[i];
+            if (b == '"' || b == '\\') {
+                ensure(2);
+                buffer.put((byte) '\\').put(b);
+            } else if (b >= 0 && b < 0x20) {
+                putAscii(String.format("\\u%04x", b));
+            } else {
+                put(b);
+            }
+        }
+        put((byte) '"');
+    }
+
+    // === BINARY (little-endian) ===
+
+    void putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+    }
+
+    void putDouble(double value) throws IOException {
+        ensure(8);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * A length-prefixed UTF-8 string
+     */
+    void putString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        put(bytes);
+    }
+
+    /**
+     * values[from, from + count), copied in buffer-sized chunks
+     */
+    void putInts(int[] values, int from, int count) throws IOException {
+        int end = from + count;
+        while (from < end) {
+            ensure(4);
+            int chunk = Math.min(buffer.remaining() / 4, end - from);
+            buffer.asIntBuffer().put(values, from, chunk);
+            buffer.position(buffer.position() + chunk * 4);
+            from += chunk;
+        }
+    }
+
+    /**
+     * Flushes, syncs and moves the file into place
+     */
+    void commit() throws IOException {
+        drain();
+        channel.force(false);
+        channel.close();
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    /**
+     * Closes the channel; an export that was never committed is deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            Files.deleteIfExists(partial);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.covid19.analysis;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fits a {@link GrowthForecast} to every region in parallel.
+ * Like {@link MovingAverageEngine}, the engine keeps the last {@code window} reports of each
+ * region in a ring buffer that rows are folded into in table order (O(1) per row), so after
+ * an append only the fits are redone. Fitting is a closed-form least-squares pass over at most
+ * {@code window} primitive values per region, split across the common fork/join pool.
+ */
+public class ForecastEngine {
+    // Regions per fork/join leaf; small enough to balance, large enough to amortize the task
+    private static final int REGIONS_PER_TASK = 256;
+    private static final double Z_95 = 1.959964;
+    // Student's t 97.5% quantiles for 1 to 5 degrees of freedom
+    private static final double[] T_975_TABLE = {12.7062, 4.3027, 3.1824, 2.7764, 2.5706};
+
+    private final int window;
+    private final int horizon;
+
+    private int[][] ringCases = new int[0][];
+    private int[][] ringDates = new int[0][];
+    private long[] seen = new long[0];
+
+    /**
+     * @param window most recent reports per region used for the fit (at least 3)
+     * @param horizon days to project past each region's last report
+     */
+    public ForecastEngine(int window, int horizon) {
+        if (window < 3 || horizon < 0) {
+            throw new IllegalArgumentException("Window must be at least 3 reports and the horizon non-negative");
+        }
+        this.window = window;
+        this.horizon = horizon;
+    }
+
+    /**
+     * Forecasts for every region of a table
+     */
+    public static GrowthForecast[] compute(DailyStatsTable table, int window, int horizon) {
+        ForecastEngine engine = new ForecastEngine(window, horizon);
+        engine.accept(table, 0, table.size());
+        return engine.forecast(table.regions());
+    }
+
+    /**
+     * Folds rows [fromRow, toRow) into the per-region windows
+     */
+    public void accept(DailyStatsTable table, int fromRow, int toRow) {
+        ensureRegions(table.regions().size());
+        int[] regionIds = table.regionIdColumn();
+        int[] cases = table.casesColumn();
+        int[] dates = table.dateColumn();
+        for (int i = fromRow; i < toRow; i++) {
+            int region = regionIds[i];
+            if (ringCases[region] == null) {
+                ringCases[region] = new int[window];
+                ringDates[region] = new int[window];
+            }
+            int slot = (int) (seen[region] % window);
+            ringCases[region][slot] = cases[i];
+            ringDates[region][slot] = dates[i];
+            seen[region]++;
+        }
+    }
+
+    /**
+     * Fits every region on the common fork/join pool; indexed by region id
+     */
+    public GrowthForecast[] forecast(StringDictionary names) {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.FORECAST);
+        GrowthForecast[] result = new GrowthForecast[names.size()];
+        ForkJoinPool.commonPool().invoke(new FitTask(names, result, 0, result.length));
+        sample.stop(result.length, 0);
+        return result;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public int getHorizon() {
+        return horizon;
+    }
+
+    private final class FitTask extends RecursiveAction {
+        private final StringDictionary names;
+        private final GrowthForecast[] result;
+        private final int from;
+        private final int to;
+
+        FitTask(StringDictionary names, GrowthForecast[] result, int from, int to) {
+            this.names = names;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= REGIONS_PER_TASK) {
+                for (int region = from; region < to; region++) {
+                    result[region] = fit(region, names.get(region));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FitTask(names, result, from, middle), new FitTask(names, result, middle, to));
+        }
+    }
+
+    /**
+     * Ordinary least squares of log(cases + 1) on the report day, with days taken relative
+     * to the last report so the sums stay small
+     */
+    GrowthForecast fit(int region, String name) {
+        int n = region < seen.length ? (int) Math.min(seen[region], window) : 0;
+        if (n < 3) {
+            int last = n > 0 ? ringDates[region][(int) ((seen[region] - 1) % window)] : DateCodec.INVALID;
+            return new GrowthForecast(name, n, last, Double.NaN, Double.NaN, new double[0], new double[0], new double[0]);
+        }
+        int[] cases = ringCases[region];
+        int[] dates = ringDates[region];
+        int lastDate = dates[(int) ((seen[region] - 1) % window)];
+
+        double sumX = 0, sumY = 0;
+        for (int i = 0; i < n; i++) {
+            sumX += dates[i] - lastDate;
+            sumY += Math.log1p(Math.max(0, cases[i]));
+        }
+        double meanX = sumX / n;
+        double meanY = sumY / n;
+        double sxx = 0, sxy = 0, syy = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = dates[i] - lastDate - meanX;
+            double dy = Math.log1p(Math.max(0, cases[i])) - meanY;
+            sxx += dx * dx;
+            sxy += dx * dy;
+            syy += dy * dy;
+        }
+
+        // All reports on one day: no slope to fit, project the level as flat
+        double rate = sxx > 0 ? sxy / sxx : 0;
+        double intercept = meanY - rate * meanX;
+        double residual = Math.max(0, syy - rate * sxy);
+        double rSquared = syy > 0 ? 1 - residual / syy : 1;
+        double s = Math.sqrt(residual / (n - 2));
+        double t = tQuantile975(n - 2);
+
+        double[] expected = new double[horizon];
+        double[] lower = new double[horizon];
+        double[] upper = new double[horizon];
+        for (int k = 1; k <= horizon; k++) {
+            double logValue = intercept + rate * k;
+            double leverage = sxx > 0 ? (k - meanX) * (k - meanX) / sxx : 0;
+            double margin = t * s * Math.sqrt(1 + 1.0 / n + leverage);
+            expected[k - 1] = Math.expm1(logValue);
+            lower[k - 1] = Math.max(0, Math.expm1(logValue - margin));
+            upper[k - 1] = Math.expm1(logValue + margin);
+        }
+        return new GrowthForecast(name, n, lastDate, rate, rSquared, expected, lower, upper);
+    }
+
+    /**
+     * 97.5% quantile of Student's t (two-sided 95%): exact table values up to 5 degrees of
+     * freedom, where the expansion falls short, then the Cornish-Fisher expansion around the
+     * normal quantile, which is within 0.1% of the exact value from there up
+     */
+    static double tQuantile975(int degreesOfFreedom) {
+        int df = Math.max(1, degreesOfFreedom);
+        if (df <= T_975_TABLE.length) {
+            return T_975_TABLE[df - 1];
+        }
+        double z = Z_95;
+        double z3 = z * z * z;
+        double z5 = z3 * z * z;
+        double z7 = z5 * z * z;
+        return z + (z3 + z) / (4.0 * df) + (5 * z5 + 16 * z3 + 3 * z) / (96.0 * df * df)
+            + (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384.0 * df * df * df);
+    }
+
+    private void ensureRegions(int count) {
+        if (count <= seen.length) {
+            return;
+        }
+        ringCases = Arrays.copyOf(ringCases, count);
+        ringDates = Arrays.copyOf(ringDates, count);
+        seen = Arrays.copyOf(seen, count);
+    }
+}
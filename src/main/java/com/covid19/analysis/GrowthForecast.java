@@ -0,0 +1,91 @@
+package com.covid19.analysis;
+
+/**
+ * Log-linear growth fit for one region over its most recent reports:
+ * log(cases + 1) = a + rate * day. Gives the daily growth rate, the doubling
+ * (or halving) time and a projection for the next days with a 95% prediction interval.
+ */
+public final class GrowthForecast {
+    private final String region;
+    private final int samples;
+    private final int lastDate;
+    private final double growthRate;
+    private final double rSquared;
+    private final double[] expected;
+    private final double[] lower;
+    private final double[] upper;
+
+    GrowthForecast(String region, int samples, int lastDate, double growthRate, double rSquared,
+                   double[] expected, double[] lower, double[] upper) {
+        this.region = region;
+        this.samples = samples;
+        this.lastDate = lastDate;
+        this.growthRate = growthRate;
+        this.rSquared = rSquared;
+        this.expected = expected;
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Reports the fit used
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Whether there were enough reports (at least 3) to fit
+     */
+    public boolean isFitted() {
+        return expected.length > 0;
+    }
+
+    /**
+     * Epoch day of the last report; projections start the day after
+     */
+    public int getLastDate() {
+        return lastDate;
+    }
+
+    /**
+     * Continuous daily growth rate (0.05 is about 5% more cases per day); NaN if not fitted
+     */
+    public double getGrowthRate() {
+        return growthRate;
+    }
+
+    /**
+     * Days for cases to double, or negative days to halve when shrinking; infinite when flat
+     */
+    public double getDoublingDays() {
+        return Math.log(2) / growthRate;
+    }
+
+    public double getRSquared() {
+        return rSquared;
+    }
+
+    public int getHorizon() {
+        return expected.length;
+    }
+
+    /**
+     * Expected cases `ahead` days after the last report (1-based)
+     */
+    public double getExpected(int ahead) {
+        return expected[ahead - 1];
+    }
+
+    public double getLower(int ahead) {
+        return lower[ahead - 1];
+    }
+
+    public double getUpper(int ahead) {
+        return upper[ahead - 1];
+    }
+}
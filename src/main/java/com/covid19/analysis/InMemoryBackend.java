@@ -0,0 +1,44 @@
+package com.covid19.analysis;
+
+/**
+ * Analyses over a {@link LiveDataset}, using its incremental engines and time index.
+ * Confined to the same thread as the dataset.
+ */
+public class InMemoryBackend implements AnalysisBackend {
+    private final LiveDataset dataset;
+
+    public InMemoryBackend(LiveDataset dataset) {
+        this.dataset = dataset;
+    }
+
+    @Override
+    public String getName() {
+        return "In-memory";
+    }
+
+    @Override
+    public AggregateSnapshot snapshot() {
+        return dataset.getSnapshot();
+    }
+
+    @Override
+    public MovingAverageSeries[] movingAverages(AggregateSnapshot regions, int window, boolean centered) {
+        return dataset.getMovingAverages(window, centered);
+    }
+
+    @Override
+    public RegionPeaks[] peaks(AggregateSnapshot regions, int topK, double prominence, int minSeparation,
+                               int smoothingWindow) {
+        return dataset.getPeaks(topK, prominence, minSeparation, smoothingWindow);
+    }
+
+    @Override
+    public RangeStats range(String regionName, int fromDate, int toDate) {
+        if (regionName == null) {
+            return dataset.rangeAll(fromDate, toDate);
+        }
+        TimeIndex timeIndex = dataset.getTimeIndex();
+        int region = timeIndex.regionIndex(regionName);
+        return region < 0 ? null : timeIndex.range(region, fromDate, toDate);
+    }
+}
@@ -0,0 +1,78 @@
+package com.covid19.analysis;
+
+/**
+ * Stable sort of int index arrays (row numbers, region ids) by an arbitrary key,
+ * without boxing the indexes into Integer objects.
+ */
+public final class IndexSort {
+    private static final int INSERTION_THRESHOLD = 24;
+
+    /**
+     * Compares two indexes by whatever they point at
+     */
+    public interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    private IndexSort() {}
+
+    /**
+     * Returns [0, 1, ..., count - 1]
+     */
+    public static int[] identity(int count) {
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    public static void sort(int[] indexes, IntComparator comparator) {
+        sort(indexes, 0, indexes.length, comparator);
+    }
+
+    /**
+     * Stable merge sort of indexes[from, to)
+     */
+    public static void sort(int[] indexes, int from, int to, IntComparator comparator) {
+        if (to - from < 2) {
+            return;
+        }
+        int[] buffer = new int[to - from];
+        mergeSort(indexes, buffer, from, to, comparator);
+    }
+
+    private static void mergeSort(int[] a, int[] buffer, int from, int to, IntComparator comparator) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int value = a[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(a[j], value) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = value;
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        mergeSort(a, buffer, from, mid, comparator);
+        mergeSort(a, buffer, mid, to, comparator);
+        if (comparator.compare(a[mid - 1], a[mid]) <= 0) {
+            return; // already in order
+        }
+
+        int left = from, right = mid, out = 0;
+        while (left < mid && right < to) {
+            buffer[out++] = comparator.compare(a[right], a[left]) < 0 ? a[right++] : a[left++];
+        }
+        while (left < mid) {
+            buffer[out++] = a[left++];
+        }
+        while (right < to) {
+            buffer[out++] = a[right++];
+        }
+        System.arraycopy(buffer, 0, a, from, out);
+    }
+}
@@ -0,0 +1,144 @@
+package com.covid19.analysis;
+
+/**
+ * The loaded table together with the incremental engines built on top of it.
+ * New rows are appended with {@link #append(DailyStatsTable)}, which folds only
+ * those rows into the aggregates, peaks, moving-average windows, time index and outbreak detector, so the cost
+ * of an update is proportional to the new rows rather than the whole file.
+ * Not thread-safe: the GUI only touches it from one thread at a time.
+ */
+public class LiveDataset {
+    private final DailyStatsTable table;
+    private final AggregationEngine aggregator = new AggregationEngine();
+    private final OutbreakDetector outbreaks = new OutbreakDetector();
+    private AggregateSnapshot snapshot;
+
+    private MovingAverageEngine movingAverages;
+    private PeakEngine peaks;
+    private ForecastEngine forecasts;
+    private TimeIndex timeIndex;
+
+    public LiveDataset(DailyStatsTable table) {
+        this.table = table;
+        aggregator.accept(table, 0, table.size());
+        outbreaks.accept(table, 0, table.size());
+        snapshot = aggregator.snapshot(table.regions());
+    }
+
+    /**
+     * Appends the rows of a freshly parsed tail and updates everything derived from them.
+     * Returns the number of rows added.
+     */
+    public int append(DailyStatsTable tail) {
+        if (tail.isEmpty()) {
+            return 0;
+        }
+        int from = table.size();
+        table.appendAll(tail);
+        int to = table.size();
+
+        aggregator.accept(table, from, to);
+        outbreaks.accept(table, from, to);
+        if (movingAverages != null) {
+            movingAverages.accept(table, from, to);
+        }
+        if (peaks != null) {
+            peaks.accept(table, from, to);
+        }
+        if (forecasts != null) {
+            forecasts.accept(table, from, to);
+        }
+        if (timeIndex != null) {
+            timeIndex.accept(table, from, to);
+        }
+        snapshot = aggregator.snapshot(table.regions());
+        return to - from;
+    }
+
+    public DailyStatsTable getTable() {
+        return table;
+    }
+
+    public AggregateSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Outbreak alarms over every row so far; alerts are immutable, so lists of them can go to the EDT
+     */
+    public OutbreakDetector getOutbreakDetector() {
+        return outbreaks;
+    }
+
+    /**
+     * Moving-average series for every region; only recomputed from scratch when the settings change
+     */
+    public MovingAverageSeries[] getMovingAverages(int window, boolean centered) {
+        if (movingAverages == null || movingAverages.getWindow() != window || movingAverages.isCentered() != centered) {
+            PipelineMetrics.cacheMiss(PipelineMetrics.Cache.ENGINE);
+            movingAverages = new MovingAverageEngine(window, centered);
+            movingAverages.accept(table, 0, table.size());
+        } else {
+            PipelineMetrics.cacheHit(PipelineMetrics.Cache.ENGINE);
+        }
+        return movingAverages.allSeries(table.regions());
+    }
+
+    /**
+     * Top days and prominent peaks for every region; only recomputed from scratch when the settings change
+     */
+    public RegionPeaks[] getPeaks(int topK, double prominence, int minSeparation, int smoothingWindow) {
+        if (peaks == null || peaks.getTopK() != topK || peaks.getProminence() != Math.max(0, prominence)
+                || peaks.getMinSeparation() != Math.max(0, minSeparation) || peaks.getSmoothingWindow() != smoothingWindow) {
+            PipelineMetrics.cacheMiss(PipelineMetrics.Cache.ENGINE);
+            peaks = new PeakEngine(topK, prominence, minSeparation, smoothingWindow);
+            peaks.accept(table, 0, table.size());
+        } else {
+            PipelineMetrics.cacheHit(PipelineMetrics.Cache.ENGINE);
+        }
+        return peaks.allPeaks(table.regions());
+    }
+
+    /**
+     * Totals across every region between two epoch days (inclusive). Uses the time index
+     * once it has been built (appends keep it current); otherwise one vectorized scan of the
+     * columns, which is cheaper than building the index for a single query.
+     */
+    public RangeStats rangeAll(int fromDate, int toDate) {
+        if (timeIndex != null) {
+            return timeIndex.rangeAll(fromDate, toDate);
+        }
+        int[] dates = table.dateColumn();
+        int size = table.size();
+        return new RangeStats(fromDate, toDate,
+            ColumnKernels.countWhere(dates, fromDate, toDate, 0, size),
+            ColumnKernels.sumWhere(table.casesColumn(), dates, fromDate, toDate, 0, size),
+            ColumnKernels.sumWhere(table.recoveriesColumn(), dates, fromDate, toDate, 0, size),
+            ColumnKernels.sumWhere(table.deathsColumn(), dates, fromDate, toDate, 0, size));
+    }
+
+    /**
+     * Growth fits for every region over its last {@code window} reports; the windows are kept
+     * up to date incrementally, so only the (parallel) fits are redone on each call
+     */
+    public GrowthForecast[] getForecasts(int window, int horizon) {
+        if (forecasts == null || forecasts.getWindow() != window || forecasts.getHorizon() != horizon) {
+            PipelineMetrics.cacheMiss(PipelineMetrics.Cache.ENGINE);
+            forecasts = new ForecastEngine(window, horizon);
+            forecasts.accept(table, 0, table.size());
+        } else {
+            PipelineMetrics.cacheHit(PipelineMetrics.Cache.ENGINE);
+        }
+        return forecasts.forecast(table.regions());
+    }
+
+    public TimeIndex getTimeIndex() {
+        if (timeIndex == null) {
+            PipelineMetrics.cacheMiss(PipelineMetrics.Cache.ENGINE);
+            timeIndex = TimeIndex.build(table);
+        } else {
+            PipelineMetrics.cacheHit(PipelineMetrics.Cache.ENGINE);
+        }
+        return timeIndex;
+    }
+}
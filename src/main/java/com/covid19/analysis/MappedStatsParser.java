@@ -0,0 +1,352 @@
+package com.covid19.analysis;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Zero-copy parser for tab-delimited daily_stats files.
+ * The file is memory-mapped and scanned byte by byte for tabs and newlines;
+ * numbers and dates are decoded in place and region names go through the
+ * table's interning dictionary, so a clean row creates no objects at all.
+ * Bad rows never throw: they are counted by category in {@link ParseErrors} and, when a
+ * {@link QuarantineFile} is set, copied into a batch that is written out whenever it fills,
+ * so rejecting a row costs about as much as accepting one.
+ * A parser instance keeps scratch state and must not be shared between threads.
+ */
+public class MappedStatsParser {
+    static final int COLUMNS = 6;
+
+    // Files larger than this are mapped in several windows (a single mapping is capped at 2 GB)
+    static final long WINDOW_SIZE = 256L << 20;
+
+    private static final long INVALID_NUMBER = Long.MIN_VALUE;
+    private static final long OUT_OF_RANGE = Long.MIN_VALUE + 1;
+
+    // Rejected lines collected before they are handed to the quarantine file
+    private static final int QUARANTINE_BATCH = 256 * 1024;
+    private static final byte[][] CATEGORY_NAMES = categoryNames();
+
+    private final int[] fieldStart = new int[COLUMNS];
+    private final int[] fieldEnd = new int[COLUMNS];
+
+    private int headerColumns = -1;
+    private long bytesRead;
+    private boolean completeLinesOnly;
+    private final ParseErrors errors = new ParseErrors();
+
+    private QuarantineFile quarantine;
+    private byte[] batch;
+    private int batchLength;
+    private int batchRows;
+    // File position of the mapped window, for the quarantine's byte offsets
+    private long windowStart;
+
+    /**
+     * Sends rejected rows to the given file (null to only count them)
+     */
+    public void setQuarantine(QuarantineFile quarantine) {
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Leaves an unterminated last line unparsed and out of {@link #getBytesRead()}, so a row that is
+     * still being written when a live file is loaded is read by the watcher once it is complete
+     */
+    public void setCompleteLinesOnly(boolean completeLinesOnly) {
+        this.completeLinesOnly = completeLinesOnly;
+    }
+
+    public DailyStatsTable parse(String filePath) throws IOException {
+        return parse(Paths.get(filePath));
+    }
+
+    public DailyStatsTable parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            DailyStatsTable table = new DailyStatsTable(new StringDictionary(), estimateRows(size));
+            parseRange(channel, 0, size, table);
+            return table;
+        }
+    }
+
+    /**
+     * Parses the bytes in [start, end) of the channel into the table.
+     * start must be the first byte of a line; a range starting at 0 treats its first line as the header.
+     */
+    public void parseRange(FileChannel channel, long start, long end, DailyStatsTable out) throws IOException {
+        long position = start;
+        boolean firstLine = start == 0;
+
+        while (position < end) {
+            long length = Math.min(WINDOW_SIZE, end - position);
+            boolean lastWindow = position + length == end;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            windowStart = position;
+            int limit = (int) length;
+            int lineStart = 0;
+
+            if (position == 0) {
+                lineStart = skipByteOrderMark(buffer, limit);
+            }
+
+            while (lineStart < limit) {
+                // Single pass over the line: record tab positions until the newline
+                int fields = 0;
+                int extraTab = -1;
+                int lineEnd = -1;
+                fieldStart[0] = lineStart;
+                for (int i = lineStart; i < limit; i++) {
+                    byte b = buffer.get(i);
+                    if (b == '\n') {
+                        lineEnd = i;
+                        break;
+                    }
+                    if (b == '\t') {
+                        if (fields < COLUMNS - 1) {
+                            fieldEnd[fields] = i;
+                            fieldStart[++fields] = i + 1;
+                        } else if (extraTab < 0) {
+                            extraTab = i; // extra trailing columns are ignored, as before
+                        }
+                    }
+                }
+                if (lineEnd < 0) {
+                    if (!lastWindow || completeLinesOnly) {
+                        break; // incomplete line, re-map from its start or leave it for later
+                    }
+                    lineEnd = limit;
+                }
+
+                if (firstLine) {
+                    firstLine = false;
+                    if (!isBlank(buffer, lineStart, lineEnd)) {
+                        headerColumns = countFields(buffer, lineStart, lineEnd);
+                    }
+                } else {
+                    // Ignore the CR of CRLF line endings
+                    int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                    fieldEnd[fields] = extraTab >= 0 ? extraTab : contentEnd;
+                    parseLine(buffer, lineStart, contentEnd, fields + 1, out);
+                }
+                lineStart = lineEnd + 1;
+            }
+
+            if (lineStart == 0 && !lastWindow) {
+                throw new IOException("Line at byte " + position + " is longer than the mapping window");
+            }
+            long consumed = Math.min(lineStart, limit);
+            bytesRead += consumed;
+            position += consumed;
+            if (lastWindow && consumed < limit) {
+                break; // only the unterminated last line is left
+            }
+        }
+        flushQuarantine();
+    }
+
+    private void parseLine(MappedByteBuffer buffer, int lineStart, int lineEnd, int fields, DailyStatsTable out)
+            throws IOException {
+        if (fields < COLUMNS) {
+            if (!isBlank(buffer, lineStart, lineEnd)) {
+                reject(buffer, lineStart, lineEnd, ParseErrors.Category.SHORT_ROW);
+            }
+            return;
+        }
+
+        long cases = parseNumber(buffer, fieldStart[3], fieldEnd[3]);
+        long recoveries = parseNumber(buffer, fieldStart[4], fieldEnd[4]);
+        long deaths = parseNumber(buffer, fieldStart[5], fieldEnd[5]);
+        if (cases == INVALID_NUMBER || recoveries == INVALID_NUMBER || deaths == INVALID_NUMBER) {
+            reject(buffer, lineStart, lineEnd, ParseErrors.Category.MALFORMED_NUMBER);
+            return;
+        }
+        if (cases == OUT_OF_RANGE || recoveries == OUT_OF_RANGE || deaths == OUT_OF_RANGE) {
+            reject(buffer, lineStart, lineEnd, ParseErrors.Category.NUMBER_OUT_OF_RANGE);
+            return;
+        }
+
+        trim(buffer, 2);
+        int epochDay = DateCodec.parse(buffer, fieldStart[2], fieldEnd[2]);
+        if (epochDay == DateCodec.INVALID) {
+            reject(buffer, lineStart, lineEnd, ParseErrors.Category.BAD_DATE);
+            return;
+        }
+
+        trim(buffer, 0);
+        trim(buffer, 1);
+        int regionId = out.regions().intern(buffer, fieldStart[1], fieldEnd[1] - fieldStart[1]);
+        out.addRow(buffer, fieldStart[0], fieldEnd[0] - fieldStart[0], regionId,
+            epochDay, (int) cases, (int) recoveries, (int) deaths);
+    }
+
+    private void trim(MappedByteBuffer buffer, int field) {
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        while (from < to && (buffer.get(from) & 0xFF) <= ' ') from++;
+        while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') to--;
+        fieldStart[field] = from;
+        fieldEnd[field] = to;
+    }
+
+    /**
+     * Decodes a (possibly signed, whitespace padded) int directly from the bytes;
+     * INVALID_NUMBER if it is not a number, OUT_OF_RANGE if it does not fit an int
+     */
+    static long parseNumber(MappedByteBuffer buffer, int from, int to) {
+        while (from < to && (buffer.get(from) & 0xFF) <= ' ') from++;
+        while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') to--;
+        if (from == to) {
+            return INVALID_NUMBER;
+        }
+
+        boolean negative = false;
+        byte first = buffer.get(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) {
+                return INVALID_NUMBER;
+            }
+        }
+        long value = 0;
+        boolean overflow = false;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_NUMBER;
+            }
+            if (!overflow) {
+                value = value * 10 + digit;
+                overflow = value > Integer.MAX_VALUE + 1L;
+            }
+        }
+        value = negative ? -value : value;
+        return overflow || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? OUT_OF_RANGE : value;
+    }
+
+    /**
+     * Counts the row and, if there is a quarantine, copies it into the current batch
+     */
+    private void reject(MappedByteBuffer buffer, int lineStart, int lineEnd, ParseErrors.Category category)
+            throws IOException {
+        errors.record(category);
+        int length = lineEnd - lineStart;
+        if (errors.wantsSample()) {
+            byte[] line = new byte[length];
+            buffer.get(lineStart, line);
+            errors.addSample(category.getLabel() + ": " + new String(line, StandardCharsets.UTF_8).replace('\t', '|'));
+        }
+        if (quarantine == null) {
+            return;
+        }
+
+        byte[] name = CATEGORY_NAMES[category.ordinal()];
+        // Category, two tabs, a 19-digit offset and the newline around the line itself
+        int needed = name.length + length + 22;
+        if (batch == null) {
+            batch = new byte[Math.max(QUARANTINE_BATCH, needed)];
+        } else if (batchLength + needed > batch.length) {
+            flushQuarantine();
+            if (needed > batch.length) {
+                batch = new byte[needed];
+            }
+        }
+        System.arraycopy(name, 0, batch, batchLength, name.length);
+        batchLength += name.length;
+        batch[batchLength++] = '\t';
+        batchLength = putOffset(windowStart + lineStart, batch, batchLength);
+        batch[batchLength++] = '\t';
+        buffer.get(lineStart, batch, batchLength, length);
+        batchLength += length;
+        batch[batchLength++] = '\n';
+        batchRows++;
+    }
+
+    private static int putOffset(long value, byte[] target, int position) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            target[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+
+    private void flushQuarantine() throws IOException {
+        if (batchLength == 0) {
+            return;
+        }
+        quarantine.write(batch, batchLength, batchRows);
+        batchLength = 0;
+        batchRows = 0;
+    }
+
+    private static byte[][] categoryNames() {
+        ParseErrors.Category[] categories = ParseErrors.Category.values();
+        byte[][] names = new byte[categories.length][];
+        for (ParseErrors.Category category : categories) {
+            names[category.ordinal()] = category.name().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+
+    private static boolean isBlank(MappedByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ((buffer.get(i) & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int countFields(MappedByteBuffer buffer, int from, int to) {
+        int fields = 1;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\t') {
+                fields++;
+            }
+        }
+        return fields;
+    }
+
+    private static int skipByteOrderMark(MappedByteBuffer buffer, int limit) {
+        if (limit >= 3 && (buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB && (buffer.get(2) & 0xFF) == 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+
+    static int estimateRows(long fileSize) {
+        // daily_stats rows are roughly 35 bytes each
+        return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1024, fileSize / 32));
+    }
+
+    /**
+     * Number of columns in the header line, or -1 if no header was seen
+     */
+    public int getHeaderColumns() {
+        return headerColumns;
+    }
+
+    public long getRowsRejected() {
+        return errors.getTotal();
+    }
+
+    /**
+     * Rejected rows so far, by category
+     */
+    public ParseErrors getErrors() {
+        return errors;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+}
@@ -0,0 +1,132 @@
+package com.covid19.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Sliding-window moving averages of daily cases for every region at once.
+ * Each region keeps a ring buffer of its last {@code window} rows and a running
+ * sum, so one pass over the table produces the complete series for all regions
+ * in O(rows) regardless of window size. Rows are taken in table order, which is
+ * the order the moving averages have always used.
+ * Like {@link AggregationEngine} it can keep folding in rows appended later.
+ */
+public class MovingAverageEngine {
+    private final int window;
+    private final boolean centered;
+
+    private int[][] ringCases = new int[0][];
+    private int[][] ringDates = new int[0][];
+    private long[] sums = new long[0];
+    private long[] seen = new long[0];
+
+    private double[][] values = new double[0][];
+    private int[][] dates = new int[0][];
+    private int[] lengths = new int[0];
+
+    public MovingAverageEngine(int window, boolean centered) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1 day: " + window);
+        }
+        this.window = window;
+        this.centered = centered;
+    }
+
+    /**
+     * Computes the full trailing or centered series for every region in one pass
+     */
+    public static MovingAverageSeries[] compute(DailyStatsTable table, int window, boolean centered) {
+        MovingAverageEngine engine = new MovingAverageEngine(window, centered);
+        engine.accept(table, 0, table.size());
+        return engine.allSeries(table.regions());
+    }
+
+    /**
+     * Folds rows [fromRow, toRow) into the per-region windows
+     */
+    public void accept(DailyStatsTable table, int fromRow, int toRow) {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.MOVING_AVERAGE);
+        ensureRegions(table.regions().size());
+
+        int[] regionIds = table.regionIdColumn();
+        int[] caseColumn = table.casesColumn();
+        int[] dateColumn = table.dateColumn();
+        // Centered averages are dated at the middle of the window
+        int centerLag = centered ? (window - 1) / 2 : 0;
+
+        for (int i = fromRow; i < toRow; i++) {
+            int region = regionIds[i];
+            if (ringCases[region] == null) {
+                ringCases[region] = new int[window];
+                ringDates[region] = new int[window];
+            }
+
+            int slot = (int) (seen[region] % window);
+            sums[region] += caseColumn[i] - ringCases[region][slot];
+            ringCases[region][slot] = caseColumn[i];
+            ringDates[region][slot] = dateColumn[i];
+            seen[region]++;
+
+            if (seen[region] >= window) {
+                int dateSlot = (int) ((seen[region] - 1 - centerLag) % window);
+                append(region, sums[region] / (double) window, ringDates[region][dateSlot]);
+            }
+        }
+        sample.stop(toRow - fromRow, 0);
+    }
+
+    private void append(int region, double value, int date) {
+        int length = lengths[region];
+        if (values[region] == null) {
+            values[region] = new double[16];
+            dates[region] = new int[16];
+        } else if (length == values[region].length) {
+            values[region] = Arrays.copyOf(values[region], length * 2);
+            dates[region] = Arrays.copyOf(dates[region], length * 2);
+        }
+        values[region][length] = value;
+        dates[region][length] = date;
+        lengths[region] = length + 1;
+    }
+
+    /**
+     * Current series for one region (empty if it has fewer rows than the window)
+     */
+    public MovingAverageSeries series(int region, String regionName) {
+        if (region >= lengths.length || values[region] == null) {
+            return new MovingAverageSeries(regionName, window, centered, new double[0], new int[0], 0);
+        }
+        return new MovingAverageSeries(regionName, window, centered, values[region], dates[region], lengths[region]);
+    }
+
+    /**
+     * Current series for every region, indexed by region id
+     */
+    public MovingAverageSeries[] allSeries(StringDictionary regions) {
+        MovingAverageSeries[] result = new MovingAverageSeries[regions.size()];
+        for (int region = 0; region < result.length; region++) {
+            result[region] = series(region, regions.get(region));
+        }
+        return result;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public boolean isCentered() {
+        return centered;
+    }
+
+    private void ensureRegions(int count) {
+        if (count <= sums.length) {
+            return;
+        }
+        ringCases = Arrays.copyOf(ringCases, count);
+        ringDates = Arrays.copyOf(ringDates, count);
+        sums = Arrays.copyOf(sums, count);
+        seen = Arrays.copyOf(seen, count);
+        values = Arrays.copyOf(values, count);
+        dates = Arrays.copyOf(dates, count);
+        lengths = Arrays.copyOf(lengths, count);
+    }
+}
@@ -0,0 +1,70 @@
+package com.covid19.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Full moving-average series of daily cases for one region.
+ * values[i] is the window average dated dates[i] (an epoch day): the last day
+ * of the window for trailing averages, the middle day for centered ones.
+ * A series is a fixed-length view over the engine's arrays, so handing it out
+ * copies nothing; later appends only write past this view's length.
+ */
+public final class MovingAverageSeries {
+    private final String region;
+    private final int window;
+    private final boolean centered;
+    private final double[] values;
+    private final int[] dates;
+    private final int length;
+
+    MovingAverageSeries(String region, int window, boolean centered, double[] values, int[] dates, int length) {
+        this.region = region;
+        this.window = window;
+        this.centered = centered;
+        this.values = values;
+        this.dates = dates;
+        this.length = length;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public boolean isCentered() {
+        return centered;
+    }
+
+    public int size() {
+        return length;
+    }
+
+    public double value(int i) {
+        return values[i];
+    }
+
+    public int date(int i) {
+        return dates[i];
+    }
+
+    public String dateLabel(int i) {
+        return DateCodec.format(dates[i]);
+    }
+
+    /**
+     * Copy of the averages as a primitive array
+     */
+    public double[] values() {
+        return Arrays.copyOf(values, length);
+    }
+
+    /**
+     * Copy of the epoch days matching values()
+     */
+    public int[] dates() {
+        return Arrays.copyOf(dates, length);
+    }
+}
@@ -0,0 +1,74 @@
+package com.covid19.analysis;
+
+import java.time.Instant;
+
+/**
+ * One outbreak alarm: the report that tripped it, the baseline it was judged against,
+ * and when the detector raised it
+ */
+public final class OutbreakAlert {
+    private final String region;
+    private final int date;
+    private final int cases;
+    private final double baseline;
+    private final double zScore;
+    private final double cusum;
+    private final long detectedAt;
+
+    OutbreakAlert(String region, int date, int cases, double baseline, double zScore, double cusum, long detectedAt) {
+        this.region = region;
+        this.date = date;
+        this.cases = cases;
+        this.baseline = baseline;
+        this.zScore = zScore;
+        this.cusum = cusum;
+        this.detectedAt = detectedAt;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Report date (epoch day)
+     */
+    public int getDate() {
+        return date;
+    }
+
+    public String getDateLabel() {
+        return DateCodec.format(date);
+    }
+
+    public int getCases() {
+        return cases;
+    }
+
+    /**
+     * EWMA of daily cases before this report
+     */
+    public double getBaseline() {
+        return baseline;
+    }
+
+    public double getZScore() {
+        return zScore;
+    }
+
+    public double getCusum() {
+        return cusum;
+    }
+
+    /**
+     * Wall-clock time the alarm was raised (epoch millis)
+     */
+    public long getDetectedAt() {
+        return detectedAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s on %s: %,d cases vs baseline %.1f (z=%.1f, cusum=%.1f), detected %s",
+            region, getDateLabel(), cases, baseline, zScore, cusum, Instant.ofEpochMilli(detectedAt));
+    }
+}
@@ -0,0 +1,162 @@
+package com.covid19.analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming outbreak detection with O(1) state per region and O(1) work per row.
+ * Each region keeps an exponentially weighted mean and variance of its daily cases
+ * (the baseline) and a one-sided CUSUM of the standardized excess over it:
+ * S = max(0, S + z - slack). An alarm is raised when S crosses the threshold and
+ * re-armed once S falls back to zero, so a sustained outbreak raises one alert, not one per day.
+ * The first warm-up reports of a region only train the baseline. Rows are taken in
+ * table order, like {@link MovingAverageEngine}, so appended rows continue the same state.
+ */
+public class OutbreakDetector {
+    public static final double DEFAULT_ALPHA = 0.1;
+    public static final double DEFAULT_SLACK = 0.5;
+    public static final double DEFAULT_THRESHOLD = 5;
+    public static final int DEFAULT_WARMUP = 14;
+    public static final int DEFAULT_MIN_CASES = 20;
+    public static final int MAX_RETAINED_ALERTS = 1000;
+
+    private final double alpha;
+    private final double slack;
+    private final double threshold;
+    private final int warmup;
+    private final int minCases;
+
+    private double[] mean = new double[0];
+    private double[] variance = new double[0];
+    private double[] cusum = new double[0];
+    private int[] seen = new int[0];
+    private boolean[] alarmed = new boolean[0];
+
+    // Most recent alerts, oldest first
+    private final ArrayDeque<OutbreakAlert> alerts = new ArrayDeque<>();
+    private long alertCount;
+
+    public OutbreakDetector() {
+        this(DEFAULT_ALPHA, DEFAULT_SLACK, DEFAULT_THRESHOLD, DEFAULT_WARMUP, DEFAULT_MIN_CASES);
+    }
+
+    /**
+     * @param alpha EWMA weight of the newest report (0-1]; smaller means a slower baseline
+     * @param slack excess (in standard deviations) tolerated each day before CUSUM accumulates
+     * @param threshold CUSUM level (in standard deviations) that raises an alarm
+     * @param warmup reports per region used only to train the baseline
+     * @param minCases reports below this count never raise an alarm
+     */
+    public OutbreakDetector(double alpha, double slack, double threshold, int warmup, int minCases) {
+        if (alpha <= 0 || alpha > 1 || threshold <= 0) {
+            throw new IllegalArgumentException("Alpha must be in (0, 1] and the threshold positive");
+        }
+        this.alpha = alpha;
+        this.slack = Math.max(0, slack);
+        this.threshold = threshold;
+        this.warmup = Math.max(1, warmup);
+        this.minCases = minCases;
+    }
+
+    /**
+     * Folds rows [fromRow, toRow) in; returns the number of alerts they raised
+     */
+    public int accept(DailyStatsTable table, int fromRow, int toRow) {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.OUTBREAK);
+        ensureRegions(table.regions().size());
+        int[] regionIds = table.regionIdColumn();
+        int[] dates = table.dateColumn();
+        int[] cases = table.casesColumn();
+        long now = System.currentTimeMillis();
+        int raised = 0;
+
+        for (int i = fromRow; i < toRow; i++) {
+            int region = regionIds[i];
+            int dayCases = cases[i];
+            double diff = dayCases - mean[region];
+
+            if (seen[region] >= warmup) {
+                // Poisson-like floor, so a flat baseline does not make every small bump an outbreak
+                double sigma = Math.max(Math.sqrt(variance[region]), Math.sqrt(Math.max(mean[region], 1)));
+                double z = diff / sigma;
+                cusum[region] = Math.max(0, cusum[region] + z - slack);
+                if (cusum[region] == 0) {
+                    alarmed[region] = false;
+                } else if (!alarmed[region] && cusum[region] > threshold && dayCases >= minCases) {
+                    alarmed[region] = true;
+                    record(new OutbreakAlert(table.regions().get(region), dates[i], dayCases, mean[region], z,
+                        cusum[region], now));
+                    raised++;
+                }
+            }
+
+            // West's incremental EWMA mean and variance
+            if (seen[region] == 0) {
+                mean[region] = dayCases;
+                variance[region] = 0;
+            } else {
+                mean[region] += alpha * diff;
+                variance[region] = (1 - alpha) * (variance[region] + alpha * diff * diff);
+            }
+            seen[region]++;
+        }
+        sample.stop(toRow - fromRow, 0);
+        return raised;
+    }
+
+    private void record(OutbreakAlert alert) {
+        if (alerts.size() == MAX_RETAINED_ALERTS) {
+            alerts.removeFirst();
+        }
+        alerts.addLast(alert);
+        alertCount++;
+    }
+
+    /**
+     * Retained alerts, oldest first (at most {@value #MAX_RETAINED_ALERTS})
+     */
+    public List<OutbreakAlert> getAlerts() {
+        return List.copyOf(alerts);
+    }
+
+    /**
+     * The last n alerts raised, oldest first
+     */
+    public List<OutbreakAlert> getLatestAlerts(int n) {
+        List<OutbreakAlert> latest = new ArrayList<>(alerts);
+        return List.copyOf(latest.subList(Math.max(0, latest.size() - n), latest.size()));
+    }
+
+    /**
+     * All alerts raised so far, including those no longer retained
+     */
+    public long getAlertCount() {
+        return alertCount;
+    }
+
+    /**
+     * Number of regions currently in an alarm state
+     */
+    public int getActiveAlarmCount() {
+        int active = 0;
+        for (boolean alarm : alarmed) {
+            if (alarm) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    private void ensureRegions(int count) {
+        if (count <= mean.length) {
+            return;
+        }
+        mean = Arrays.copyOf(mean, count);
+        variance = Arrays.copyOf(variance, count);
+        cusum = Arrays.copyOf(cusum, count);
+        seen = Arrays.copyOf(seen, count);
+        alarmed = Arrays.copyOf(alarmed, count);
+    }
+}
@@ -0,0 +1,213 @@
+package com.covid19.analysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel ingest for large daily_stats files.
+ * The file is split into byte ranges that start and end on line boundaries,
+ * each range is parsed by its own {@link MappedStatsParser} on a fork/join
+ * worker, and the per-chunk tables are merged back in file order so row
+ * order (which the moving averages rely on) is unchanged.
+ */
+public class ParallelStatsLoader {
+    // Below this size the chunking overhead is not worth it
+    static final long MIN_CHUNK_SIZE = 8L << 20;
+
+    private final int parallelism;
+
+    private int headerColumns = -1;
+    private final ParseErrors errors = new ParseErrors();
+    private long bytesRead;
+    private int chunksUsed;
+    private QuarantineFile quarantine;
+    private boolean completeLinesOnly;
+
+    public ParallelStatsLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelStatsLoader(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Sends rows rejected by every chunk to the given file (null to only count them)
+     */
+    public void setQuarantine(QuarantineFile quarantine) {
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Stops at the last newline instead of parsing an unterminated last line (see {@link MappedStatsParser})
+     */
+    public void setCompleteLinesOnly(boolean completeLinesOnly) {
+        this.completeLinesOnly = completeLinesOnly;
+    }
+
+    public DailyStatsTable load(String filePath) throws IOException {
+        return load(Paths.get(filePath));
+    }
+
+    public DailyStatsTable load(Path file) throws IOException {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.PARSE);
+        DailyStatsTable table = loadChunks(file);
+        sample.stop(table.size(), bytesRead);
+        return table;
+    }
+
+    private DailyStatsTable loadChunks(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = splitOnLines(channel, parallelism);
+            chunksUsed = bounds.length - 1;
+
+            if (chunksUsed == 1) {
+                MappedStatsParser parser = new MappedStatsParser();
+                parser.setQuarantine(quarantine);
+                parser.setCompleteLinesOnly(completeLinesOnly);
+                DailyStatsTable table = new DailyStatsTable(new StringDictionary(), MappedStatsParser.estimateRows(channel.size()));
+                parser.parseRange(channel, 0, channel.size(), table);
+                collect(parser);
+                return table;
+            }
+
+            List<Callable<ChunkResult>> tasks = new ArrayList<>();
+            for (int i = 0; i < chunksUsed; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(() -> {
+                    MappedStatsParser parser = new MappedStatsParser();
+                    parser.setQuarantine(quarantine);
+                    parser.setCompleteLinesOnly(completeLinesOnly);
+                    DailyStatsTable chunk = new DailyStatsTable(new StringDictionary(), MappedStatsParser.estimateRows(end - start));
+                    parser.parseRange(channel, start, end, chunk);
+                    return new ChunkResult(chunk, parser);
+                });
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<ChunkResult> results = new ArrayList<>();
+                for (Future<ChunkResult> future : pool.invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+                return merge(results);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Parallel load interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Parallel load failed: " + e.getCause(), e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Copies the chunks into one table, letting go of each chunk once it has been copied
+     */
+    private DailyStatsTable merge(List<ChunkResult> results) {
+        List<DailyStatsTable> tables = new ArrayList<>(results.size());
+        for (ChunkResult result : results) {
+            tables.add(result.table);
+            collect(result.parser);
+        }
+        results.clear();
+        return DailyStatsTable.concat(tables);
+    }
+
+    private void collect(MappedStatsParser parser) {
+        if (parser.getHeaderColumns() > 0) {
+            headerColumns = parser.getHeaderColumns();
+        }
+        errors.merge(parser.getErrors());
+        bytesRead += parser.getBytesRead();
+    }
+
+    /**
+     * Returns chunk boundaries [0, b1, ..., size]; every inner boundary is the byte after a newline
+     */
+    static long[] splitOnLines(FileChannel channel, int chunks) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(1, Math.min(chunks, size / MIN_CHUNK_SIZE));
+        long[] bounds = new long[count + 1];
+        ByteBuffer probe = ByteBuffer.allocate(64 * 1024);
+        int used = 1;
+
+        for (int i = 1; i < count; i++) {
+            long boundary = nextLineStart(channel, size * i / count, size, probe);
+            if (boundary > bounds[used - 1] && boundary < size) {
+                bounds[used++] = boundary;
+            }
+        }
+        bounds[used++] = size;
+
+        long[] result = new long[used];
+        System.arraycopy(bounds, 0, result, 0, used);
+        return result;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    public int getHeaderColumns() {
+        return headerColumns;
+    }
+
+    public long getRowsRejected() {
+        return errors.getTotal();
+    }
+
+    /**
+     * Rejected rows of the last load by category, in file order of the chunks
+     */
+    public ParseErrors getErrors() {
+        return errors;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public int getChunksUsed() {
+        return chunksUsed;
+    }
+
+    private static class ChunkResult {
+        final DailyStatsTable table;
+        final MappedStatsParser parser;
+
+        ChunkResult(DailyStatsTable table, MappedStatsParser parser) {
+            this.table = table;
+            this.parser = parser;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.covid19.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rejected rows of a parse, counted by category, with the first few kept as samples for
+ * the log. Recording a rejection is an array increment, so a feed that is mostly bad
+ * parses as fast as a clean one. Not thread-safe: each parser has its own, and
+ * {@link #merge(ParseErrors)} combines them once the chunks are done.
+ */
+public final class ParseErrors {
+    public static final int MAX_SAMPLES = 5;
+
+    public enum Category {
+        SHORT_ROW("short row"),
+        MALFORMED_NUMBER("malformed number"),
+        NUMBER_OUT_OF_RANGE("number out of range"),
+        BAD_DATE("bad date");
+
+        private final String label;
+
+        Category(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final long[] counts = new long[Category.values().length];
+    private final List<String> samples = new ArrayList<>();
+    private long total;
+
+    void record(Category category) {
+        counts[category.ordinal()]++;
+        total++;
+    }
+
+    /**
+     * Whether another sample line is wanted; lets the parser skip building the string
+     */
+    boolean wantsSample() {
+        return samples.size() < MAX_SAMPLES;
+    }
+
+    void addSample(String sample) {
+        if (wantsSample()) {
+            samples.add(sample);
+        }
+    }
+
+    /**
+     * Adds another parse's counts; samples are kept in merge order up to {@value #MAX_SAMPLES}
+     */
+    public void merge(ParseErrors other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        for (String sample : other.samples) {
+            addSample(sample);
+        }
+    }
+
+    public long getCount(Category category) {
+        return counts[category.ordinal()];
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return total == 0;
+    }
+
+    public List<String> getSamples() {
+        return List.copyOf(samples);
+    }
+
+    /**
+     * e.g. "12 rows rejected: 10 short row, 2 bad date"
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format("%,d rows rejected", total));
+        String separator = ": ";
+        for (Category category : Category.values()) {
+            if (counts[category.ordinal()] > 0) {
+                text.append(separator).append(String.format("%,d %s", counts[category.ordinal()], category.getLabel()));
+                separator = ", ";
+            }
+        }
+        return text.toString();
+    }
+}
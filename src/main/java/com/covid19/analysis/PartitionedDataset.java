@@ -0,0 +1,532 @@
+package com.covid19.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A directory of daily_stats partitions (typically one file per day or week) read as one dataset.
+ * A small manifest, {@value #MANIFEST}, records each partition's size, modification time, row
+ * count, date range and regions. Opening the dataset only re-scans files that are new or changed
+ * since the manifest was written. A query with a date range and/or region filter then opens only
+ * the partitions that overlap the range and hold one of the regions, loads them in parallel
+ * (through their snapshot caches, like {@link CSVReader}) and keeps the matching rows, so a
+ * one-week query over a year of history costs about as much as reading one week.
+ *
+ * <pre>
+ * java -cp target/classes com.covid19.analysis.PartitionedDataset &lt;directory&gt; ["MM d yyyy" "MM d yyyy" [region ...]]
+ * </pre>
+ */
+public class PartitionedDataset {
+    public static final String MANIFEST = "_manifest.tsv";
+    private static final String MANIFEST_HEADER = "# covid19 partition manifest v1";
+
+    private final Path directory;
+    private final int parallelism;
+    // Every region seen in any partition; partitions refer to these ids
+    private final StringDictionary regions = new StringDictionary();
+    // Ordered by first date, then file name, so merged rows come out in date order
+    private final List<Partition> partitions = new ArrayList<>();
+
+    // Last query
+    private int partitionsRead;
+    private int partitionsPruned;
+    private long bytesRead;
+
+    /**
+     * One file of the dataset as described by the manifest
+     */
+    public static final class Partition {
+        private final String name;
+        private final Path file;
+        private final long size;
+        private final long modified;
+        private final int rows;
+        private final int minDate;
+        private final int maxDate;
+        private final BitSet regionIds;
+
+        Partition(String name, Path file, long size, long modified, int rows, int minDate, int maxDate, BitSet regionIds) {
+            this.name = name;
+            this.file = file;
+            this.size = size;
+            this.modified = modified;
+            this.rows = rows;
+            this.minDate = minDate;
+            this.maxDate = maxDate;
+            this.regionIds = regionIds;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * First report date (epoch day); DateCodec.INVALID for a partition without rows
+         */
+        public int getMinDate() {
+            return minDate;
+        }
+
+        public int getMaxDate() {
+            return maxDate;
+        }
+
+        public int getRegionCount() {
+            return regionIds.cardinality();
+        }
+
+        boolean overlaps(int fromDate, int toDate) {
+            return rows > 0 && minDate <= toDate && maxDate >= fromDate;
+        }
+
+        boolean within(int fromDate, int toDate) {
+            return minDate >= fromDate && maxDate <= toDate;
+        }
+    }
+
+    private PartitionedDataset(Path directory, int parallelism) {
+        this.directory = directory;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public static PartitionedDataset open(Path directory) throws IOException {
+        return open(directory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reads the manifest, scans (in parallel) any partition that is new or has changed since,
+     * and rewrites the manifest if anything did
+     */
+    public static PartitionedDataset open(Path directory, int parallelism) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        PartitionedDataset dataset = new PartitionedDataset(directory, parallelism);
+        dataset.refresh();
+        return dataset;
+    }
+
+    private void refresh() throws IOException {
+        Map<String, Partition> known = readManifest();
+
+        List<Partition> current = new ArrayList<>();
+        List<Path> changed = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path file : stream) {
+                if (!Files.isRegularFile(file)) {
+                    continue;
+                }
+                Partition entry = known.remove(file.getFileName().toString());
+                if (entry != null && entry.size == Files.size(file)
+                        && entry.modified == Files.getLastModifiedTime(file).toMillis()) {
+                    current.add(entry);
+                } else {
+                    changed.add(file);
+                }
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            int perFile = Math.max(1, parallelism / changed.size());
+            List<Callable<Partition>> tasks = new ArrayList<>();
+            for (Path file : changed) {
+                tasks.add(() -> scan(file, perFile));
+            }
+            current.addAll(runAll(tasks));
+        }
+
+        current.sort(Comparator.comparingInt((Partition p) -> p.rows > 0 ? p.minDate : Integer.MAX_VALUE)
+            .thenComparing(p -> p.name));
+        partitions.clear();
+        partitions.addAll(current);
+
+        // Whatever is left in known was deleted from the directory
+        if (!changed.isEmpty() || !known.isEmpty() || !Files.exists(directory.resolve(MANIFEST))) {
+            writeManifest();
+            System.out.printf("Partition manifest for %s: %d partition(s), %d scanned, %d removed%n",
+                directory, partitions.size(), changed.size(), known.size());
+        }
+    }
+
+    /**
+     * Loads one new or changed partition to describe it in the manifest
+     * (which also leaves its snapshot ready for the first query)
+     */
+    private Partition scan(Path file, int loaderParallelism) throws IOException {
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        DailyStatsTable table = loadPartition(file, loaderParallelism);
+
+        int rows = table.size();
+        int minDate = rows > 0 ? ColumnKernels.min(table.dateColumn(), 0, rows) : DateCodec.INVALID;
+        int maxDate = rows > 0 ? ColumnKernels.max(table.dateColumn(), 0, rows) : DateCodec.INVALID;
+        String[] names = new String[table.regions().size()];
+        for (int id = 0; id < names.length; id++) {
+            names[id] = table.regions().get(id);
+        }
+        BitSet ids = new BitSet();
+        synchronized (regions) {
+            for (String name : names) {
+                ids.set(regions.intern(name));
+            }
+        }
+        return new Partition(file.getFileName().toString(), file, size, modified, rows, minDate, maxDate, ids);
+    }
+
+    // === QUERIES ===
+
+    public DailyStatsTable loadAll() throws IOException {
+        return load(Integer.MIN_VALUE, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Rows dated fromDate..toDate (epoch days, inclusive) of the given regions (null for all),
+     * read from only the partitions that can hold them, in partition order
+     */
+    public DailyStatsTable load(int fromDate, int toDate, Collection<String> regionFilter) throws IOException {
+        List<Partition> selected = prune(fromDate, toDate, regionFilter);
+        partitionsRead = selected.size();
+        partitionsPruned = partitions.size() - selected.size();
+        bytesRead = 0;
+        if (selected.isEmpty()) {
+            return new DailyStatsTable();
+        }
+
+        Set<String> wanted = regionFilter == null ? null : new HashSet<>(regionFilter);
+        int perFile = Math.max(1, parallelism / selected.size());
+        List<Callable<DailyStatsTable>> tasks = new ArrayList<>();
+        for (Partition partition : selected) {
+            tasks.add(() -> select(partition, loadPartition(partition.file, perFile), fromDate, toDate, wanted));
+            bytesRead += partition.size;
+        }
+        List<DailyStatsTable> tables = runAll(tasks);
+
+        int total = 0;
+        for (DailyStatsTable table : tables) {
+            total += table.size();
+        }
+        DailyStatsTable merged = new DailyStatsTable(new StringDictionary(), total);
+        for (DailyStatsTable table : tables) {
+            merged.appendAll(table);
+        }
+        return merged;
+    }
+
+    /**
+     * Partitions a query has to open: those overlapping the dates that hold one of the regions
+     */
+    public List<Partition> prune(int fromDate, int toDate, Collection<String> regionFilter) {
+        BitSet wanted = null;
+        if (regionFilter != null) {
+            wanted = new BitSet();
+            for (String name : regionFilter) {
+                int id = regions.find(name);
+                if (id >= 0) {
+                    wanted.set(id);
+                }
+            }
+        }
+        List<Partition> selected = new ArrayList<>();
+        for (Partition partition : partitions) {
+            if (partition.overlaps(fromDate, toDate) && (wanted == null || partition.regionIds.intersects(wanted))) {
+                selected.add(partition);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * The rows of one loaded partition that match the query; the table itself when all of them do
+     */
+    private static DailyStatsTable select(Partition partition, DailyStatsTable table, int fromDate, int toDate,
+                                          Set<String> wanted) {
+        if (wanted == null && partition.within(fromDate, toDate)) {
+            return table;
+        }
+        StringDictionary names = table.regions();
+        boolean[] allowed = new boolean[names.size()];
+        for (int id = 0; id < allowed.length; id++) {
+            allowed[id] = wanted == null || wanted.contains(names.get(id));
+        }
+
+        DailyStatsTable out = new DailyStatsTable(new StringDictionary(), Math.max(16, table.size() / 4));
+        int[] remap = new int[names.size()];
+        Arrays.fill(remap, -1);
+        byte[] idBytes = table.idBytesColumn();
+        int[] idOffsets = table.idOffsetsColumn();
+        int[] regionIds = table.regionIdColumn();
+        int[] dates = table.dateColumn();
+        for (int row = 0; row < table.size(); row++) {
+            int region = regionIds[row];
+            int date = dates[row];
+            if (!allowed[region] || date < fromDate || date > toDate) {
+                continue;
+            }
+            if (remap[region] < 0) {
+                remap[region] = out.regions().intern(names.get(region));
+            }
+            out.addRow(idBytes, idOffsets[row], idOffsets[row + 1] - idOffsets[row], remap[region], date,
+                table.cases(row), table.recoveries(row), table.deaths(row));
+        }
+        return out;
+    }
+
+    /**
+     * One partition from its snapshot if it is current, otherwise parsed (and the snapshot rewritten)
+     */
+    private static DailyStatsTable loadPartition(Path file, int loaderParallelism) throws IOException {
+        boolean useSnapshot = !"false".equalsIgnoreCase(System.getProperty("covid19.snapshotCache"));
+        SnapshotCache cache = new SnapshotCache(file);
+        if (useSnapshot) {
+            DailyStatsTable cached = cache.load();
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        ParallelStatsLoader loader = new ParallelStatsLoader(loaderParallelism);
+        DailyStatsTable table;
+        try (QuarantineFile quarantine = QuarantineFile.forSource(file, false)) {
+            loader.setQuarantine(quarantine);
+            table = loader.load(file);
+            CSVReader.reportErrors(loader.getErrors(), quarantine);
+        }
+        if (useSnapshot) {
+            try {
+                cache.write(table, loader.getBytesRead(), loader.getHeaderColumns(), loader.getRowsRejected());
+            } catch (IOException e) {
+                System.err.println("Could not write snapshot for " + file.getFileName() + ": " + e.getMessage());
+            }
+        }
+        return table;
+    }
+
+    private <T> List<T> runAll(List<Callable<T>> tasks) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, tasks.size()));
+        try {
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Partition load interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Partition load failed: " + e.getCause(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // === MANIFEST ===
+
+    /**
+     * Partitions recorded by the manifest, by file name; empty if there is none or it cannot be read
+     */
+    private Map<String, Partition> readManifest() throws IOException {
+        Map<String, Partition> known = new HashMap<>();
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return known;
+        }
+        try (BufferedReader in = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            if (!MANIFEST_HEADER.equals(in.readLine())) {
+                System.out.println("Ignoring partition manifest " + manifest + " (unknown version)");
+                return known;
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields[0].equals("region") && fields.length == 2) {
+                    regions.intern(fields[1]);
+                } else if (fields[0].equals("partition") && fields.length == 8) {
+                    known.put(fields[1], new Partition(fields[1], directory.resolve(fields[1]), Long.parseLong(fields[2]),
+                        Long.parseLong(fields[3]), Integer.parseInt(fields[4]), parseDate(fields[5]),
+                        parseDate(fields[6]), parseIds(fields[7])));
+                }
+            }
+        } catch (RuntimeException e) {
+            // A damaged manifest just means scanning every partition again
+            System.out.println("Ignoring partition manifest " + manifest + " (" + e + ")");
+            known.clear();
+        }
+        return known;
+    }
+
+    /**
+     * Rewrites the manifest next to the partitions; written aside and moved into place
+     */
+    private void writeManifest() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        Path partial = manifest.resolveSibling(MANIFEST + ".tmp");
+        try (Writer out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+            out.write(MANIFEST_HEADER + "\n");
+            out.write("# region <name> (ids are line order); partition <file> <bytes> <modified ms> <rows> <first date> <last date> <region id ranges>\n");
+            for (int id = 0; id < regions.size(); id++) {
+                out.write("region\t" + regions.get(id) + "\n");
+            }
+            for (Partition partition : partitions) {
+                out.write("partition\t" + partition.name + "\t" + partition.size + "\t" + partition.modified + "\t"
+                    + partition.rows + "\t" + formatDate(partition.minDate) + "\t" + formatDate(partition.maxDate)
+                    + "\t" + formatIds(partition.regionIds) + "\n");
+            }
+        }
+        Files.move(partial, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Region ids as comma-separated runs, e.g. "0-41,57"
+     */
+    private static String formatIds(BitSet ids) {
+        StringBuilder text = new StringBuilder();
+        for (int first = ids.nextSetBit(0); first >= 0; first = ids.nextSetBit(first + 1)) {
+            int last = ids.nextClearBit(first) - 1;
+            text.append(text.length() == 0 ? "" : ",").append(first);
+            if (last > first) {
+                text.append('-').append(last);
+            }
+            first = last;
+        }
+        return text.toString();
+    }
+
+    private static BitSet parseIds(String text) {
+        BitSet ids = new BitSet();
+        for (String run : text.isEmpty() ? new String[0] : text.split(",")) {
+            int dash = run.indexOf('-');
+            if (dash < 0) {
+                ids.set(Integer.parseInt(run));
+            } else {
+                ids.set(Integer.parseInt(run.substring(0, dash)), Integer.parseInt(run.substring(dash + 1)) + 1);
+            }
+        }
+        return ids;
+    }
+
+    private static String formatDate(int epochDay) {
+        return epochDay == DateCodec.INVALID ? "-" : LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    private static int parseDate(String text) {
+        return text.equals("-") ? DateCodec.INVALID : (int) LocalDate.parse(text).toEpochDay();
+    }
+
+    // === ACCESSORS ===
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Every partition, ordered by first date
+     */
+    public List<Partition> getPartitions() {
+        return List.copyOf(partitions);
+    }
+
+    public long getRowCount() {
+        long rows = 0;
+        for (Partition partition : partitions) {
+            rows += partition.rows;
+        }
+        return rows;
+    }
+
+    /**
+     * Partitions opened by the last query
+     */
+    public int getPartitionsRead() {
+        return partitionsRead;
+    }
+
+    /**
+     * Partitions the last query skipped by their date range or regions
+     */
+    public int getPartitionsPruned() {
+        return partitionsPruned;
+    }
+
+    /**
+     * Size of the partition files the last query opened
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1 && args.length < 3) {
+            System.err.println("Usage: PartitionedDataset <directory> [\"MM d yyyy\" \"MM d yyyy\" [region ...]]");
+            System.exit(2);
+        }
+        int from = Integer.MIN_VALUE;
+        int to = Integer.MAX_VALUE;
+        if (args.length > 1) {
+            from = DateCodec.parse(args[1]);
+            to = DateCodec.parse(args[2]);
+            if (from == DateCodec.INVALID || to == DateCodec.INVALID) {
+                System.err.println("Dates must look like \"01 1 2025\" (month day year)");
+                System.exit(2);
+            }
+        }
+        List<String> regionFilter = args.length > 3 ? Arrays.asList(args).subList(3, args.length) : null;
+        PipelineMetrics.register();
+
+        try {
+            long start = System.nanoTime();
+            PartitionedDataset dataset = open(Paths.get(args[0]));
+            long opened = System.nanoTime();
+            DailyStatsTable table = dataset.load(from, to, regionFilter);
+            long loaded = System.nanoTime();
+            AggregateSnapshot snapshot = AggregationEngine.aggregate(table);
+
+            System.out.printf("%d partition(s), %,d rows; opened in %.1f ms%n", dataset.getPartitions().size(),
+                dataset.getRowCount(), (opened - start) / 1e6);
+            System.out.printf("Read %d partition(s) (%,d bytes), pruned %d: %,d matching rows in %.1f ms%n",
+                dataset.getPartitionsRead(), dataset.getBytesRead(), dataset.getPartitionsPruned(), table.size(),
+                (loaded - opened) / 1e6);
+            System.out.printf("Cases: %,d  Recoveries: %,d  Deaths: %,d%n", snapshot.getTotalCases(),
+                snapshot.getTotalRecoveries(), snapshot.getTotalDeaths());
+        } catch (IOException e) {
+            System.err.println("Error reading partitions: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
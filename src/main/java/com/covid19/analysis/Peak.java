@@ -0,0 +1,34 @@
+package com.covid19.analysis;
+
+/**
+ * One detected peak: its date (epoch day), height and prominence, i.e. how far the series
+ * drops on both sides before it (the higher of the two bases) - the same idea as a
+ * mountain's prominence
+ */
+public final class Peak {
+    private final int date;
+    private final double value;
+    private final double prominence;
+
+    Peak(int date, double value, double prominence) {
+        this.date = date;
+        this.value = value;
+        this.prominence = prominence;
+    }
+
+    public int getDate() {
+        return date;
+    }
+
+    public String getDateLabel() {
+        return DateCodec.format(date);
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public double getProminence() {
+        return prominence;
+    }
+}
@@ -0,0 +1,290 @@
+package com.covid19.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass peak detection for every region at once.
+ * For each region it keeps the top-K case days in a bounded min-heap (O(log K) per row)
+ * and runs a hysteresis detector over the daily series and over its moving average:
+ * a local maximum is reported once the series has risen at least {@code prominence}
+ * from the base on its left and then fallen at least as far again, and peaks closer
+ * than {@code minSeparation} days keep only the higher one. Rows are taken in table
+ * order, like {@link MovingAverageEngine}, and rows appended later can be folded in.
+ */
+public class PeakEngine {
+    private final int topK;
+    private final double prominence;
+    private final int minSeparation;
+    private final int smoothingWindow;
+
+    private RegionState[] regions = new RegionState[0];
+
+    /**
+     * @param topK number of highest days to keep per region
+     * @param prominence minimum rise and fall (in cases) around a local maximum
+     * @param minSeparation minimum number of days between two reported peaks
+     * @param smoothingWindow moving-average window for the smoothed peaks; dated at the middle of the window
+     */
+    public PeakEngine(int topK, double prominence, int minSeparation, int smoothingWindow) {
+        if (topK < 1 || smoothingWindow < 1) {
+            throw new IllegalArgumentException("Top-K and smoothing window must be at least 1");
+        }
+        this.topK = topK;
+        this.prominence = Math.max(0, prominence);
+        this.minSeparation = Math.max(0, minSeparation);
+        this.smoothingWindow = smoothingWindow;
+    }
+
+    /**
+     * Finds the peaks of every region of a table in one pass
+     */
+    public static RegionPeaks[] compute(DailyStatsTable table, int topK, double prominence, int minSeparation,
+                                        int smoothingWindow) {
+        PeakEngine engine = new PeakEngine(topK, prominence, minSeparation, smoothingWindow);
+        engine.accept(table, 0, table.size());
+        return engine.allPeaks(table.regions());
+    }
+
+    /**
+     * Folds rows [fromRow, toRow) into the per-region state
+     */
+    public void accept(DailyStatsTable table, int fromRow, int toRow) {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.PEAKS);
+        ensureRegions(table.regions().size());
+        int[] regionIds = table.regionIdColumn();
+        int[] dates = table.dateColumn();
+        int[] cases = table.casesColumn();
+        for (int i = fromRow; i < toRow; i++) {
+            add(regionIds[i], dates[i], cases[i]);
+        }
+        sample.stop(toRow - fromRow, 0);
+    }
+
+    /**
+     * Adds one daily report; for sources that are not a table (e.g. a streamed result set)
+     */
+    public void add(int region, int date, int cases) {
+        ensureRegions(region + 1);
+        RegionState state = regions[region];
+        if (state == null) {
+            state = regions[region] = new RegionState();
+        }
+        state.add(date, cases);
+    }
+
+    public RegionPeaks peaks(int region, String regionName) {
+        RegionState state = region < regions.length ? regions[region] : null;
+        if (state == null) {
+            return new RegionPeaks(regionName, new int[0], new int[0], new Peak[0], new Peak[0]);
+        }
+        return state.report(regionName);
+    }
+
+    /**
+     * Current peaks for every region, indexed by region id
+     */
+    public RegionPeaks[] allPeaks(StringDictionary names) {
+        RegionPeaks[] result = new RegionPeaks[names.size()];
+        for (int region = 0; region < result.length; region++) {
+            result[region] = peaks(region, names.get(region));
+        }
+        return result;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public double getProminence() {
+        return prominence;
+    }
+
+    public int getMinSeparation() {
+        return minSeparation;
+    }
+
+    public int getSmoothingWindow() {
+        return smoothingWindow;
+    }
+
+    private void ensureRegions(int count) {
+        if (count > regions.length) {
+            regions = Arrays.copyOf(regions, Math.max(count, regions.length * 2));
+        }
+    }
+
+    private final class RegionState {
+        // Min-heap on cases: the root is the smallest of the top K and the first to go
+        final int[] heapCases = new int[topK];
+        final int[] heapDates = new int[topK];
+        int heapSize;
+
+        // Moving-average window for the smoothed series
+        final int[] ringCases = new int[smoothingWindow];
+        final int[] ringDates = new int[smoothingWindow];
+        long sum;
+        long seen;
+
+        final PeakDetector raw = new PeakDetector();
+        final PeakDetector smoothed = new PeakDetector();
+
+        void add(int date, int cases) {
+            offerTop(date, cases);
+            raw.add(cases, date);
+
+            int slot = (int) (seen % smoothingWindow);
+            sum += cases - ringCases[slot];
+            ringCases[slot] = cases;
+            ringDates[slot] = date;
+            seen++;
+            if (seen >= smoothingWindow) {
+                int middle = (int) ((seen - 1 - (smoothingWindow - 1) / 2) % smoothingWindow);
+                smoothed.add(sum / (double) smoothingWindow, ringDates[middle]);
+            }
+        }
+
+        /**
+         * Keeps the K highest days; on equal counts the day already kept (the earlier one) stays
+         */
+        void offerTop(int date, int cases) {
+            if (heapSize < topK) {
+                int i = heapSize++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (heapCases[parent] <= cases) {
+                        break;
+                    }
+                    heapCases[i] = heapCases[parent];
+                    heapDates[i] = heapDates[parent];
+                    i = parent;
+                }
+                heapCases[i] = cases;
+                heapDates[i] = date;
+            } else if (cases > heapCases[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= heapSize) {
+                        break;
+                    }
+                    if (child + 1 < heapSize && heapCases[child + 1] < heapCases[child]) {
+                        child++;
+                    }
+                    if (heapCases[child] >= cases) {
+                        break;
+                    }
+                    heapCases[i] = heapCases[child];
+                    heapDates[i] = heapDates[child];
+                    i = child;
+                }
+                heapCases[i] = cases;
+                heapDates[i] = date;
+            }
+        }
+
+        RegionPeaks report(String name) {
+            // Highest first, earlier date first on ties
+            int[] order = IndexSort.identity(heapSize);
+            IndexSort.sort(order, (a, b) -> heapCases[a] != heapCases[b]
+                ? Integer.compare(heapCases[b], heapCases[a])
+                : Integer.compare(heapDates[a], heapDates[b]));
+            int[] topCases = new int[heapSize];
+            int[] topDates = new int[heapSize];
+            for (int i = 0; i < heapSize; i++) {
+                topCases[i] = heapCases[order[i]];
+                topDates[i] = heapDates[order[i]];
+            }
+            return new RegionPeaks(name, topCases, topDates, raw.peaks(), smoothed.peaks());
+        }
+    }
+
+    /**
+     * Streaming local-maximum detector with hysteresis; O(1) per value
+     */
+    private final class PeakDetector {
+        boolean lookingForMax = true;
+        double max = Double.NEGATIVE_INFINITY;
+        int maxDate;
+        // Lowest value since the last trough, and what it was when the current maximum was set
+        double low = Double.POSITIVE_INFINITY;
+        double candidateBase;
+        // Lowest value since the last peak, and whether it is still that peak's right base
+        double min;
+        boolean refining;
+
+        double[] values = new double[8];
+        int[] dates = new int[8];
+        double[] leftBases = new double[8];
+        double[] rightBases = new double[8];
+        int count;
+
+        void add(double value, int date) {
+            low = Math.min(low, value);
+            if (lookingForMax) {
+                if (value > max) {
+                    max = value;
+                    maxDate = date;
+                    candidateBase = low;
+                }
+                if (value < max && max - value >= prominence) {
+                    refining = max - candidateBase >= prominence && max > candidateBase
+                        && confirm(max, maxDate, candidateBase, value);
+                    lookingForMax = false;
+                    min = value;
+                }
+            } else {
+                if (value < min) {
+                    min = value;
+                    if (refining) {
+                        rightBases[count - 1] = Math.min(rightBases[count - 1], value);
+                    }
+                }
+                if (value > min && value - min >= prominence) {
+                    // The trough is confirmed; start climbing towards the next peak
+                    lookingForMax = true;
+                    max = value;
+                    maxDate = date;
+                    low = min;
+                    candidateBase = min;
+                }
+            }
+        }
+
+        /**
+         * Records a peak; returns false if a higher peak within the separation already stands
+         */
+        private boolean confirm(double value, int date, double leftBase, double rightBase) {
+            if (count > 0 && date - dates[count - 1] < minSeparation) {
+                // Too close to the previous peak: keep whichever is higher
+                if (value > values[count - 1]) {
+                    values[count - 1] = value;
+                    dates[count - 1] = date;
+                    leftBases[count - 1] = Math.min(leftBases[count - 1], leftBase);
+                    rightBases[count - 1] = rightBase;
+                    return true;
+                }
+                return false;
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+                dates = Arrays.copyOf(dates, count * 2);
+                leftBases = Arrays.copyOf(leftBases, count * 2);
+                rightBases = Arrays.copyOf(rightBases, count * 2);
+            }
+            values[count] = value;
+            dates[count] = date;
+            leftBases[count] = leftBase;
+            rightBases[count] = rightBase;
+            count++;
+            return true;
+        }
+
+        Peak[] peaks() {
+            Peak[] result = new Peak[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = new Peak(dates[i], values[i], values[i] - Math.max(leftBases[i], rightBases[i]));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.covid19.analysis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide timings for each stage of the pipeline: latency histogram, rows and bytes
+ * per second and bytes allocated per operation, plus hit rates of the caches.
+ * Stages are timed with {@link #start(Stage)} ... {@link Sample#stop(long, long)}; recording
+ * is lock-free, so the parser and worker threads never wait on each other.
+ *
+ * Published as the MXBean {@value #OBJECT_NAME} by {@link #register()}. With
+ * -Dcovid19.metrics.log=&lt;file&gt; a line per stage is also appended to that file
+ * every -Dcovid19.metrics.interval seconds (default 60), so runs can be compared.
+ */
+public final class PipelineMetrics implements PipelineMetricsMXBean {
+    public static final String OBJECT_NAME = "com.covid19.analysis:type=PipelineMetrics";
+
+    // Latency buckets are powers of two in microseconds: < 1 us, < 2 us, < 4 us, ...; the last takes the rest
+    static final int BUCKETS = 32;
+
+    public enum Stage {
+        PARSE, SNAPSHOT_LOAD, AGGREGATE, MOVING_AVERAGE, PEAKS, OUTBREAK, FORECAST, RENDER, EXPORT, DB
+    }
+
+    /**
+     * SNAPSHOT: binary snapshot loads; STATEMENT: the pool's prepared statements;
+     * ENGINE: the moving-average and peak engines and time index a LiveDataset reuses
+     */
+    public enum Cache {
+        SNAPSHOT, STATEMENT, ENGINE
+    }
+
+    private static final PipelineMetrics INSTANCE = new PipelineMetrics();
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final StageRecorder[] stages = new StageRecorder[Stage.values().length];
+    private final LongAdder[] hits = new LongAdder[Cache.values().length];
+    private final LongAdder[] misses = new LongAdder[Cache.values().length];
+    private volatile long resetAt = System.currentTimeMillis();
+
+    private ScheduledExecutorService logger;
+    private boolean registered;
+
+    private PipelineMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()] = new StageRecorder();
+        }
+        for (Cache cache : Cache.values()) {
+            hits[cache.ordinal()] = new LongAdder();
+            misses[cache.ordinal()] = new LongAdder();
+        }
+    }
+
+    public static PipelineMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts timing one operation of a stage on the current thread
+     */
+    public static Sample start(Stage stage) {
+        return new Sample(INSTANCE.stages[stage.ordinal()]);
+    }
+
+    public static void cacheHit(Cache cache) {
+        INSTANCE.hits[cache.ordinal()].increment();
+    }
+
+    public static void cacheMiss(Cache cache) {
+        INSTANCE.misses[cache.ordinal()].increment();
+    }
+
+    /**
+     * One timed operation. Allocation is measured on the calling thread only, so work a
+     * stage hands to other threads (e.g. parallel parse chunks) is not included.
+     */
+    public static final class Sample {
+        private final StageRecorder recorder;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private Sample(StageRecorder recorder) {
+            this.recorder = recorder;
+            this.startAllocated = allocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        public void stop() {
+            stop(0, 0);
+        }
+
+        public void stop(long rows, long bytes) {
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = startAllocated < 0 ? 0 : Math.max(0, allocatedBytes() - startAllocated);
+            recorder.record(nanos, rows, bytes, allocated);
+        }
+    }
+
+    private static final class StageRecorder {
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder allocated = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long elapsed, long rowCount, long byteCount, long allocatedBytes) {
+            count.increment();
+            nanos.add(elapsed);
+            rows.add(rowCount);
+            bytes.add(byteCount);
+            allocated.add(allocatedBytes);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+            long micros = elapsed / 1000;
+            int bucket = micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            histogram.incrementAndGet(bucket);
+        }
+
+        StageMetrics snapshot(String name) {
+            long[] buckets = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = histogram.get(i);
+            }
+            return new StageMetrics(name, count.sum(), nanos.sum(), maxNanos.get(), rows.sum(), bytes.sum(),
+                allocated.sum(), buckets);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram.set(i, 0);
+            }
+            count.reset();
+            nanos.reset();
+            rows.reset();
+            bytes.reset();
+            allocated.reset();
+            maxNanos.set(0);
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean counter && counter.isThreadAllocatedMemorySupported()) {
+            counter.setThreadAllocatedMemoryEnabled(true);
+            return counter;
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // === MXBEAN ===
+
+    public StageMetrics getStage(Stage stage) {
+        return stages[stage.ordinal()].snapshot(stage.name());
+    }
+
+    @Override
+    public StageMetrics[] getStages() {
+        StageMetrics[] result = new StageMetrics[stages.length];
+        for (Stage stage : Stage.values()) {
+            result[stage.ordinal()] = getStage(stage);
+        }
+        return result;
+    }
+
+    public double getHitRate(Cache cache) {
+        long hit = hits[cache.ordinal()].sum();
+        long total = hit + misses[cache.ordinal()].sum();
+        return total > 0 ? hit * 100.0 / total : 0;
+    }
+
+    @Override
+    public double getSnapshotCacheHitRate() {
+        return getHitRate(Cache.SNAPSHOT);
+    }
+
+    @Override
+    public double getStatementCacheHitRate() {
+        return getHitRate(Cache.STATEMENT);
+    }
+
+    @Override
+    public double getEngineCacheHitRate() {
+        return getHitRate(Cache.ENGINE);
+    }
+
+    @Override
+    public long getSecondsSinceReset() {
+        return (System.currentTimeMillis() - resetAt) / 1000;
+    }
+
+    @Override
+    public void reset() {
+        for (StageRecorder recorder : stages) {
+            recorder.reset();
+        }
+        for (Cache cache : Cache.values()) {
+            hits[cache.ordinal()].reset();
+            misses[cache.ordinal()].reset();
+        }
+        resetAt = System.currentTimeMillis();
+    }
+
+    /**
+     * One line per stage that has run, then the cache hit rates; the format of the metrics log
+     */
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        String now = Instant.now().toString();
+        for (StageMetrics stage : getStages()) {
+            if (stage.getCount() == 0) {
+                continue;
+            }
+            report.append(String.format(Locale.ROOT,
+                "%s stage=%s count=%d mean_ms=%.3f p50_ms=%.3f p90_ms=%.3f p99_ms=%.3f max_ms=%.3f "
+                    + "rows_per_s=%.0f bytes_per_s=%.0f alloc_per_op=%d%n",
+                now, stage.getName(), stage.getCount(), stage.getMeanMillis(), stage.getP50Millis(),
+                stage.getP90Millis(), stage.getP99Millis(), stage.getMaxMillis(), stage.getRowsPerSecond(),
+                stage.getBytesPerSecond(), stage.getAllocatedBytesPerOperation()));
+        }
+        report.append(String.format(Locale.ROOT, "%s caches snapshot_hit_pct=%.1f statement_hit_pct=%.1f engine_hit_pct=%.1f%n",
+            now, getSnapshotCacheHitRate(), getStatementCacheHitRate(), getEngineCacheHitRate()));
+        return report.toString();
+    }
+
+    // === PUBLISHING ===
+
+    /**
+     * Registers the MXBean (once) and starts the metrics log if -Dcovid19.metrics.log is set
+     */
+    public static synchronized void register() {
+        PipelineMetrics metrics = INSTANCE;
+        if (metrics.registered) {
+            return;
+        }
+        metrics.registered = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+
+        String logFile = System.getProperty("covid19.metrics.log");
+        if (logFile != null && !logFile.isEmpty()) {
+            metrics.startLog(Paths.get(logFile), Long.getLong("covid19.metrics.interval", 60));
+        }
+    }
+
+    private void startLog(Path file, long intervalSeconds) {
+        logger = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, intervalSeconds);
+        logger.scheduleAtFixedRate(() -> appendReport(file), period, period, TimeUnit.SECONDS);
+        // A last line on exit, so short runs (batch jobs) are logged too
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> appendReport(file), "metrics-log-final"));
+        System.out.println("Logging pipeline metrics to " + file + " every " + period + " s");
+    }
+
+    private synchronized void appendReport(Path file) {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(getReport());
+        } catch (IOException e) {
+            System.err.println("Could not write metrics log: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.covid19.analysis;
+
+/**
+ * JMX view of {@link PipelineMetrics}; shows up in JConsole / VisualVM under com.covid19.analysis
+ */
+public interface PipelineMetricsMXBean {
+
+    /**
+     * Latency, throughput and allocation for every stage
+     */
+    StageMetrics[] getStages();
+
+    double getSnapshotCacheHitRate();
+
+    double getStatementCacheHitRate();
+
+    double getEngineCacheHitRate();
+
+    long getSecondsSinceReset();
+
+    /**
+     * The stages and caches as text, one line each
+     */
+    String getReport();
+
+    void reset();
+}
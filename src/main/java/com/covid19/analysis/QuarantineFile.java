@@ -0,0 +1,96 @@
+package com.covid19.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Side file for rows the parser rejected, one per line as
+ * "category TAB byte-offset TAB original line", so they can be fixed and re-fed.
+ * Parsers collect rejected lines into their own batch and hand over whole batches,
+ * which may come from several chunk threads at once; the byte offset recovers file order.
+ * The file is only created when the first batch arrives, so clean loads leave nothing behind
+ * (and a fresh load that rejects nothing removes the previous load's file).
+ */
+public class QuarantineFile implements Closeable {
+    public static final String SUFFIX = ".quarantine";
+
+    private static final byte[] HEADER = "category\toffset\tline\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path path;
+    private final boolean append;
+    private FileChannel channel;
+    private boolean opened;
+    private long rowsWritten;
+
+    /**
+     * @param append keep rows already in the file (for tails of a file already loaded) instead of starting over
+     */
+    public QuarantineFile(Path path, boolean append) {
+        this.path = path;
+        this.append = append;
+    }
+
+    /**
+     * "&lt;source&gt;.quarantine" next to the data file, or null when -Dcovid19.quarantine=false
+     */
+    public static QuarantineFile forSource(Path source, boolean append) {
+        if ("false".equalsIgnoreCase(System.getProperty("covid19.quarantine"))) {
+            return null;
+        }
+        return new QuarantineFile(source.resolveSibling(source.getFileName() + SUFFIX), append);
+    }
+
+    /**
+     * Appends a batch of complete quarantine lines
+     */
+    synchronized void write(byte[] batch, int length, int rows) throws IOException {
+        if (channel == null) {
+            open();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(batch, 0, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        rowsWritten += rows;
+    }
+
+    private void open() throws IOException {
+        if (append) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } else {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        opened = true;
+        if (channel.size() == 0) {
+            channel.write(ByteBuffer.wrap(HEADER));
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Rows written since this object was created
+     */
+    public synchronized long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        } else if (!opened && !append) {
+            Files.deleteIfExists(path);
+        }
+    }
+}
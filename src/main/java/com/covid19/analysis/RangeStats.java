@@ -0,0 +1,83 @@
+package com.covid19.analysis;
+
+/**
+ * Totals for one region (or all regions) between two dates, inclusive
+ */
+public final class RangeStats {
+    private final int fromDate;
+    private final int toDate;
+    private final long rows;
+    private final long cases;
+    private final long recoveries;
+    private final long deaths;
+
+    RangeStats(int fromDate, int toDate, long rows, long cases, long recoveries, long deaths) {
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.rows = rows;
+        this.cases = cases;
+        this.recoveries = recoveries;
+        this.deaths = deaths;
+    }
+
+    public int getFromDate() {
+        return fromDate;
+    }
+
+    public int getToDate() {
+        return toDate;
+    }
+
+    /**
+     * Number of daily reports that fall in the range
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public long getCases() {
+        return cases;
+    }
+
+    public long getRecoveries() {
+        return recoveries;
+    }
+
+    public long getDeaths() {
+        return deaths;
+    }
+
+    /**
+     * Deaths as a percentage of cases; 0 when the range has no cases
+     */
+    public double getFatalityRate() {
+        return cases > 0 ? deaths * 100.0 / cases : 0;
+    }
+
+    /**
+     * Recoveries as a percentage of cases; 0 when the range has no cases
+     */
+    public double getRecoveryRate() {
+        return cases > 0 ? recoveries * 100.0 / cases : 0;
+    }
+
+    /**
+     * Average cases per daily report in the range
+     */
+    public double getAverageCasesPerReport() {
+        return rows == 0 ? 0 : cases / (double) rows;
+    }
+
+    /**
+     * Average cases per calendar day in the range; 0 for an empty (inverted) range
+     */
+    public double getAverageCasesPerDay() {
+        long days = (long) toDate - fromDate + 1;
+        return days > 0 ? cases / (double) days : 0;
+    }
+
+    RangeStats plus(RangeStats other) {
+        return new RangeStats(fromDate, toDate, rows + other.rows, cases + other.cases,
+            recoveries + other.recoveries, deaths + other.deaths);
+    }
+}
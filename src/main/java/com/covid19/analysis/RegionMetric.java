@@ -0,0 +1,42 @@
+package com.covid19.analysis;
+
+/**
+ * Per-region metrics the regional views can be sorted by
+ */
+public enum RegionMetric {
+    NAME("Region name"),
+    CASES("Total cases"),
+    RECOVERIES("Total recoveries"),
+    DEATHS("Total deaths"),
+    CASE_SHARE("Share of cases"),
+    FATALITY_RATE("Fatality rate"),
+    RECOVERY_RATE("Recovery rate"),
+    PEAK_CASES("Peak daily cases");
+
+    private final String label;
+
+    RegionMetric(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Numeric value of this metric for a region (NAME has no numeric value and returns 0)
+     */
+    public double valueOf(AggregateSnapshot snapshot, int region) {
+        switch (this) {
+            case CASES: return snapshot.getRegionCases(region);
+            case RECOVERIES: return snapshot.getRegionRecoveries(region);
+            case DEATHS: return snapshot.getRegionDeaths(region);
+            case CASE_SHARE: return snapshot.getRegionCaseShare(region);
+            case FATALITY_RATE: return snapshot.getRegionFatalityRate(region);
+            case RECOVERY_RATE: return snapshot.getRegionRecoveryRate(region);
+            case PEAK_CASES: return snapshot.getPeakCases(region);
+            default: return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
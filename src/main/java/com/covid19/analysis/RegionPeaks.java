@@ -0,0 +1,60 @@
+package com.covid19.analysis;
+
+/**
+ * Peak report for one region: the top-K case days (highest first), the prominent
+ * local maxima of the daily series and those of its moving average
+ */
+public final class RegionPeaks {
+    private final String region;
+    private final int[] topCases;
+    private final int[] topDates;
+    private final Peak[] localPeaks;
+    private final Peak[] smoothedPeaks;
+
+    RegionPeaks(String region, int[] topCases, int[] topDates, Peak[] localPeaks, Peak[] smoothedPeaks) {
+        this.region = region;
+        this.topCases = topCases;
+        this.topDates = topDates;
+        this.localPeaks = localPeaks;
+        this.smoothedPeaks = smoothedPeaks;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Number of top days kept (at most K, fewer if the region has fewer reports)
+     */
+    public int getTopCount() {
+        return topCases.length;
+    }
+
+    public int getTopCases(int rank) {
+        return topCases[rank];
+    }
+
+    public int getTopDate(int rank) {
+        return topDates[rank];
+    }
+
+    public String getTopDateLabel(int rank) {
+        return DateCodec.format(topDates[rank]);
+    }
+
+    public Peak[] getLocalPeaks() {
+        return localPeaks.clone();
+    }
+
+    public int getLocalPeakCount() {
+        return localPeaks.length;
+    }
+
+    public Peak[] getSmoothedPeaks() {
+        return smoothedPeaks.clone();
+    }
+
+    public int getSmoothedPeakCount() {
+        return smoothedPeaks.length;
+    }
+}
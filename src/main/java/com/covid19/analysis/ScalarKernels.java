@@ -0,0 +1,53 @@
+package com.covid19.analysis;
+
+/**
+ * Plain-loop versions of the {@link ColumnKernels}; also used for the tails the vector loops leave
+ */
+final class ScalarKernels {
+
+    private ScalarKernels() {}
+
+    static long sum(int[] values, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    static int min(int[] values, int from, int to) {
+        int min = Integer.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    static int max(int[] values, int from, int to) {
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    static long sumWhere(int[] values, int[] keys, int low, int high, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            if (keys[i] >= low && keys[i] <= high) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+
+    static int countWhere(int[] keys, int low, int high, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (keys[i] >= low && keys[i] <= high) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
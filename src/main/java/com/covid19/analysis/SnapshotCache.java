@@ -0,0 +1,287 @@
+package com.covid19.analysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary columnar copy of a parsed daily_stats file, stored next to it as "&lt;file&gt;.snap".
+ * Layout (little-endian): a fixed header with the source file's size, modification
+ * time and CRC-32C, then one fixed-width section per column (region ids, epoch-day
+ * dates, cases, recoveries, deaths, daily-id offsets), the packed daily-id bytes and
+ * the region dictionary. Loading memory-maps each section and copies it straight
+ * into the table's arrays, which is far cheaper than parsing the text again.
+ * The snapshot is ignored and rewritten as soon as the source's size, time or checksum differ.
+ * The key covers only the bytes that were parsed, so rows appended while parsing make
+ * the snapshot stale instead of being silently left out of it.
+ */
+public class SnapshotCache {
+    public static final String SUFFIX = ".snap";
+
+    private static final long MAGIC = 0x31504E5339314343L; // "CC19SNP1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 80;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final Path source;
+    private final Path snapshot;
+
+    // Key of the source as last inspected
+    private long sourceSize = -1;
+    private long sourceModified;
+    private long sourceChecksum;
+
+    // Parse results stored alongside the columns
+    private long bytesRead;
+    private int headerColumns = -1;
+    private long rowsRejected;
+
+    private long checksumNanos;
+
+    public SnapshotCache(Path source) {
+        this.source = source;
+        this.snapshot = source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    public SnapshotCache(String source) {
+        this(Paths.get(source));
+    }
+
+    /**
+     * Returns the cached table, or null if there is no snapshot or the source has changed since it was written
+     */
+    public DailyStatsTable load() throws IOException {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.SNAPSHOT_LOAD);
+        DailyStatsTable table = Files.exists(snapshot) ? loadSnapshot() : null;
+        if (table != null) {
+            PipelineMetrics.cacheHit(PipelineMetrics.Cache.SNAPSHOT);
+            sample.stop(table.size(), Files.size(snapshot));
+        } else {
+            PipelineMetrics.cacheMiss(PipelineMetrics.Cache.SNAPSHOT);
+        }
+        return table;
+    }
+
+    private DailyStatsTable loadSnapshot() throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return stale("truncated");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong() != MAGIC || header.getInt() != VERSION) {
+                return stale("unknown format");
+            }
+            long size = header.getLong();
+            long modified = header.getLong();
+            long checksum = header.getLong();
+            long storedBytesRead = header.getLong();
+            int storedHeaderColumns = header.getInt();
+            long storedRowsRejected = header.getLong();
+            int rows = header.getInt();
+            int regionCount = header.getInt();
+            int idLength = header.getInt();
+
+            // Size and time first; the checksum only when they match
+            inspectSource(false);
+            if (size != sourceSize || modified != sourceModified) {
+                return stale("source file changed");
+            }
+            inspectSource(true);
+            if (checksum != sourceChecksum) {
+                return stale("source checksum changed");
+            }
+
+            long position = HEADER_SIZE;
+            int[] regionIds = new int[rows];
+            position = readInts(channel, position, regionIds, rows);
+            int[] dates = new int[rows];
+            position = readInts(channel, position, dates, rows);
+            int[] cases = new int[rows];
+            position = readInts(channel, position, cases, rows);
+            int[] recoveries = new int[rows];
+            position = readInts(channel, position, recoveries, rows);
+            int[] deaths = new int[rows];
+            position = readInts(channel, position, deaths, rows);
+            int[] idOffsets = new int[rows + 1];
+            position = readInts(channel, position, idOffsets, rows + 1);
+
+            byte[] idBytes = new byte[Math.max(idLength, 1)];
+            if (idLength > 0) {
+                channel.map(FileChannel.MapMode.READ_ONLY, position, idLength).get(idBytes, 0, idLength);
+            }
+            position += idLength;
+
+            StringDictionary regions = new StringDictionary(regionCount);
+            MappedByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position);
+            dictionary.order(ByteOrder.LITTLE_ENDIAN);
+            for (int id = 0; id < regionCount; id++) {
+                int length = dictionary.getInt();
+                int start = dictionary.position();
+                if (regions.intern(dictionary, start, length) != id) {
+                    return stale("duplicate region in dictionary");
+                }
+                dictionary.position(start + length);
+            }
+
+            bytesRead = storedBytesRead;
+            headerColumns = storedHeaderColumns;
+            rowsRejected = storedRowsRejected;
+            return new DailyStatsTable(regions, idBytes, idOffsets, regionIds, dates, cases, recoveries, deaths, rows);
+        } catch (RuntimeException e) {
+            // A damaged snapshot (e.g. cut short by a crash) just means parsing the text again
+            return stale("unreadable: " + e);
+        }
+    }
+
+    private DailyStatsTable stale(String reason) throws IOException {
+        System.out.println("Ignoring snapshot " + snapshot.getFileName() + " (" + reason + ")");
+        Files.deleteIfExists(snapshot);
+        return null;
+    }
+
+    private static long readInts(FileChannel channel, long position, int[] target, int count) throws IOException {
+        long length = count * 4L;
+        if (length > 0) {
+            channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(target, 0, count);
+        }
+        return position + length;
+    }
+
+    /**
+     * Writes the snapshot for a table that was just parsed from the first bytesRead bytes of the source.
+     * The key is that parsed range: its length and checksum, not the file's size at the time of writing.
+     * Written to a temporary file and moved into place, so readers never see half a snapshot.
+     */
+    public void write(DailyStatsTable table, long bytesRead, int headerColumns, long rowsRejected) throws IOException {
+        sourceModified = Files.getLastModifiedTime(source).toMillis();
+        sourceSize = bytesRead;
+        checksumSource(bytesRead);
+        int rows = table.size();
+        int idLength = table.idOffsetsColumn()[rows];
+        StringDictionary regions = table.regions();
+
+        Path partial = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putLong(MAGIC).putInt(VERSION);
+            buffer.putLong(sourceSize).putLong(sourceModified).putLong(sourceChecksum);
+            buffer.putLong(bytesRead).putInt(headerColumns).putLong(rowsRejected);
+            buffer.putInt(rows).putInt(regions.size()).putInt(idLength);
+            buffer.position(HEADER_SIZE);
+
+            writeInts(channel, buffer, table.regionIdColumn(), rows);
+            writeInts(channel, buffer, table.dateColumn(), rows);
+            writeInts(channel, buffer, table.casesColumn(), rows);
+            writeInts(channel, buffer, table.recoveriesColumn(), rows);
+            writeInts(channel, buffer, table.deathsColumn(), rows);
+            writeInts(channel, buffer, table.idOffsetsColumn(), rows + 1);
+
+            byte[] idBytes = table.idBytesColumn();
+            for (int offset = 0; offset < idLength; ) {
+                int chunk = Math.min(buffer.remaining(), idLength - offset);
+                buffer.put(idBytes, offset, chunk);
+                offset += chunk;
+                if (!buffer.hasRemaining()) {
+                    drain(channel, buffer);
+                }
+            }
+
+            for (int id = 0; id < regions.size(); id++) {
+                byte[] name = regions.get(id).getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < 4 + name.length) {
+                    drain(channel, buffer);
+                }
+                buffer.putInt(name.length).put(name);
+            }
+            drain(channel, buffer);
+            channel.force(false);
+        }
+        Files.move(partial, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            if (buffer.remaining() < 4) {
+                drain(channel, buffer);
+            }
+            int chunk = Math.min(buffer.remaining() / 4, count - offset);
+            buffer.asIntBuffer().put(values, offset, chunk);
+            buffer.position(buffer.position() + chunk * 4);
+            offset += chunk;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads the source's size and time, and its CRC-32C if asked (a mapped pass over the file)
+     */
+    private void inspectSource(boolean withChecksum) throws IOException {
+        sourceSize = Files.size(source);
+        sourceModified = Files.getLastModifiedTime(source).toMillis();
+        if (withChecksum) {
+            checksumSource(sourceSize);
+        }
+    }
+
+    /**
+     * CRC-32C of the first length bytes of the source
+     */
+    private void checksumSource(long length) throws IOException {
+        long start = System.nanoTime();
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long end = Math.min(length, channel.size());
+            for (long position = 0; position < end; position += MappedStatsParser.WINDOW_SIZE) {
+                long window = Math.min(MappedStatsParser.WINDOW_SIZE, end - position);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, window));
+            }
+        }
+        sourceChecksum = crc.getValue();
+        checksumNanos = System.nanoTime() - start;
+    }
+
+    public Path getSourcePath() {
+        return source;
+    }
+
+    public Path getSnapshotPath() {
+        return snapshot;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public int getHeaderColumns() {
+        return headerColumns;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    /**
+     * Time spent checksumming the source on the last load or write
+     */
+    public long getChecksumNanos() {
+        return checksumNanos;
+    }
+}
@@ -0,0 +1,106 @@
+package com.covid19.analysis;
+
+/**
+ * Frozen metrics of one pipeline stage. Percentiles come from a power-of-two
+ * microsecond histogram, so they are upper bounds accurate to a factor of two.
+ */
+public final class StageMetrics {
+    private final String name;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long rows;
+    private final long bytes;
+    private final long allocatedBytes;
+    private final long[] histogram;
+
+    StageMetrics(String name, long count, long totalNanos, long maxNanos, long rows, long bytes,
+                 long allocatedBytes, long[] histogram) {
+        this.name = name;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.allocatedBytes = allocatedBytes;
+        this.histogram = histogram;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getTotalMillis() {
+        return totalNanos / 1e6;
+    }
+
+    public double getMeanMillis() {
+        return count > 0 ? totalNanos / 1e6 / count : 0;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    public double getP50Millis() {
+        return percentileMillis(0.50);
+    }
+
+    public double getP90Millis() {
+        return percentileMillis(0.90);
+    }
+
+    public double getP99Millis() {
+        return percentileMillis(0.99);
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Rows per second of time spent in the stage
+     */
+    public double getRowsPerSecond() {
+        return totalNanos > 0 ? rows / (totalNanos / 1e9) : 0;
+    }
+
+    public double getBytesPerSecond() {
+        return totalNanos > 0 ? bytes / (totalNanos / 1e9) : 0;
+    }
+
+    public long getAllocatedBytesPerOperation() {
+        return count > 0 ? allocatedBytes / count : 0;
+    }
+
+    /**
+     * Operations per latency bucket: bucket 0 is under 1 us, bucket i under 2^i us
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    private double percentileMillis(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int bucket = 0; bucket < histogram.length; bucket++) {
+            seen += histogram[bucket];
+            if (seen >= rank) {
+                // Upper edge of the bucket, but never above the slowest operation seen
+                return Math.min((1L << bucket) / 1e3, maxNanos / 1e6);
+            }
+        }
+        return maxNanos / 1e6;
+    }
+}
@@ -0,0 +1,544 @@
+package com.covid19.analysis;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.function.IntConsumer;
+
+/**
+ * Streams the raw rows, the per-region totals or the moving averages to a file as CSV,
+ * JSON lines or a compact binary columnar format.
+ * Every value is encoded from the table's columns (or the immutable results) straight
+ * into an {@link ExportChannel}, so memory stays at one 1 MiB buffer whatever the size
+ * of the export, and a multi-GB file is written at disk speed.
+ *
+ * <pre>
+ * java -cp target/classes com.covid19.analysis.StatsExporter &lt;input.csv&gt; &lt;output&gt; [rows|regions|averages]
+ * </pre>
+ *
+ * The format follows the output's extension (.csv, .jsonl or .bin).
+ * -Dcovid19.export.window sets the moving-average window (default 7).
+ *
+ * Binary layout (little-endian): magic "CC19COL1", version, row count, column count, then
+ * each column's type and name, then each column in turn: INT32, INT64, FLOAT64 and DATE
+ * (epoch days, int32; Integer.MIN_VALUE where there is no date, as for the peak of a region
+ * that never reported a case) as plain arrays; STRING as rows + 1 int32 offsets followed by the
+ * UTF-8 bytes; DICTIONARY as the entry count, the entries (int32 length + UTF-8) and one
+ * int32 id per row. Strings are length-prefixed.
+ */
+public class StatsExporter {
+    public static final long MAGIC = 0x314C4F4339314343L; // "CC19COL1"
+    public static final int VERSION = 1;
+
+    public static final int INT32 = 1;
+    public static final int INT64 = 2;
+    public static final int FLOAT64 = 3;
+    public static final int DATE = 4;
+    public static final int STRING = 5;
+    public static final int DICTIONARY = 6;
+
+    // Decimals kept for rates and averages in the text formats
+    private static final int DECIMALS = 4;
+    // Rows between progress reports
+    private static final int PROGRESS_ROWS = 1 << 16;
+
+    public enum Format {
+        CSV("csv"), JSONL("jsonl"), BINARY("bin");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Format named by a file's extension, or null
+         */
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            for (Format format : values()) {
+                if (name.endsWith("." + format.extension)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Format format;
+    private IntConsumer progress = percent -> { };
+
+    public StatsExporter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Receives 0-100 as an export proceeds
+     */
+    public void setProgressListener(IntConsumer progress) {
+        this.progress = progress;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Every row of the table, in table order; returns the bytes written
+     */
+    public long exportRows(DailyStatsTable table, Path target) throws IOException {
+        return export(new RowsSource(table), target);
+    }
+
+    /**
+     * One record per region with its totals, rates and peak day; returns the bytes written
+     */
+    public long exportRegions(AggregateSnapshot snapshot, Path target) throws IOException {
+        return export(new RegionsSource(snapshot), target);
+    }
+
+    /**
+     * Every point of every region's moving average; returns the bytes written
+     */
+    public long exportMovingAverages(MovingAverageSeries[] series, Path target) throws IOException {
+        return export(new AveragesSource(series), target);
+    }
+
+    private long export(Source source, Path target) throws IOException {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.EXPORT);
+        long bytes;
+        try (ExportChannel out = new ExportChannel(target)) {
+            if (format == Format.BINARY) {
+                writeBinary(source, out);
+            } else {
+                TextRecords records = new TextRecords(out, format == Format.JSONL, source.names);
+                records.header();
+                source.writeRecords(records);
+            }
+            out.commit();
+            bytes = out.getBytesWritten();
+        }
+        progress.accept(100);
+        sample.stop(source.rows, bytes);
+        return bytes;
+    }
+
+    private void writeBinary(Source source, ExportChannel out) throws IOException {
+        out.putLong(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(source.rows);
+        out.putInt(source.names.length);
+        for (int column = 0; column < source.names.length; column++) {
+            out.putInt(source.types[column]);
+            out.putString(source.names[column]);
+        }
+        for (int column = 0; column < source.names.length; column++) {
+            source.writeColumn(column, out);
+            progress.accept((column + 1) * 100 / source.names.length);
+        }
+    }
+
+    private void reportProgress(long done, long total) {
+        if (total > 0) {
+            progress.accept((int) (done * 100 / total));
+        }
+    }
+
+    /**
+     * Writes the fields of one record at a time as a CSV line or a JSON object
+     */
+    static final class TextRecords {
+        private final ExportChannel out;
+        private final boolean json;
+        private final String[] names;
+        private final byte[][] keys;
+        private int field;
+
+        TextRecords(ExportChannel out, boolean json, String[] names) {
+            this.out = out;
+            this.json = json;
+            this.names = names;
+            this.keys = new byte[names.length][];
+            for (int i = 0; i < names.length; i++) {
+                keys[i] = ("\"" + names[i] + "\":").getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        void header() throws IOException {
+            if (json) {
+                return;
+            }
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    out.put((byte) ',');
+                }
+                out.putAscii(names[i]);
+            }
+            out.put((byte) '\n');
+        }
+
+        void begin() throws IOException {
+            field = 0;
+            if (json) {
+                out.put((byte) '{');
+            }
+        }
+
+        private void next() throws IOException {
+            if (field > 0) {
+                out.put((byte) ',');
+            }
+            if (json) {
+                out.put(keys[field]);
+            }
+            field++;
+        }
+
+        void number(long value) throws IOException {
+            next();
+            out.putDecimal(value);
+        }
+
+        /**
+         * NaN and infinities become an empty CSV field or a JSON null
+         */
+        void decimal(double value) throws IOException {
+            next();
+            if (Double.isFinite(value)) {
+                out.putDecimal(value, DECIMALS);
+            } else if (json) {
+                out.putAscii("null");
+            }
+        }
+
+        /**
+         * DateCodec.INVALID (no date, e.g. a region without a peak) becomes an empty CSV field or a JSON null
+         */
+        void date(int epochDay) throws IOException {
+            next();
+            if (epochDay == DateCodec.INVALID) {
+                if (json) {
+                    out.putAscii("null");
+                }
+                return;
+            }
+            if (json) {
+                out.put((byte) '"');
+            }
+            out.putIsoDate(epochDay);
+            if (json) {
+                out.put((byte) '"');
+            }
+        }
+
+        void text(byte[] bytes, int offset, int length) throws IOException {
+            next();
+            if (json) {
+                out.putJsonString(bytes, offset, length);
+            } else {
+                out.putCsvField(bytes, offset, length);
+            }
+        }
+
+        void text(byte[] bytes) throws IOException {
+            text(bytes, 0, bytes.length);
+        }
+
+        void end() throws IOException {
+            if (json) {
+                out.put((byte) '}');
+            }
+            out.put((byte) '\n');
+        }
+    }
+
+    /**
+     * One exportable result: its columns, each record as text, each column as binary
+     */
+    private abstract static class Source {
+        final String[] names;
+        final int[] types;
+        final int rows;
+
+        Source(String[] names, int[] types, int rows) {
+            this.names = names;
+            this.types = types;
+            this.rows = rows;
+        }
+
+        abstract void writeRecords(TextRecords out) throws IOException;
+
+        abstract void writeColumn(int column, ExportChannel out) throws IOException;
+    }
+
+    private static byte[][] utf8(StringDictionary dictionary) {
+        byte[][] bytes = new byte[dictionary.size()][];
+        for (int id = 0; id < bytes.length; id++) {
+            bytes[id] = dictionary.get(id).getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    private static void writeDictionary(byte[][] entries, ExportChannel out) throws IOException {
+        out.putInt(entries.length);
+        for (byte[] entry : entries) {
+            out.putInt(entry.length);
+            out.put(entry);
+        }
+    }
+
+    private final class RowsSource extends Source {
+        private final DailyStatsTable table;
+        private final byte[][] regionNames;
+
+        RowsSource(DailyStatsTable table) {
+            super(new String[] {"daily_id", "region", "date", "new_cases", "recoveries", "deaths"},
+                new int[] {STRING, DICTIONARY, DATE, INT32, INT32, INT32}, table.size());
+            this.table = table;
+            this.regionNames = utf8(table.regions());
+        }
+
+        @Override
+        void writeRecords(TextRecords out) throws IOException {
+            byte[] idBytes = table.idBytesColumn();
+            int[] idOffsets = table.idOffsetsColumn();
+            int[] regionIds = table.regionIdColumn();
+            int[] dates = table.dateColumn();
+            int[] cases = table.casesColumn();
+            int[] recoveries = table.recoveriesColumn();
+            int[] deaths = table.deathsColumn();
+            for (int row = 0; row < rows; row++) {
+                out.begin();
+                out.text(idBytes, idOffsets[row], idOffsets[row + 1] - idOffsets[row]);
+                out.text(regionNames[regionIds[row]]);
+                out.date(dates[row]);
+                out.number(cases[row]);
+                out.number(recoveries[row]);
+                out.number(deaths[row]);
+                out.end();
+                if ((row + 1) % PROGRESS_ROWS == 0) {
+                    reportProgress(row + 1, rows);
+                }
+            }
+        }
+
+        @Override
+        void writeColumn(int column, ExportChannel out) throws IOException {
+            switch (column) {
+                case 0:
+                    int[] idOffsets = table.idOffsetsColumn();
+                    out.putInts(idOffsets, 0, rows + 1);
+                    out.put(table.idBytesColumn(), 0, idOffsets[rows]);
+                    break;
+                case 1:
+                    writeDictionary(regionNames, out);
+                    out.putInts(table.regionIdColumn(), 0, rows);
+                    break;
+                case 2:
+                    out.putInts(table.dateColumn(), 0, rows);
+                    break;
+                case 3:
+                    out.putInts(table.casesColumn(), 0, rows);
+                    break;
+                case 4:
+                    out.putInts(table.recoveriesColumn(), 0, rows);
+                    break;
+                default:
+                    out.putInts(table.deathsColumn(), 0, rows);
+                    break;
+            }
+        }
+    }
+
+    private static final class RegionsSource extends Source {
+        private final AggregateSnapshot snapshot;
+        private final int[] order;
+        private final byte[][] regionNames;
+
+        RegionsSource(AggregateSnapshot snapshot) {
+            super(new String[] {"region", "reports", "cases", "recoveries", "deaths", "fatality_rate",
+                    "recovery_rate", "peak_cases", "peak_date"},
+                new int[] {STRING, INT64, INT64, INT64, INT64, FLOAT64, FLOAT64, INT32, DATE},
+                snapshot.getRegionCount());
+            this.snapshot = snapshot;
+            this.order = snapshot.regionsSortedBy(RegionMetric.NAME, false);
+            this.regionNames = new byte[order.length][];
+            for (int i = 0; i < order.length; i++) {
+                regionNames[i] = snapshot.getRegionName(order[i]).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        @Override
+        void writeRecords(TextRecords out) throws IOException {
+            for (int i = 0; i < order.length; i++) {
+                int region = order[i];
+                out.begin();
+                out.text(regionNames[i]);
+                out.number(snapshot.getRegionRows(region));
+                out.number(snapshot.getRegionCases(region));
+                out.number(snapshot.getRegionRecoveries(region));
+                out.number(snapshot.getRegionDeaths(region));
+                out.decimal(snapshot.getRegionFatalityRate(region));
+                out.decimal(snapshot.getRegionRecoveryRate(region));
+                out.number(snapshot.getPeakCases(region));
+                out.date(snapshot.getPeakDate(region));
+                out.end();
+            }
+        }
+
+        @Override
+        void writeColumn(int column, ExportChannel out) throws IOException {
+            if (column == 0) {
+                int offset = 0;
+                out.putInt(offset);
+                for (byte[] name : regionNames) {
+                    offset += name.length;
+                    out.putInt(offset);
+                }
+                for (byte[] name : regionNames) {
+                    out.put(name);
+                }
+                return;
+            }
+            for (int region : order) {
+                switch (column) {
+                    case 1:
+                        out.putLong(snapshot.getRegionRows(region));
+                        break;
+                    case 2:
+                        out.putLong(snapshot.getRegionCases(region));
+                        break;
+                    case 3:
+                        out.putLong(snapshot.getRegionRecoveries(region));
+                        break;
+                    case 4:
+                        out.putLong(snapshot.getRegionDeaths(region));
+                        break;
+                    case 5:
+                        out.putDouble(snapshot.getRegionFatalityRate(region));
+                        break;
+                    case 6:
+                        out.putDouble(snapshot.getRegionRecoveryRate(region));
+                        break;
+                    case 7:
+                        out.putInt(snapshot.getPeakCases(region));
+                        break;
+                    default:
+                        out.putInt(snapshot.getPeakDate(region));
+                        break;
+                }
+            }
+        }
+    }
+
+    private final class AveragesSource extends Source {
+        private final MovingAverageSeries[] series;
+        private final byte[][] regionNames;
+
+        AveragesSource(MovingAverageSeries[] series) {
+            super(new String[] {"region", "date", "moving_average"}, new int[] {DICTIONARY, DATE, FLOAT64},
+                totalPoints(series));
+            this.series = series;
+            this.regionNames = new byte[series.length][];
+            for (int i = 0; i < series.length; i++) {
+                regionNames[i] = series[i].getRegion().getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        @Override
+        void writeRecords(TextRecords out) throws IOException {
+            long done = 0;
+            for (int s = 0; s < series.length; s++) {
+                MovingAverageSeries points = series[s];
+                for (int i = 0; i < points.size(); i++) {
+                    out.begin();
+                    out.text(regionNames[s]);
+                    out.date(points.date(i));
+                    out.decimal(points.value(i));
+                    out.end();
+                }
+                done += points.size();
+                reportProgress(done, rows);
+            }
+        }
+
+        @Override
+        void writeColumn(int column, ExportChannel out) throws IOException {
+            if (column == 0) {
+                writeDictionary(regionNames, out);
+            }
+            for (int s = 0; s < series.length; s++) {
+                MovingAverageSeries points = series[s];
+                for (int i = 0; i < points.size(); i++) {
+                    if (column == 0) {
+                        out.putInt(s);
+                    } else if (column == 1) {
+                        out.putInt(points.date(i));
+                    } else {
+                        out.putDouble(points.value(i));
+                    }
+                }
+            }
+        }
+    }
+
+    private static int totalPoints(MovingAverageSeries[] series) {
+        long total = 0;
+        for (MovingAverageSeries points : series) {
+            total += points.size();
+        }
+        return Math.toIntExact(total);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: StatsExporter <input.csv> <output.csv|.jsonl|.bin> [rows|regions|averages]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        String what = args.length > 2 ? args[2] : "rows";
+        Format format = Format.forFile(output);
+        if (format == null) {
+            System.err.println("Unknown export format for " + output + "; use .csv, .jsonl or .bin");
+            System.exit(2);
+        }
+        PipelineMetrics.register();
+
+        try {
+            long start = System.nanoTime();
+            DailyStatsTable table = new ParallelStatsLoader().load(input);
+            long parsed = System.nanoTime();
+            StatsExporter exporter = new StatsExporter(format);
+            long bytes;
+            switch (what) {
+                case "rows":
+                    bytes = exporter.exportRows(table, output);
+                    break;
+                case "regions":
+                    bytes = exporter.exportRegions(AggregationEngine.aggregate(table), output);
+                    break;
+                case "averages":
+                    int window = Integer.getInteger("covid19.export.window", 7);
+                    bytes = exporter.exportMovingAverages(MovingAverageEngine.compute(table, window, false), output);
+                    break;
+                default:
+                    System.err.println("Unknown export: " + what + " (rows, regions or averages)");
+                    System.exit(2);
+                    return;
+            }
+            double seconds = (System.nanoTime() - parsed) / 1e9;
+            System.out.printf("Exported %s of %,d rows to %s: %,d bytes in %.2f s (%.0f MB/s), parse %.2f s%n",
+                what, table.size(), output, bytes, seconds, bytes / 1e6 / seconds, (parsed - start) / 1e9);
+        } catch (IOException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.covid19.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Watches a daily_stats file for appended rows.
+ * Only the bytes after the last processed offset are mapped and parsed, up to the
+ * last complete line, so a half-written row is picked up on the next change.
+ * File-system change events trigger a check immediately; a short poll interval
+ * covers platforms where the watch service itself polls.
+ * A replaced file is told apart from an appended one by its file key (inode) where the
+ * platform has one, and otherwise by checksums of the first and last bytes already loaded.
+ */
+public class StatsFileWatcher implements Closeable {
+    static final long POLL_INTERVAL_MS = 250;
+    // Bytes at each end of the loaded range that are checksummed to recognise the same file
+    static final int FINGERPRINT_BYTES = 4096;
+
+    /**
+     * Receives parsed tails on the watcher thread
+     */
+    public interface Listener {
+        void rowsAppended(DailyStatsTable tail, long bytes, long elapsedNanos);
+
+        /** The file shrank or was replaced; the caller should reload it from scratch */
+        void fileReset();
+
+        void watchFailed(IOException e);
+    }
+
+    private final Path file;
+    private final Listener listener;
+    private long offset;
+    private QuarantineFile quarantine;
+
+    // Identity of the loaded data, taken when the watcher starts and after each append
+    private boolean identified;
+    private Object fileKey;
+    private long modified;
+    private long fingerprint;
+
+    private volatile boolean running;
+    private Thread thread;
+    private WatchService watchService;
+
+    /**
+     * @param offset byte position just after the data that has already been loaded
+     */
+    public StatsFileWatcher(Path file, long offset, Listener listener) {
+        this.file = file.toAbsolutePath();
+        this.offset = offset;
+        this.listener = listener;
+    }
+
+    /**
+     * Appends rows rejected in new tails to the given file, which close() then closes
+     */
+    public synchronized void setQuarantine(QuarantineFile quarantine) {
+        this.quarantine = quarantine;
+    }
+
+    public void start() throws IOException {
+        synchronized (this) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                identify(channel);
+            }
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        running = true;
+
+        thread = new Thread(this::watchLoop, "stats-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Watching " + file + " for appended rows");
+    }
+
+    private void watchLoop() {
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                checkForAppends();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (IOException e) {
+                listener.watchFailed(e);
+            }
+        }
+    }
+
+    /**
+     * Parses any complete lines appended since the last check and returns how many rows were read
+     */
+    public synchronized int checkForAppends() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (!identified) {
+                identify(channel);
+            }
+            long size = channel.size();
+            if (size < offset || isReplaced(channel)) {
+                // Stop here; the caller reloads and starts a new watcher
+                running = false;
+                listener.fileReset();
+                return 0;
+            }
+            if (size == offset) {
+                return 0;
+            }
+
+            long end = lastLineEnd(channel, offset, size);
+            if (end <= offset) {
+                return 0; // only a partial line so far
+            }
+
+            long start = System.nanoTime();
+            MappedStatsParser parser = new MappedStatsParser();
+            parser.setQuarantine(quarantine);
+            DailyStatsTable tail = new DailyStatsTable(new StringDictionary(), MappedStatsParser.estimateRows(end - offset));
+            parser.parseRange(channel, offset, end, tail);
+            CSVReader.reportErrors(parser.getErrors(), quarantine);
+            long bytes = end - offset;
+            offset = end;
+            identify(channel);
+
+            if (!tail.isEmpty()) {
+                listener.rowsAppended(tail, bytes, System.nanoTime() - start);
+            }
+            return tail.size();
+        }
+    }
+
+    /**
+     * Records the file key, modification time and fingerprint of the data up to the current offset
+     */
+    private void identify(FileChannel channel) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        fileKey = attributes.fileKey();
+        modified = attributes.lastModifiedTime().toMillis();
+        fingerprint = fingerprint(channel, offset);
+        identified = true;
+    }
+
+    /**
+     * Whether the path now holds a different file than the one loaded: another file key,
+     * or, once the file has been modified, different bytes in the already loaded range
+     */
+    private boolean isReplaced(FileChannel channel) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (fileKey != null && !fileKey.equals(attributes.fileKey())) {
+            return true;
+        }
+        long time = attributes.lastModifiedTime().toMillis();
+        if (time == modified) {
+            return false;
+        }
+        if (fingerprint(channel, offset) != fingerprint) {
+            return true;
+        }
+        modified = time;
+        return false;
+    }
+
+    /**
+     * CRC-32C of the first and the last FINGERPRINT_BYTES of [0, length)
+     */
+    private static long fingerprint(FileChannel channel, long length) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(FINGERPRINT_BYTES);
+        readFully(channel, buffer, 0, (int) Math.min(FINGERPRINT_BYTES, length));
+        crc.update(buffer);
+        if (length > FINGERPRINT_BYTES) {
+            long from = Math.max(FINGERPRINT_BYTES, length - FINGERPRINT_BYTES);
+            readFully(channel, buffer, from, (int) (length - from));
+            crc.update(buffer);
+        }
+        return crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Position just after the last newline in [from, to), or from if there is none
+     */
+    private static long lastLineEnd(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = to;
+        while (position > from) {
+            int length = (int) Math.min(buffer.capacity(), position - from);
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position - length + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return position - length + i + 1;
+                }
+            }
+            position -= length;
+        }
+        return from;
+    }
+
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("Error closing file watcher: " + e.getMessage());
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        synchronized (this) {
+            if (quarantine != null) {
+                try {
+                    quarantine.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing quarantine file: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.covid19.analysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interning dictionary that maps repeated text tokens (region names) to dense int ids.
+ * Keys are stored as UTF-8 bytes in an open-addressing table, so lookups never box an id.
+ */
+public class StringDictionary {
+    private static final int EMPTY = -1;
+
+    private byte[][] keys;
+    private String[] values;
+    private int[] hashes;
+    private int[] slots;
+    private int size;
+
+    public StringDictionary() {
+        this(16);
+    }
+
+    public StringDictionary(int expectedSize) {
+        int capacity = Math.max(4, expectedSize);
+        keys = new byte[capacity][];
+        values = new String[capacity];
+        hashes = new int[capacity];
+        slots = new int[tableSizeFor(capacity * 2)];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * Returns the id for the given token, adding it if it has not been seen before
+     */
+    public int intern(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return intern(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the id for the token held in bytes[offset, offset + length), adding it if needed.
+     * The bytes are only copied the first time the token is seen.
+     */
+    public int intern(byte[] bytes, int offset, int length) {
+        int hash = hash(bytes, offset, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        while (slots[slot] != EMPTY) {
+            int id = slots[slot];
+            if (hashes[id] == hash && Arrays.equals(keys[id], 0, keys[id].length, bytes, offset, offset + length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = add(Arrays.copyOfRange(bytes, offset, offset + length), hash);
+        slots[slot] = id;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Same as {@link #intern(byte[], int, int)} but reads the token straight out of a
+     * (typically memory-mapped) buffer using absolute indexes, so no String is created
+     * unless the token is new.
+     */
+    public int intern(ByteBuffer buffer, int offset, int length) {
+        int hash = hash(buffer, offset, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        while (slots[slot] != EMPTY) {
+            int id = slots[slot];
+            if (hashes[id] == hash && matches(keys[id], buffer, offset, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        byte[] key = new byte[length];
+        buffer.get(offset, key);
+        int id = add(key, hash);
+        slots[slot] = id;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id for the given token, or -1 if it is not in the dictionary
+     */
+    public int find(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes, 0, bytes.length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        while (slots[slot] != EMPTY) {
+            int id = slots[slot];
+            if (hashes[id] == hash && Arrays.equals(keys[id], bytes)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    public String get(int id) {
+        return values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Backing name array, shared rather than copied. Entries below the current size()
+     * are never modified, so a caller may keep reading them while new names are added.
+     */
+    String[] names() {
+        return values;
+    }
+
+    private int add(byte[] key, int hash) {
+        if (size == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        keys[size] = key;
+        values[size] = new String(key, StandardCharsets.UTF_8);
+        hashes[size] = hash;
+        return size++;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, EMPTY);
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer buffer, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != buffer.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int hash(byte[] bytes, int offset, int length) {
+        int h = 1;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        // Spread the bits so sequential names ("Region1", "Region2", ...) don't cluster
+        return h ^ (h >>> 16);
+    }
+
+    static int hash(ByteBuffer buffer, int offset, int length) {
+        int h = 1;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + buffer.get(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
@@ -1,11 +1,65 @@
 package com.covid19.analysis;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
- * Simple test to verify our database connection works
+ * Simple test to verify our database connection works.
+ * Also hammers the pool from several threads; run it against an embedded database with
+ * mvn -Pembedded-db compile exec:java
  */
 public class TestConnection {
+    private static final int THREADS = 16;
+    private static final int QUERIES_PER_THREAD = 200;
+
     public static void main(String[] args) {
         System.out.println("Testing database connection...");
         DatabaseConnection.testConnection();
+        testPoolUnderLoad();
+        DatabaseConnection.closeConnection();
+    }
+
+    private static void testPoolUnderLoad() {
+        System.out.println("Testing connection pool with " + THREADS + " threads...");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    int rows = 0;
+                    for (int i = 0; i < QUERIES_PER_THREAD; i++) {
+                        try (Connection conn = DatabaseConnection.getConnection();
+                             PreparedStatement stmt = conn.prepareStatement("SELECT 1");
+                             ResultSet rs = stmt.executeQuery()) {
+                            if (rs.next()) {
+                                rows += rs.getInt(1);
+                            }
+                        }
+                    }
+                    return rows;
+                }));
+            }
+
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get();
+            }
+            boolean passed = total == THREADS * QUERIES_PER_THREAD;
+            System.out.println((passed ? "Connection pool test PASSED: " : "Connection pool test FAILED: ")
+                + total + " queries");
+        } catch (Exception e) {
+            Throwable cause = e.getCause() instanceof SQLException ? e.getCause() : e;
+            System.err.println("Connection pool test FAILED: " + cause.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+        System.out.println(DatabaseConnection.getPool());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,258 @@
+package com.covid19.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Per-region date index with prefix sums for O(log n) date-range queries.
+ * For each region the rows are ordered by date and cumulative cases,
+ * recoveries and deaths are stored, so any range total is two binary
+ * searches and two lookups: prefix[hi] - prefix[lo].
+ * Appended rows are folded in with {@link #accept}, so the index never has to be rebuilt.
+ */
+public class TimeIndex {
+    private String[] regionNames;
+    // Per region: dates[r][0..counts[r]) ascending, prefix sums [0..counts[r]]; arrays have spare room
+    private int[][] dates;
+    private long[][] prefixCases;
+    private long[][] prefixRecoveries;
+    private long[][] prefixDeaths;
+    private int[] counts;
+
+    private TimeIndex(String[] regionNames, int[][] dates, long[][] prefixCases,
+                      long[][] prefixRecoveries, long[][] prefixDeaths, int[] counts) {
+        this.regionNames = regionNames;
+        this.dates = dates;
+        this.prefixCases = prefixCases;
+        this.prefixRecoveries = prefixRecoveries;
+        this.prefixDeaths = prefixDeaths;
+        this.counts = counts;
+    }
+
+    /**
+     * Builds the index in O(rows) for date-ordered data (O(rows log rows) otherwise)
+     */
+    public static TimeIndex build(DailyStatsTable table) {
+        int regionCount = table.regions().size();
+        int size = table.size();
+        int[] regionIds = table.regionIdColumn();
+        int[] dateColumn = table.dateColumn();
+
+        // Bucket row numbers by region (counting sort keeps table order within a region)
+        int[] start = new int[regionCount + 1];
+        for (int i = 0; i < size; i++) {
+            start[regionIds[i] + 1]++;
+        }
+        for (int r = 0; r < regionCount; r++) {
+            start[r + 1] += start[r];
+        }
+        int[] rows = new int[size];
+        int[] next = start.clone();
+        for (int i = 0; i < size; i++) {
+            rows[next[regionIds[i]]++] = i;
+        }
+
+        String[] names = new String[regionCount];
+        int[][] dates = new int[regionCount][];
+        long[][] cases = new long[regionCount][];
+        long[][] recoveries = new long[regionCount][];
+        long[][] deaths = new long[regionCount][];
+        int[] counts = new int[regionCount];
+
+        for (int r = 0; r < regionCount; r++) {
+            names[r] = table.regions().get(r);
+            int from = start[r];
+            int to = start[r + 1];
+
+            // Feeds are normally already in date order; only sort when they are not
+            boolean sorted = true;
+            for (int i = from + 1; i < to && sorted; i++) {
+                sorted = dateColumn[rows[i - 1]] <= dateColumn[rows[i]];
+            }
+            if (!sorted) {
+                IndexSort.sort(rows, from, to, (a, b) -> Integer.compare(dateColumn[a], dateColumn[b]));
+            }
+
+            int n = to - from;
+            counts[r] = n;
+            dates[r] = new int[n];
+            cases[r] = new long[n + 1];
+            recoveries[r] = new long[n + 1];
+            deaths[r] = new long[n + 1];
+            for (int i = 0; i < n; i++) {
+                int row = rows[from + i];
+                dates[r][i] = dateColumn[row];
+                cases[r][i + 1] = cases[r][i] + table.cases(row);
+                recoveries[r][i + 1] = recoveries[r][i] + table.recoveries(row);
+                deaths[r][i + 1] = deaths[r][i] + table.deaths(row);
+            }
+        }
+
+        return new TimeIndex(names, dates, cases, recoveries, deaths, counts);
+    }
+
+    /**
+     * Adds table rows [from, to), appended since the index was built, in O(new rows):
+     * each region's arrays grow in place and a row that continues the region's dates
+     * just extends its prefix sums. Only a row dated before the region's last report
+     * is inserted in date order, which shifts that region's later entries.
+     */
+    public void accept(DailyStatsTable table, int from, int to) {
+        ensureRegions(table.regions());
+        int[] regionIds = table.regionIdColumn();
+        int[] dateColumn = table.dateColumn();
+        for (int row = from; row < to; row++) {
+            add(regionIds[row], dateColumn[row], table.cases(row), table.recoveries(row), table.deaths(row));
+        }
+    }
+
+    private void add(int region, int date, int newCases, int newRecoveries, int newDeaths) {
+        int n = counts[region];
+        ensureRoom(region, n + 1);
+        int[] regionDates = dates[region];
+
+        // After any reports on the same date, as the stable sort in build() orders them
+        int position = n == 0 || regionDates[n - 1] <= date ? n : lowerBound(regionDates, n, date + 1);
+        System.arraycopy(regionDates, position, regionDates, position + 1, n - position);
+        regionDates[position] = date;
+        insert(prefixCases[region], n, position, newCases);
+        insert(prefixRecoveries[region], n, position, newRecoveries);
+        insert(prefixDeaths[region], n, position, newDeaths);
+        counts[region] = n + 1;
+    }
+
+    /**
+     * Inserts a value at the given position of a prefix-sum array holding n values
+     */
+    private static void insert(long[] prefix, int n, int position, long value) {
+        for (int i = n; i > position; i--) {
+            prefix[i + 1] = prefix[i] + value;
+        }
+        prefix[position + 1] = prefix[position] + value;
+    }
+
+    private void ensureRoom(int region, int required) {
+        if (required <= dates[region].length) {
+            return;
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 9,
+            Math.max(required, Math.max(16, dates[region].length + (long) (dates[region].length >> 1))));
+        dates[region] = Arrays.copyOf(dates[region], capacity);
+        prefixCases[region] = Arrays.copyOf(prefixCases[region], capacity + 1);
+        prefixRecoveries[region] = Arrays.copyOf(prefixRecoveries[region], capacity + 1);
+        prefixDeaths[region] = Arrays.copyOf(prefixDeaths[region], capacity + 1);
+    }
+
+    private void ensureRegions(StringDictionary regions) {
+        int count = regions.size();
+        int old = regionNames.length;
+        if (count <= old) {
+            return;
+        }
+        regionNames = Arrays.copyOf(regionNames, count);
+        dates = Arrays.copyOf(dates, count);
+        prefixCases = Arrays.copyOf(prefixCases, count);
+        prefixRecoveries = Arrays.copyOf(prefixRecoveries, count);
+        prefixDeaths = Arrays.copyOf(prefixDeaths, count);
+        counts = Arrays.copyOf(counts, count);
+        for (int r = old; r < count; r++) {
+            regionNames[r] = regions.get(r);
+            dates[r] = new int[0];
+            prefixCases[r] = new long[1];
+            prefixRecoveries[r] = new long[1];
+            prefixDeaths[r] = new long[1];
+        }
+    }
+
+    /**
+     * Totals for one region between fromDate and toDate (epoch days, inclusive)
+     */
+    public RangeStats range(int region, int fromDate, int toDate) {
+        int lo = lowerBound(dates[region], counts[region], fromDate);
+        int hi = lowerBound(dates[region], counts[region], toDate + 1);
+        if (hi < lo) {
+            hi = lo;
+        }
+        return new RangeStats(fromDate, toDate, hi - lo,
+            prefixCases[region][hi] - prefixCases[region][lo],
+            prefixRecoveries[region][hi] - prefixRecoveries[region][lo],
+            prefixDeaths[region][hi] - prefixDeaths[region][lo]);
+    }
+
+    /**
+     * Totals across every region between the two dates, in O(regions log n)
+     */
+    public RangeStats rangeAll(int fromDate, int toDate) {
+        RangeStats total = new RangeStats(fromDate, toDate, 0, 0, 0, 0);
+        for (int region = 0; region < counts.length; region++) {
+            total = total.plus(range(region, fromDate, toDate));
+        }
+        return total;
+    }
+
+    /**
+     * Copy of one region's report dates, ascending
+     */
+    public int[] regionDates(int region) {
+        return Arrays.copyOf(dates[region], counts[region]);
+    }
+
+    /**
+     * One region's daily cases, aligned with regionDates()
+     */
+    public double[] regionCases(int region) {
+        return daily(prefixCases[region], counts[region]);
+    }
+
+    public double[] regionRecoveries(int region) {
+        return daily(prefixRecoveries[region], counts[region]);
+    }
+
+    public double[] regionDeaths(int region) {
+        return daily(prefixDeaths[region], counts[region]);
+    }
+
+    private static double[] daily(long[] prefix, int n) {
+        double[] values = new double[n];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = prefix[i + 1] - prefix[i];
+        }
+        return values;
+    }
+
+    public int getRegionCount() {
+        return regionNames.length;
+    }
+
+    public String getRegionName(int region) {
+        return regionNames[region];
+    }
+
+    /**
+     * Index of the named region, or -1 if it is not indexed
+     */
+    public int regionIndex(String name) {
+        for (int i = 0; i < regionNames.length; i++) {
+            if (regionNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * First index in [0, length) whose date is >= key
+     */
+    private static int lowerBound(int[] sortedDates, int length, int key) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedDates[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,333 @@
+package com.covid19.analysis;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.List;
+import javax.swing.JComponent;
+
+/**
+ * Line chart of {@link ChartSeries} over time with mouse-wheel zoom (around the cursor),
+ * drag to pan and double-click to show everything.
+ * Each paint picks, per series, the pyramid level whose buckets are at most one pixel wide
+ * and draws only its visible slice (found by binary search), so a frame costs O(width)
+ * however many points the series hold. Nothing is allocated per frame besides Swing's own.
+ */
+public class TimeSeriesChart extends JComponent {
+    private static final int LEFT = 80;
+    private static final int RIGHT = 20;
+    private static final int TOP = 30;
+    private static final int BOTTOM = 40;
+    private static final int Y_TICKS = 5;
+    private static final int MIN_X_TICK_PIXELS = 90;
+    private static final double MIN_SPAN_DAYS = 7;
+    private static final double ZOOM_STEP = 1.2;
+    private static final BasicStroke SPARSE_STROKE = new BasicStroke(1.5f);
+    private static final BasicStroke DENSE_STROKE = new BasicStroke(1f);
+    private static final int[] X_TICK_DAYS = {1, 2, 7, 14, 28, 61, 91, 182, 365, 730, 1826, 3652};
+
+    private List<ChartSeries> series = List.of();
+    private double dataFrom;
+    private double dataTo;
+    private double viewFrom;
+    private double viewTo;
+
+    // Polyline buffers reused across frames
+    private int[] xPoints = new int[0];
+    private int[] yPoints = new int[0];
+
+    private int dragX;
+    private double dragViewFrom;
+
+    public TimeSeriesChart() {
+        setPreferredSize(new Dimension(800, 400));
+        setOpaque(true);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragX = e.getX();
+                dragViewFrom = viewFrom;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                pan(dragViewFrom - (e.getX() - dragX) * daysPerPixel());
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    resetView();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(xToDay(e.getX()), Math.pow(ZOOM_STEP, e.getPreciseWheelRotation()));
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Replaces the plotted series. A zoomed-in view is kept (clamped to the new data)
+     * so live updates do not throw the user back to the full range.
+     */
+    public void setSeries(List<ChartSeries> newSeries) {
+        boolean showingAll = series.isEmpty() || (viewFrom <= dataFrom && viewTo >= dataTo);
+        series = List.copyOf(newSeries);
+
+        double from = Double.MAX_VALUE;
+        double to = -Double.MAX_VALUE;
+        for (ChartSeries s : series) {
+            if (!s.isEmpty()) {
+                from = Math.min(from, s.getFirstDate());
+                to = Math.max(to, s.getLastDate());
+            }
+        }
+        if (from > to) {
+            from = 0;
+            to = MIN_SPAN_DAYS;
+        } else if (to - from < MIN_SPAN_DAYS) {
+            to = from + MIN_SPAN_DAYS;
+        }
+        dataFrom = from;
+        dataTo = to;
+
+        if (showingAll) {
+            resetView();
+        } else {
+            double span = Math.min(viewTo - viewFrom, dataTo - dataFrom);
+            setView(viewFrom, viewFrom + span);
+        }
+    }
+
+    /**
+     * Shows the full date range
+     */
+    public void resetView() {
+        setView(dataFrom, dataTo);
+    }
+
+    /**
+     * Scales the visible span by factor, keeping the given day under the same pixel
+     */
+    public void zoom(double anchorDay, double factor) {
+        double span = viewTo - viewFrom;
+        double newSpan = Math.max(MIN_SPAN_DAYS, Math.min(dataTo - dataFrom, span * factor));
+        double newFrom = anchorDay - (anchorDay - viewFrom) * newSpan / span;
+        setView(newFrom, newFrom + newSpan);
+    }
+
+    private void pan(double newFrom) {
+        setView(newFrom, newFrom + (viewTo - viewFrom));
+    }
+
+    private void setView(double from, double to) {
+        double span = to - from;
+        if (from < dataFrom) {
+            from = dataFrom;
+        }
+        if (from + span > dataTo) {
+            from = Math.max(dataFrom, dataTo - span);
+        }
+        viewFrom = from;
+        viewTo = Math.min(dataTo, from + span);
+        repaint();
+    }
+
+    private int plotWidth() {
+        return Math.max(1, getWidth() - LEFT - RIGHT);
+    }
+
+    private int plotHeight() {
+        return Math.max(1, getHeight() - TOP - BOTTOM);
+    }
+
+    private double daysPerPixel() {
+        return (viewTo - viewFrom) / plotWidth();
+    }
+
+    private double xToDay(int x) {
+        return viewFrom + (x - LEFT) * daysPerPixel();
+    }
+
+    private int dayToX(double day) {
+        return LEFT + (int) Math.round((day - viewFrom) / daysPerPixel());
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        PipelineMetrics.Sample sample = PipelineMetrics.start(PipelineMetrics.Stage.RENDER);
+        Graphics2D g = (Graphics2D) graphics.create();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, getWidth(), getHeight());
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            if (series.isEmpty()) {
+                g.setColor(Color.GRAY);
+                g.drawString("No data to chart", LEFT + 10, TOP + 20);
+                sample.stop(0, 0);
+                return;
+            }
+
+            double daysPerPixel = daysPerPixel();
+            int first = (int) Math.floor(viewFrom);
+            int last = (int) Math.ceil(viewTo);
+
+            // Scale the y axis to what is visible at this zoom level
+            double yMax = 0;
+            for (ChartSeries s : series) {
+                int level = s.levelFor(daysPerPixel);
+                double[] values = s.values(level);
+                int[] dates = s.dates(level);
+                for (int i = lowerBound(dates, first), end = lowerBound(dates, last + 1); i < end; i++) {
+                    yMax = Math.max(yMax, values[i]);
+                }
+            }
+            yMax = niceCeiling(yMax);
+
+            drawAxes(g, yMax);
+
+            Shape clip = g.getClip();
+            g.clipRect(LEFT, TOP, plotWidth() + 1, plotHeight() + 1);
+            long points = 0;
+            for (ChartSeries s : series) {
+                points += drawSeries(g, s, daysPerPixel, first, last, yMax);
+            }
+            g.setClip(clip);
+
+            drawLegend(g);
+            sample.stop(points, 0);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Draws the visible slice of one series, plus one point either side so the line
+     * runs to the edges; returns the number of points drawn
+     */
+    private int drawSeries(Graphics2D g, ChartSeries s, double daysPerPixel, int first, int last, double yMax) {
+        int level = s.levelFor(daysPerPixel);
+        int[] dates = s.dates(level);
+        double[] values = s.values(level);
+        int from = Math.max(0, lowerBound(dates, first) - 1);
+        int to = Math.min(dates.length, lowerBound(dates, last + 1) + 1);
+        int n = to - from;
+        if (n <= 0) {
+            return 0;
+        }
+        if (xPoints.length < n) {
+            xPoints = new int[n];
+            yPoints = new int[n];
+        }
+        int height = plotHeight();
+        int bottom = TOP + height;
+        for (int i = 0; i < n; i++) {
+            xPoints[i] = dayToX(dates[from + i]);
+            yPoints[i] = bottom - (int) Math.round(values[from + i] / yMax * height);
+        }
+        g.setColor(s.getColor());
+        // Smooth, thicker lines cost a lot on dense, mostly vertical strokes and show nothing there
+        boolean sparse = n <= plotWidth();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+            sparse ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setStroke(sparse ? SPARSE_STROKE : DENSE_STROKE);
+        if (n == 1) {
+            g.fillOval(xPoints[0] - 2, yPoints[0] - 2, 5, 5);
+        } else {
+            g.drawPolyline(xPoints, yPoints, n);
+        }
+        return n;
+    }
+
+    private void drawAxes(Graphics2D g, double yMax) {
+        int width = plotWidth();
+        int height = plotHeight();
+        int bottom = TOP + height;
+        FontMetrics metrics = g.getFontMetrics();
+
+        for (int tick = 0; tick <= Y_TICKS; tick++) {
+            int y = bottom - tick * height / Y_TICKS;
+            g.setColor(new Color(235, 235, 235));
+            g.drawLine(LEFT, y, LEFT + width, y);
+            String label = String.format("%,.0f", yMax * tick / Y_TICKS);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(label, LEFT - 6 - metrics.stringWidth(label), y + metrics.getAscent() / 2);
+        }
+
+        int step = X_TICK_DAYS[X_TICK_DAYS.length - 1];
+        for (int days : X_TICK_DAYS) {
+            if (days / daysPerPixel() >= MIN_X_TICK_PIXELS) {
+                step = days;
+                break;
+            }
+        }
+        for (long day = (long) Math.ceil(viewFrom / step) * step; day <= viewTo; day += step) {
+            int x = dayToX(day);
+            g.setColor(new Color(235, 235, 235));
+            g.drawLine(x, TOP, x, bottom);
+            String label = DateCodec.format((int) day);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(label, x - metrics.stringWidth(label) / 2, bottom + metrics.getAscent() + 6);
+        }
+
+        g.setColor(Color.GRAY);
+        g.drawRect(LEFT, TOP, width, height);
+    }
+
+    private void drawLegend(Graphics2D g) {
+        FontMetrics metrics = g.getFontMetrics();
+        int x = LEFT + 10;
+        int y = TOP - 10;
+        for (ChartSeries s : series) {
+            g.setColor(s.getColor());
+            g.fillRect(x, y - metrics.getAscent() + 2, 12, metrics.getAscent() - 2);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(s.getName(), x + 16, y);
+            x += 16 + metrics.stringWidth(s.getName()) + 20;
+        }
+    }
+
+    /**
+     * Rounds up to 1, 2 or 5 times a power of ten so the y ticks land on round numbers
+     */
+    static double niceCeiling(double value) {
+        if (value <= 0) {
+            return 1;
+        }
+        double magnitude = Math.pow(10, Math.floor(Math.log10(value)));
+        double scaled = value / magnitude;
+        double nice = scaled <= 1 ? 1 : scaled <= 2 ? 2 : scaled <= 5 ? 5 : 10;
+        return nice * magnitude;
+    }
+
+    /**
+     * First index whose date is >= key
+     */
+    private static int lowerBound(int[] sortedDates, int key) {
+        int lo = 0;
+        int hi = sortedDates.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedDates[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
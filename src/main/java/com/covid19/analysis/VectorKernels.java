@@ -0,0 +1,83 @@
+package com.covid19.analysis;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of the {@link ColumnKernels}, at the platform's preferred width.
+ * Sums widen each int vector into two long vectors before adding, so the lanes can
+ * never overflow and the total equals the scalar loop's bit for bit.
+ * Only loaded when the jdk.incubator.vector module is present.
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = INTS.withLanes(long.class);
+
+    private VectorKernels() {}
+
+    /**
+     * Worth using only where the hardware has real vector registers (at least 4 int lanes)
+     */
+    static boolean isSupported() {
+        return INTS.length() >= 4;
+    }
+
+    static long sum(int[] values, int from, int to) {
+        LongVector acc = LongVector.zero(LONGS);
+        int i = from;
+        for (int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            acc = widenAndAdd(acc, IntVector.fromArray(INTS, values, i));
+        }
+        return acc.reduceLanes(VectorOperators.ADD) + ScalarKernels.sum(values, i, to);
+    }
+
+    static int min(int[] values, int from, int to) {
+        IntVector acc = IntVector.broadcast(INTS, Integer.MAX_VALUE);
+        int i = from;
+        for (int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            acc = acc.min(IntVector.fromArray(INTS, values, i));
+        }
+        return Math.min(acc.reduceLanes(VectorOperators.MIN), ScalarKernels.min(values, i, to));
+    }
+
+    static int max(int[] values, int from, int to) {
+        IntVector acc = IntVector.broadcast(INTS, Integer.MIN_VALUE);
+        int i = from;
+        for (int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            acc = acc.max(IntVector.fromArray(INTS, values, i));
+        }
+        return Math.max(acc.reduceLanes(VectorOperators.MAX), ScalarKernels.max(values, i, to));
+    }
+
+    static long sumWhere(int[] values, int[] keys, int low, int high, int from, int to) {
+        LongVector acc = LongVector.zero(LONGS);
+        IntVector zero = IntVector.zero(INTS);
+        int i = from;
+        for (int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            VectorMask<Integer> selected = inRange(IntVector.fromArray(INTS, keys, i), low, high);
+            acc = widenAndAdd(acc, zero.blend(IntVector.fromArray(INTS, values, i), selected));
+        }
+        return acc.reduceLanes(VectorOperators.ADD) + ScalarKernels.sumWhere(values, keys, low, high, i, to);
+    }
+
+    static int countWhere(int[] keys, int low, int high, int from, int to) {
+        int count = 0;
+        int i = from;
+        for (int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            count += inRange(IntVector.fromArray(INTS, keys, i), low, high).trueCount();
+        }
+        return count + ScalarKernels.countWhere(keys, low, high, i, to);
+    }
+
+    private static VectorMask<Integer> inRange(IntVector keys, int low, int high) {
+        return keys.compare(VectorOperators.GE, low).and(keys.compare(VectorOperators.LE, high));
+    }
+
+    private static LongVector widenAndAdd(LongVector acc, IntVector values) {
+        return acc.add((LongVector) values.convertShape(VectorOperators.I2L, LONGS, 0))
+            .add((LongVector) values.convertShape(VectorOperators.I2L, LONGS, 1));
+    }
+}